@@ -1,9 +1,17 @@
 document.addEventListener("DOMContentLoaded", () => {
     // API Endpoint
     const API_URL = "http://localhost:8080/api/runs";
+    // Reports are served by the API (compressed, cacheable); report URLs look like "reports/run-<id>.html"
+    const REPORTS_BASE_URL = "http://localhost:8080/api/";
+    const PAGE_SIZE = 50;
 
     // Get DOM elements
     const tableBody = document.getElementById("runs-table-body");
+    const loadMoreBtn = document.getElementById("load-more");
+
+    // Runs loaded so far, and the cursor for the next page (null when there are no more)
+    let loadedRuns = [];
+    let nextCursor = null;
 
     // Summary card elements
     const totalRunsEl = document.getElementById("total-runs");
@@ -11,55 +19,82 @@ document.addEventListener("DOMContentLoaded", () => {
     const totalFailedEl = document.getElementById("total-failed");
     const totalRunningEl = document.getElementById("total-running");
 
+    // Fetches one page of runs; the API returns them newest first
+    const fetchPage = (cursor) => {
+        let url = `${API_URL}?size=${PAGE_SIZE}`;
+        if (cursor) {
+            url += `&cursor=${encodeURIComponent(cursor)}`;
+        }
+        return fetch(url).then(response => {
+            if (!response.ok) {
+                throw new Error("Network response was not ok: " + response.statusText);
+            }
+            return response.json();
+        });
+    };
+
     // Main function to fetch and render data
     const loadData = () => {
         // Set table to loading state
         tableBody.innerHTML = '<tr><td colspan="7">Loading...</td></tr>';
+        loadSummary();
+
+        fetchPage(null)
+            .then(page => {
+                loadedRuns = page.items;
+                nextCursor = page.next;
+                populateTable(loadedRuns);
+            })
+            .catch(error => {
+                console.error("Error fetching test runs:", error);
+                tableBody.innerHTML = `<tr><td colspan="7">Error loading data: ${error.message}</td></tr>`;
+                nextCursor = null;
+            })
+            .finally(updateLoadMore);
+    };
+
+    // Appends the next page below the rows already shown
+    const loadMore = () => {
+        if (!nextCursor) {
+            return;
+        }
+        loadMoreBtn.disabled = true;
+        fetchPage(nextCursor)
+            .then(page => {
+                loadedRuns = loadedRuns.concat(page.items);
+                nextCursor = page.next;
+                page.items.forEach(run => tableBody.appendChild(createRow(run)));
+            })
+            .catch(error => console.error("Error fetching more test runs:", error))
+            .finally(updateLoadMore);
+    };
+
+    const updateLoadMore = () => {
+        loadMoreBtn.disabled = false;
+        loadMoreBtn.style.display = nextCursor ? "block" : "none";
+    };
 
-        fetch(API_URL)
+    // Function to populate the summary cards from the server-side totals
+    const loadSummary = () => {
+        fetch(`${API_URL}/summary`)
             .then(response => {
                 if (!response.ok) {
                     throw new Error("Network response was not ok: " + response.statusText);
                 }
                 return response.json();
             })
-            .then(data => {
-                populateSummary(data);
-                populateTable(data);
-            })
+            .then(populateSummary)
             .catch(error => {
-                console.error("Error fetching test runs:", error);
-                tableBody.innerHTML = `<tr><td colspan="7">Error loading data: ${error.message}</td></tr>`;
-                // Clear summary on error too
-                populateSummary([]);
+                console.error("Error fetching run summary:", error);
+                populateSummary(null);
             });
     };
 
-    // Function to populate the summary cards
-    const populateSummary = (data) => {
-        let completed = 0;
-        let failed = 0;
-        let running = 0;
-
-        data.forEach(run => {
-            switch(run.status) {
-                case "COMPLETED":
-                    completed++;
-                    break;
-                case "FAILED":
-                    failed++;
-                    break;
-                case "RUNNING":
-                case "SCHEDULED":
-                    running++;
-                    break;
-            }
-        });
-
-        totalRunsEl.textContent = data.length;
-        totalCompletedEl.textContent = completed;
-        totalFailedEl.textContent = failed;
-        totalRunningEl.textContent = running;
+    const populateSummary = (summary) => {
+        totalRunsEl.textContent = summary ? summary.total : 0;
+        totalCompletedEl.textContent = summary ? summary.completed : 0;
+        totalFailedEl.textContent = summary ? summary.failed : 0;
+        totalRunningEl.textContent = summary ? summary.running + summary.scheduled : 0;
     };
 
     // Function to populate the runs table
@@ -72,40 +107,81 @@ document.addEventListener("DOMContentLoaded", () => {
         // Clear loading row
         tableBody.innerHTML = "";
 
-        // Sort data to show newest runs first
-        data.sort((a, b) => new Date(b.startTime) - new Date(a.startTime));
+        // Rows arrive newest first already, so just append them in order
+        data.forEach(run => tableBody.appendChild(createRow(run)));
+    };
+
+    // Builds the table row for a single run
+    const createRow = (run) => {
+        const row = document.createElement("tr");
+        row.dataset.runId = run.runId;
 
-        // Loop through each test run and add it to the table
-        data.forEach(run => {
-            const row = document.createElement("tr");
+        // Format dates to be readable
+        const startTime = new Date(run.startTime).toLocaleString();
+        const endTime = run.endTime ? new Date(run.endTime).toLocaleString() : "N/A";
+
+        // Creates a link for the "Report" column
+        let reportCell = `<span class="report-link-na">N/A</span>`;
+        if (run.reportUrl) {
+            const reportHref = run.reportUrl.startsWith("reports/") ? REPORTS_BASE_URL + run.reportUrl : run.reportUrl;
+            reportCell = `<a href="${reportHref}" target="_blank" class="report-link">View Report</a>`;
+        }
 
-            // Format dates to be readable
-            const startTime = new Date(run.startTime).toLocaleString();
-            const endTime = run.endTime ? new Date(run.endTime).toLocaleString() : "N/A";
+        row.innerHTML = `
+            <td>${run.runId}</td>
+            <td>${run.environment}</td>
+            <td><span class="status status-${run.status.toLowerCase()}">${run.status}</span></td>
+            <td>${run.failedTestCount !== null ? run.failedTestCount : 0}</td>
+            <td>${startTime}</td>
+            <td>${endTime}</td>
+            <td>${reportCell}</td>
+        `;
+        return row;
+    };
 
-            // Creates a link for the "Report" column
-            let reportCell = `<span class="report-link-na">N/A</span>`;
-            if (run.reportUrl) {
-                // This assumes the API returns a relative path like "reports/report-name.html"
-                reportCell = `<a href="${run.reportUrl}" target="_blank" class="report-link">View Report</a>`;
+    // Applies one pushed run change: patches the row in place, or adds it on top if it is a new run
+    const applyRunEvent = (event) => {
+        const existingRow = tableBody.querySelector(`tr[data-run-id="${event.runId}"]`);
+        if (existingRow) {
+            existingRow.replaceWith(createRow(event));
+        } else if (event.previousStatus === null) {
+            // Drop the "No test runs found." placeholder if it is still there
+            if (!tableBody.querySelector("tr[data-run-id]")) {
+                tableBody.innerHTML = "";
             }
+            tableBody.prepend(createRow(event));
+        }
+        scheduleSummaryRefresh();
+    };
 
-            row.innerHTML = `
-                <td>${run.id}</td>
-                <td>${run.environment}</td>
-                <td><span class="status status-${run.status.toLowerCase()}">${run.status}</span></td>
-                <td>${run.failedTestCount !== null ? run.failedTestCount : 0}</td>
-                <td>${startTime}</td>
-                <td>${endTime}</td>
-                <td>${reportCell}</td>
-            `;
-            tableBody.appendChild(row);
-        });
+    // Bursts of events only cost one summary request
+    let summaryTimer = null;
+    const scheduleSummaryRefresh = () => {
+        if (summaryTimer === null) {
+            summaryTimer = setTimeout(() => {
+                summaryTimer = null;
+                loadSummary();
+            }, 1000);
+        }
     };
 
-    // Initial data load
-    loadData();
+    const subscribeToRunEvents = () => {
+        const source = new EventSource(`${API_URL}/events`);
+        source.addEventListener("run", message => applyRunEvent(JSON.parse(message.data)));
+        // EventSource reconnects by itself; reload once it is back so nothing missed while offline is lost
+        let disconnected = false;
+        source.onerror = () => { disconnected = true; };
+        source.onopen = () => {
+            if (disconnected) {
+                disconnected = false;
+                loadData();
+            }
+        };
+    };
 
-    // Optional: Refresh data every 10 seconds
-    // setInterval(loadData, 10000);
+    loadMoreBtn.addEventListener("click", loadMore);
+
+    // Initial data load, then live updates instead of polling
+    loadData();
+    subscribeToRunEvents();
 });
\ No newline at end of file
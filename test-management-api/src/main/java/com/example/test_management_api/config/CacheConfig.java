@@ -0,0 +1,40 @@
+package com.example.test_management_api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Single-run lookups (GET /api/runs/{id}), polled heavily by CI pipelines
+    public static final String TEST_RUNS_CACHE = "testRuns";
+
+    @Value("${cache.runs.max-size:10000}")
+    private long maxSize;
+
+    @Value("${cache.runs.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats());
+        // Don't create unknown caches on the fly; a typo in a cache name should fail loudly
+        cacheManager.setCacheNames(List.of(TEST_RUNS_CACHE));
+        // Puts and evictions made inside a transaction are applied only after it commits
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -2,12 +2,18 @@ package com.example.test_management_api.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,6 +23,24 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.exchange.name}")
     private String exchangeName;
 
+    @Value("${rabbitmq.cancel.exchange.name}")
+    private String cancelExchangeName;
+
+    @Value("${rabbitmq.results.queue.name}")
+    private String resultsQueueName;
+
+    @Value("${rabbitmq.results.exchange.name}")
+    private String resultsExchangeName;
+
+    @Value("${rabbitmq.results.routing.key}")
+    private String resultsRoutingKey;
+
+    // How many results one listener call applies, and how long it waits to fill a batch
+    @Value("${rabbitmq.results.batch-size:100}")
+    private int resultsBatchSize;
+
+    @Value("${rabbitmq.results.batch-timeout-ms:200}")
+    private long resultsBatchTimeoutMs;
 
     // Define the exchange
     @Bean
@@ -24,6 +48,28 @@ public class RabbitMQConfig {
         return new TopicExchange(exchangeName);
     }
 
+    // Cancel signals go to every worker; each one binds its own queue to this exchange
+    @Bean
+    public FanoutExchange cancelExchange() {
+        return new FanoutExchange(cancelExchangeName);
+    }
+
+    // Results published by the workers (see TestRunResultListener)
+    @Bean
+    public Queue resultsQueue() {
+        return new Queue(resultsQueueName, true);
+    }
+
+    @Bean
+    public TopicExchange resultsExchange() {
+        return new TopicExchange(resultsExchangeName);
+    }
+
+    @Bean
+    public Binding resultsBinding(Queue resultsQueue, TopicExchange resultsExchange) {
+        return BindingBuilder.bind(resultsQueue).to(resultsExchange).with(resultsRoutingKey);
+    }
+
     // Set up JSON message conversion (for sending Java objects)
     @Bean
     public MessageConverter messageConverter() {
@@ -40,4 +86,23 @@ public class RabbitMQConfig {
         rabbitTemplate.setMessageConverter(messageConverter());
         return rabbitTemplate;
     }
-}
\ No newline at end of file
+
+    // Hands the results listener a whole batch of messages per call, so a burst is applied in a few transactions
+    @Bean
+    public SimpleRabbitListenerContainerFactory resultsListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            SimpleRabbitListenerContainerFactoryConfigurer configurer) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        // The configurer also brings in the virtual-thread consumer executor when spring.threads.virtual.enabled is set
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(resultsBatchSize);
+        factory.setReceiveTimeout(resultsBatchTimeoutMs);
+        // A batch can only fill up if the broker lets us hold that many unacked messages
+        factory.setPrefetchCount(resultsBatchSize);
+        return factory;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.test_management_api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How long runs are kept before RetentionService moves them to the archive.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "retention")
+@Data
+public class RetentionProperties {
+
+    // Off until an operator opts in: archiving deletes rows and report files
+    private boolean enabled = false;
+
+    // Days to keep runs of environments without their own policy; 0 keeps them forever
+    private int defaultDays = 90;
+
+    // Per-environment overrides, e.g. retention.environments.QA=14
+    private Map<String, Integer> environments = new HashMap<>();
+
+    // Runs archived (and deleted) per transaction
+    private int chunkSize = 500;
+
+    // Where the gzip NDJSON segments are written
+    private String archiveDir = "archive";
+
+    // Directory the report and screenshot paths stored on runs are relative to
+    private String artifactsBaseDir = ".";
+
+    public int daysFor(String environment) {
+        return environment != null ? environments.getOrDefault(environment, defaultDays) : defaultDays;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.test_management_api.config;
+
+import com.example.test_management_api.repository.RunStatusCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Seeds the run status counters behind GET /api/runs/summary from the existing run history, once per database.
+ * <p>
+ * Runs while the context starts, before the results listener, the scheduler and Tomcat take any traffic.
+ * A marker row in {@code data_migration} records that it is done: it is inserted in the same transaction as the
+ * counters, so a failed seed is retried on the next start, and a second instance starting at the same time waits
+ * on the uncommitted marker and then skips. Counter rows already present (written before the seed ever ran)
+ * are rebuilt rather than added to.
+ */
+@Component
+@Slf4j
+public class RunStatusCounterBackfill implements InitializingBean {
+
+    static final String MIGRATION = "run_status_counter_backfill";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Also makes this wait for Hibernate's schema update, which creates run_status_counter
+    private final RunStatusCounterRepository counterRepository;
+
+    public RunStatusCounterBackfill(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                    RunStatusCounterRepository counterRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.counterRepository = counterRepository;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // DDL commits implicitly on MySQL, so the table is created outside the seeding transaction
+        jdbcTemplate.execute("create table if not exists data_migration " +
+                "(name varchar(100) not null primary key, applied_at datetime(6) not null)");
+        transactionTemplate.executeWithoutResult(status -> {
+            int claimed = jdbcTemplate.update(
+                    "insert ignore into data_migration (name, applied_at) values (?, now(6))", MIGRATION);
+            if (claimed == 0) {
+                return;
+            }
+            counterRepository.deleteAllInBatch();
+            int buckets = counterRepository.backfillFromTestRuns();
+            log.info("Seeded {} run status counters from existing test runs", buckets);
+        });
+    }
+}
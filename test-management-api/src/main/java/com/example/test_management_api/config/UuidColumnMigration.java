@@ -0,0 +1,101 @@
+package com.example.test_management_api.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts UUID columns created by older schemas (CHAR(36) text, or the zero-padded BINARY(255) of Hibernate 5)
+ * to BINARY(16) in place, keeping every existing id and runId unchanged.
+ * Runs before Hibernate starts, so schema update and queries already see the new column type.
+ * It is a no-op on fresh databases and on schemas that are already BINARY(16), and MySQL only.
+ */
+@Component
+@Slf4j
+public class UuidColumnMigration implements InitializingBean {
+
+    // table -> UUID columns, primary key first
+    private static final Map<String, List<String>> UUID_COLUMNS = Map.of(
+            "test_run", List.of("id"),
+            "test_case_result", List.of("id", "run_id"),
+            "outbox_message", List.of("id", "aggregate_id"),
+            "archived_run", List.of("run_id"));
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public UuidColumnMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName");
+        if (!"MySQL".equalsIgnoreCase(product)) {
+            return;
+        }
+        UUID_COLUMNS.forEach((table, columns) -> columns.forEach(column -> migrate(table, column)));
+    }
+
+    private void migrate(String table, String column) {
+        String type = columnType(table, column);
+        if (type == null || type.equals("binary(16)")) {
+            return;
+        }
+        String copy;
+        if (type.startsWith("char") || type.startsWith("varchar")) {
+            copy = "uuid_to_bin(" + column + ")";
+        } else if (type.startsWith("binary") || type.startsWith("varbinary")) {
+            copy = "left(" + column + ", 16)";
+        } else {
+            log.warn("Not migrating {}.{}: unexpected column type {}", table, column, type);
+            return;
+        }
+
+        // One-off and not atomic (MySQL DDL commits implicitly), but safe to resume: a leftover temp column is reused
+        log.info("Migrating {}.{} from {} to binary(16)", table, column, type);
+        String temp = column + "_bin16";
+        if (columnType(table, temp) == null) {
+            jdbcTemplate.execute("alter table " + table + " add column " + temp + " binary(16)");
+        }
+        jdbcTemplate.update("update " + table + " set " + temp + " = " + copy + " where " + column + " is not null");
+        // Indexes on the old column go with it; Hibernate's schema update recreates the ones declared on the entity
+        if (isPrimaryKey(table, column)) {
+            jdbcTemplate.execute("alter table " + table + " drop primary key, drop column " + column
+                    + ", rename column " + temp + " to " + column + ", add primary key (" + column + ")");
+        } else {
+            jdbcTemplate.execute("alter table " + table + " drop column " + column
+                    + ", rename column " + temp + " to " + column);
+        }
+    }
+
+    private String columnType(String table, String column) {
+        List<String> types = jdbcTemplate.queryForList("select lower(column_type) from information_schema.columns " +
+                "where table_schema = database() and table_name = ? and column_name = ?", String.class, table, column);
+        return types.isEmpty() ? null : types.get(0);
+    }
+
+    private boolean isPrimaryKey(String table, String column) {
+        return !jdbcTemplate.queryForList("select 1 from information_schema.key_column_usage " +
+                "where table_schema = database() and table_name = ? and column_name = ? and constraint_name = 'PRIMARY'",
+                Integer.class, table, column).isEmpty();
+    }
+
+    // Makes the JPA EntityManagerFactory wait for the migration
+    @Configuration
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnMigration() {
+            super(UuidColumnMigration.class);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.test_management_api.controller;
+
+import com.example.test_management_api.dtos.TestStatsDto;
+import com.example.test_management_api.model.enums.RollupGranularity;
+import com.example.test_management_api.service.TestRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Trend and flakiness views, served from the pre-aggregated rollups
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final TestRollupService testRollupService;
+
+    @Value("${analytics.max-limit:500}")
+    private int maxLimit;
+
+    // e.g. /api/analytics/tests/ApiTests.runApiContentTest/trend?environment=QA&granularity=DAY
+    @GetMapping("/tests/{testName}/trend")
+    public ResponseEntity<List<TestStatsDto>> getTrend(
+            @PathVariable String testName,
+            @RequestParam(required = false) String environment,
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        // Default window: 30 days of daily points or 48 hours of hourly ones
+        LocalDateTime start = from != null ? from
+                : granularity == RollupGranularity.DAY ? end.minusDays(30) : end.minusHours(48);
+        return ResponseEntity.ok(testRollupService.getTrend(testName, environment, granularity, start, end));
+    }
+
+    // e.g. /api/analytics/tests?days=30&sort=flaky (or failing, slowest)
+    @GetMapping("/tests")
+    public ResponseEntity<List<TestStatsDto>> getTestStats(
+            @RequestParam(required = false) String environment,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "flaky") String sort,
+            @RequestParam(defaultValue = "50") int limit) {
+        LocalDateTime end = LocalDateTime.now();
+        return ResponseEntity.ok(testRollupService.getTestStats(environment, end.minusDays(Math.max(1, days)), end,
+                sort, Math.max(1, Math.min(limit, maxLimit))));
+    }
+}
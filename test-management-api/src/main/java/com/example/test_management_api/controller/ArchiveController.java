@@ -0,0 +1,40 @@
+package com.example.test_management_api.controller;
+
+import com.example.test_management_api.dtos.ArchivedRunDto;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.service.RetentionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+// Access to runs moved out of the database by the retention job
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/archive")
+@RequiredArgsConstructor
+public class ArchiveController {
+
+    private final RetentionService retentionService;
+
+    @GetMapping("/runs/{id}")
+    public ResponseEntity<ArchivedRunDto> getArchivedRun(@PathVariable UUID id) {
+        return retentionService.findArchivedRun(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Restores the run so the regular /api/runs endpoints (and the dashboard) can show it again
+    @PostMapping("/runs/{id}/rehydrate")
+    public ResponseEntity<TestRun> rehydrate(@PathVariable UUID id) {
+        return retentionService.rehydrate(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
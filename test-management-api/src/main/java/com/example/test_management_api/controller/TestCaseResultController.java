@@ -0,0 +1,47 @@
+package com.example.test_management_api.controller;
+
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.service.TestCaseResultService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class TestCaseResultController {
+
+    private final TestCaseResultService testCaseResultService;
+
+    // Per-test breakdown of one run
+    @GetMapping("/runs/{id}/tests")
+    public ResponseEntity<List<TestCaseResult>> getRunTestResults(@PathVariable UUID id) {
+        return ResponseEntity.ok(testCaseResultService.getForRun(id));
+    }
+
+    // e.g. /api/tests/results?status=FAILED&environment=QA or /api/tests/results?sort=duration&minDurationMs=5000
+    @GetMapping("/tests/results")
+    public ResponseEntity<List<TestCaseResult>> searchTestResults(
+            @RequestParam(required = false) String testName,
+            @RequestParam(required = false) TestRunStatus status,
+            @RequestParam(required = false) String environment,
+            @RequestParam(required = false) Long minDurationMs,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "recent") String sort,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(testCaseResultService.search(testName, status, environment, minDurationMs, from, to, sort, limit));
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.test_management_api.controller;
 
 import com.example.test_management_api.dtos.CreateTestRunRequestDto;
+import com.example.test_management_api.dtos.RunSummaryDto;
+import com.example.test_management_api.dtos.TestRunPageDto;
 import com.example.test_management_api.dtos.TestRunUpdateDto;
 import com.example.test_management_api.model.TestRun;
 import com.example.test_management_api.model.enums.TestRunStatus;
-import com.example.test_management_api.service.RabbitMQProducer;
+import com.example.test_management_api.service.RunEventBroadcaster;
 import com.example.test_management_api.service.TestRunService;
 import com.example.test_management_api.service.impl.TestRunServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -25,12 +38,15 @@ import java.util.UUID;
 public class TestRunController {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestRunServiceImpl.class);
     private final TestRunService testRunService;
-    private final RabbitMQProducer rabbitMQProducer;
+    private final ObjectMapper objectMapper;
+    private final RunEventBroadcaster runEventBroadcaster;
 
     @Autowired
-    public TestRunController(TestRunService testRunService, RabbitMQProducer rabbitMQProducer) {
+    public TestRunController(TestRunService testRunService, ObjectMapper objectMapper,
+                             RunEventBroadcaster runEventBroadcaster) {
         this.testRunService = testRunService;
-        this.rabbitMQProducer = rabbitMQProducer;
+        this.objectMapper = objectMapper;
+        this.runEventBroadcaster = runEventBroadcaster;
     }
 
     @GetMapping("/runs/{id}")
@@ -42,18 +58,93 @@ public class TestRunController {
             return ResponseEntity.notFound().build();
         }
     }
+    // tags is a tag expression, e.g. "api,smoke" (both), "smoke | api", "ui & !slow", "(smoke & ui) | login page";
+    // one that doesn't parse is rejected with 400
     @PostMapping("/runs")
     public ResponseEntity<TestRun> createTestRun(@RequestBody CreateTestRunRequestDto testRunRequestDto){
-        TestRun savedTestRun= testRunService.createTestRun(testRunRequestDto);
-        rabbitMQProducer.sendTestRunJob(savedTestRun);
+        try {
+            // The job itself is enqueued through the outbox, so this never waits for RabbitMQ
+            TestRun savedTestRun= testRunService.createTestRun(testRunRequestDto);
+            return new ResponseEntity<>(savedTestRun,HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected run: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        return new ResponseEntity<>(savedTestRun,HttpStatus.CREATED);
+    // Submits a whole matrix of runs in one transaction with batched inserts; the outbox relay publishes the jobs in confirmed batches
+    @PostMapping("/runs/batch")
+    public ResponseEntity<List<TestRun>> createTestRuns(@RequestBody List<CreateTestRunRequestDto> testRunRequestDtos){
+        try {
+            List<TestRun> savedTestRuns = testRunService.createTestRuns(testRunRequestDtos);
+            return new ResponseEntity<>(savedTestRuns,HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected run batch: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/runs")
-    public ResponseEntity<List<TestRun>> getAllTestRuns(@RequestParam(required = false) TestRunStatus status,@RequestParam(required = false) String environment){
-        List<TestRun> TestRuns=testRunService.getAllTestsByCriteria(status,environment);
-        return new ResponseEntity<>(TestRuns,HttpStatus.OK);
+    public ResponseEntity<TestRunPageDto> getAllTestRuns(@RequestParam(required = false) TestRunStatus status,
+                                                         @RequestParam(required = false) String environment,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "50") int size){
+        try {
+            TestRunPageDto page=testRunService.getTestRunPage(status,environment,cursor,size);
+            return new ResponseEntity<>(page,HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Rejected runs page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Totals per status, served from the run status counters instead of the run history
+    @GetMapping("/runs/summary")
+    public ResponseEntity<RunSummaryDto> getRunSummary(@RequestParam(required = false) String environment,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to){
+        return ResponseEntity.ok(testRunService.getRunSummary(environment, from, to));
+    }
+
+    // Live feed of run changes (event name 'run', data is a RunEventDto)
+    @GetMapping(value = "/runs/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRunEvents(){
+        return runEventBroadcaster.subscribe();
+    }
+
+    // Full export as newline-delimited JSON, one run per line, written while the rows are read
+    @GetMapping(value = "/runs/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportTestRuns(@RequestParam(required = false) TestRunStatus status,
+                                                                @RequestParam(required = false) String environment){
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody body = outputStream -> {
+            BufferedOutputStream out = new BufferedOutputStream(outputStream);
+            testRunService.streamTestRuns(status, environment, testRun -> {
+                try {
+                    out.write(writer.writeValueAsBytes(testRun));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // Stops a queued or running run; workers drop its tests and sessions as soon as the signal reaches them
+    @PostMapping("/runs/{id}/cancel")
+    public ResponseEntity<TestRun> cancelTestRun(@PathVariable UUID id){
+        try {
+            return ResponseEntity.ok(testRunService.cancelTestRun(id));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Rejected cancel: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     @PutMapping("/runs/{id}")
@@ -0,0 +1,20 @@
+package com.example.test_management_api.dtos;
+
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.TestRun;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One line of an archive segment: a run together with its per-test results.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedRunDto {
+    private TestRun run;
+    private List<TestCaseResult> testCaseResults;
+}
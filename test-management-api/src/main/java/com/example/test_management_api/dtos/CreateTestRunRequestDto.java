@@ -1,5 +1,6 @@
 package com.example.test_management_api.dtos;
 
+import com.example.test_management_api.model.enums.RunPriority;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,4 +15,10 @@ public class CreateTestRunRequestDto {
 
     private String tags;
 
+    // Optional; when missing it is derived from the tags and environment (see runs.priority.*)
+    private RunPriority priority;
+
+    public CreateTestRunRequestDto(String environment, String tags) {
+        this(environment, tags, null);
+    }
 }
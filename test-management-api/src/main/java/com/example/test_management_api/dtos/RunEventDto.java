@@ -0,0 +1,33 @@
+package com.example.test_management_api.dtos;
+
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Small delta pushed to dashboard clients whenever a run is created or changes.
+ * It carries only what a table row shows, plus the previous status so clients can adjust their totals.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunEventDto {
+    private UUID runId;
+    private TestRunStatus status;
+    private TestRunStatus previousStatus;
+    private String environment;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer failedTestCount;
+    private String reportUrl;
+
+    public static RunEventDto of(TestRun testRun, TestRunStatus previousStatus) {
+        return new RunEventDto(testRun.getId(), testRun.getStatus(), previousStatus, testRun.getEnvironment(),
+                testRun.getStartTime(), testRun.getEndTime(), testRun.getFailedTestCount(), testRun.getReportUrl());
+    }
+}
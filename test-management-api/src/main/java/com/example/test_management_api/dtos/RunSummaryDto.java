@@ -0,0 +1,18 @@
+package com.example.test_management_api.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Run totals per status, optionally narrowed to one environment and a window of start times.
+ */
+@Data
+@NoArgsConstructor
+public class RunSummaryDto {
+    private long total;
+    private long scheduled;
+    private long running;
+    private long completed;
+    private long failed;
+    private long cancelled;
+}
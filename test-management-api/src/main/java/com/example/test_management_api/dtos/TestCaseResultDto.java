@@ -0,0 +1,19 @@
+package com.example.test_management_api.dtos;
+
+import com.example.test_management_api.model.enums.TestRunStatus;
+import lombok.Data;
+
+/**
+ * Outcome of one test method, as reported by the worker in TestRunUpdateDto.
+ */
+@Data
+public class TestCaseResultDto {
+    private String testName;
+    private String tags;
+    private TestRunStatus status;
+    private int attempts;
+    private Long durationMs;
+    private String errorMessage;
+    private String reportUrl;
+    private String screenshotPath;
+}
@@ -0,0 +1,34 @@
+package com.example.test_management_api.dtos;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last row of a page: (startTime, id).
+ * Clients only ever see it as an opaque base64 string.
+ */
+public record TestRunCursor(LocalDateTime startTime, UUID id) {
+
+    public String encode() {
+        String raw = startTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TestRunCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            }
+            return new TestRunCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            // IllegalArgumentException covers bad base64 and bad UUIDs already
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.test_management_api.dtos;
+
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Narrow, read-only view of a TestRun for list screens.
+ * It leaves out the TEXT columns (errorMessage, errorDetails) so list queries never read them.
+ * The constructor order is used by the JPQL 'select new' expressions in TestRunRepository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestRunListItem {
+    @JsonProperty("runId")
+    private UUID id;
+    private TestRunStatus status;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private String reportUrl;
+    private String environment;
+    private String tags;
+    private Integer failedTestCount;
+}
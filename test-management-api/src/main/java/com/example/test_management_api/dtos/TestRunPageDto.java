@@ -0,0 +1,20 @@
+package com.example.test_management_api.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of test runs, newest first.
+ * Pass 'next' back as the 'cursor' query parameter to get the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestRunPageDto {
+    private List<TestRunListItem> items;
+    private int size;
+    private String next;
+}
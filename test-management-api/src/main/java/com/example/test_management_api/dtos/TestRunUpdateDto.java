@@ -1,17 +1,45 @@
 package com.example.test_management_api.dtos;
 
 import com.example.test_management_api.model.enums.TestRunStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
 /**
  * This DTO receives the *result* of a test run from the worker.
  */
 @Data
 public class TestRunUpdateDto {
+    // Set when the result travels over the results queue instead of PUT /api/runs/{id}
+    private UUID runId;
     private TestRunStatus status;
     private String reportUrl;
     private String errorMessage;
     private String errorDetails;
     private Integer failedTestCount;
     private String screenshotPath;
+    // When the worker finished the run; queued results may be applied a little later
+    private LocalDateTime endTime;
+    // One entry per executed test method; stored as TestCaseResult rows
+    private List<TestCaseResultDto> testCaseResults;
+    // Set when the result covers one shard of a sharded run (shardIndex is 0-based).
+    // A shardCount without a shardIndex is the plan sent when the worker splits the run.
+    private Integer shardIndex;
+    private Integer shardCount;
+    // Set on the stand-in failures of shards that did not report in time (never read from a worker)
+    @JsonIgnore
+    private boolean timedOut;
+
+    @JsonIgnore
+    public boolean isShardResult() {
+        return shardCount != null;
+    }
+
+    @JsonIgnore
+    public boolean isShardPlan() {
+        return shardCount != null && shardIndex == null;
+    }
 }
\ No newline at end of file
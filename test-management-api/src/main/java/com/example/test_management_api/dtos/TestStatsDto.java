@@ -0,0 +1,28 @@
+package com.example.test_management_api.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregated results of one test, either for one trend bucket or for a whole window (bucketStart null).
+ * environment is null when the figures span all environments.
+ */
+@Data
+@NoArgsConstructor
+public class TestStatsDto {
+    private String testName;
+    private String environment;
+    private LocalDateTime bucketStart;
+    private long runs;
+    private long failures;
+    private long flaky;
+    private long retries;
+    private double failRate;
+    private double flakeRate;
+    private Long avgDurationMs;
+    private Long p50DurationMs;
+    private Long p95DurationMs;
+    private Long p99DurationMs;
+}
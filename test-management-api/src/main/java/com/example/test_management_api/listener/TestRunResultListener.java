@@ -0,0 +1,67 @@
+package com.example.test_management_api.listener;
+
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import com.example.test_management_api.service.TestRunService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.List;
+
+/**
+ * Consumes run results published by the workers.
+ * Messages arrive in batches and are acked only after the batch has been committed.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TestRunResultListener {
+
+    private final TestRunService testRunService;
+
+    @RabbitListener(queues = "${rabbitmq.results.queue.name}", containerFactory = "resultsListenerContainerFactory")
+    public void handleResults(List<TestRunUpdateDto> results) {
+        log.debug("Received {} run results", results.size());
+        try {
+            testRunService.applyTestRunUpdates(results);
+        } catch (Exception e) {
+            if (isTransient(e)) {
+                // Database trouble rather than bad data: reject so the whole batch is redelivered
+                throw e;
+            }
+            // Don't let one bad result roll back (and redeliver) the whole batch forever; retry them one by one
+            log.warn("Applying {} run results as a batch failed, retrying individually", results.size(), e);
+            for (TestRunUpdateDto result : results) {
+                try {
+                    testRunService.applyTestRunUpdates(List.of(result));
+                } catch (Exception single) {
+                    if (isTransient(single)) {
+                        // Reapplying the results already stored is harmless, losing this one is not
+                        log.warn("Database unavailable while applying the result for run {}, redelivering the batch",
+                                result.getRunId());
+                        throw single;
+                    }
+                    log.error("Dropping result for run {}", result.getRunId(), single);
+                }
+            }
+        }
+    }
+
+    // Errors that may go away on their own (lock timeouts, deadlocks, lost connections), anywhere in the cause chain
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.test_management_api.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Where an archived run went: the segment file (relative to retention.archive-dir) that holds its NDJSON line.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ArchivedRun {
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID runId;
+
+    private String environment;
+
+    private LocalDateTime startTime;
+
+    private String segment;
+
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,101 @@
+package com.example.test_management_api.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable histogram of durations with logarithmic bins, so any quantile is accurate to about 2% of its value.
+ * Two sketches merge by adding their bin counts, which is what lets hourly rollups roll up into days,
+ * environments and arbitrary windows without going back to the raw results.
+ * Only the bins in use are kept; a test with a stable duration needs a few dozen.
+ */
+public class DurationSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // bin index -> number of durations in it; bin i covers (GAMMA^(i-1), GAMMA^i] ms, bin 0 everything up to 1ms
+    private final TreeMap<Integer, Long> bins = new TreeMap<>();
+    private long count;
+
+    public void add(long durationMs) {
+        int index = durationMs <= 1 ? 0 : (int) Math.ceil(Math.log(durationMs) / LOG_GAMMA);
+        bins.merge(index, 1L, Long::sum);
+        count++;
+    }
+
+    public void merge(DurationSketch other) {
+        other.bins.forEach((index, binCount) -> bins.merge(index, binCount, Long::sum));
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Estimated duration at quantile q (0..1), or null when the sketch is empty.
+     */
+    public Long quantile(double q) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+            seen += bin.getValue();
+            if (seen > rank) {
+                return binValue(bin.getKey());
+            }
+        }
+        return binValue(bins.lastKey());
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + bins.size() * 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(bins.size());
+            for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+                out.writeInt(bin.getKey());
+                out.writeLong(bin.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static DurationSketch fromBytes(byte[] data) {
+        DurationSketch sketch = new DurationSketch();
+        if (data == null || data.length == 0) {
+            return sketch;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int index = in.readInt();
+                long binCount = in.readLong();
+                sketch.bins.put(index, binCount);
+                sketch.count += binCount;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sketch;
+    }
+
+    // Midpoint of the bin (in relative terms), which keeps the error within RELATIVE_ACCURACY
+    private static long binValue(int index) {
+        if (index == 0) {
+            return 1;
+        }
+        return Math.round(2 * Math.pow(GAMMA, index) / (GAMMA + 1));
+    }
+}
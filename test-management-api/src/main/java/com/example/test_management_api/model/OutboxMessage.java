@@ -0,0 +1,50 @@
+package com.example.test_management_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A message waiting to be published to RabbitMQ.
+ * It is written in the same transaction as the change it announces and deleted by OutboxRelay once the broker confirms it,
+ * so a committed run is always enqueued eventually, however slow or unavailable the broker is at the time.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_next_attempt", columnList = "nextAttemptAt, createdAt"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class OutboxMessage {
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    // The run this message is about, for troubleshooting
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID aggregateId;
+
+    private String exchange;
+
+    private String routingKey;
+
+    // Message body exactly as it will be sent (JSON)
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    private LocalDateTime createdAt;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+}
@@ -0,0 +1,23 @@
+package com.example.test_management_api.model;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of runs currently in a given status, per environment and per hour of start time.
+ * Kept up to date by RunSummaryService whenever a run is created or changes status,
+ * so summaries are a sum over a few counter rows instead of a scan of the run history.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class RunStatusCounter {
+    @EmbeddedId
+    private RunStatusCounterId id;
+
+    private long runCount;
+}
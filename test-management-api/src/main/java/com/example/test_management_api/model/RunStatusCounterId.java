@@ -0,0 +1,31 @@
+package com.example.test_management_api.model;
+
+import com.example.test_management_api.model.enums.TestRunStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunStatusCounterId implements Serializable {
+    // Runs without an environment are counted under ""
+    @Column(nullable = false)
+    private String environment;
+
+    // Start of the hour the counted runs were started in
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TestRunStatus status;
+}
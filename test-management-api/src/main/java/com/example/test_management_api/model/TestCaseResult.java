@@ -0,0 +1,65 @@
+package com.example.test_management_api.model;
+
+import com.example.test_management_api.model.enums.TestRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Outcome of a single test method within a run.
+ * Kept as a plain runId column rather than a JPA relation, so results are bulk-inserted without loading the run.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_test_case_result_run", columnList = "runId"),
+        // Trend of one test over time, and "what failed recently"
+        @Index(name = "idx_test_case_result_name_recorded", columnList = "testName, recordedAt"),
+        @Index(name = "idx_test_case_result_status_recorded", columnList = "status, recordedAt"),
+        // Slowest tests first
+        @Index(name = "idx_test_case_result_duration", columnList = "durationMs"),
+        // Screenshots are stored once per distinct image, so retention checks who else points at one
+        @Index(name = "idx_test_case_result_screenshot", columnList = "screenshotPath")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class TestCaseResult {
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID runId;
+
+    private String testName;
+
+    private String tags;
+
+    // Copied from the run so results can be filtered per environment without a join
+    private String environment;
+
+    @Enumerated(EnumType.STRING)
+    private TestRunStatus status;
+
+    private int attempts;
+
+    private Long durationMs;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    private String reportUrl;
+
+    private String screenshotPath;
+
+    // When the run finished
+    private LocalDateTime recordedAt;
+}
@@ -0,0 +1,45 @@
+package com.example.test_management_api.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hourly or daily aggregate of one test's results in one environment.
+ * Updated by TestRollupService as results arrive, so trend and flakiness queries read a handful of rows
+ * per test instead of scanning the result history.
+ */
+@Entity
+@Table(indexes = {
+        // Trend of one test, and all tests within a window
+        @Index(name = "idx_rollup_test_bucket", columnList = "granularity, testName, bucketStart"),
+        @Index(name = "idx_rollup_bucket", columnList = "granularity, bucketStart")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class TestDurationRollup {
+    @EmbeddedId
+    private TestDurationRollupId id;
+
+    private long runCount;
+
+    private long failCount;
+
+    // Passed, but only after a retry
+    private long flakyCount;
+
+    // Attempts beyond the first, summed
+    private long retryCount;
+
+    private long totalDurationMs;
+
+    // Serialized DurationSketch of the durations
+    @Column(columnDefinition = "BLOB")
+    private byte[] sketch;
+}
@@ -0,0 +1,34 @@
+package com.example.test_management_api.model;
+
+import com.example.test_management_api.model.enums.RollupGranularity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestDurationRollupId implements Serializable {
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    // Start of the hour or day the results were recorded in
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private String testName;
+
+    // Results of runs without an environment are rolled up under ""
+    @Column(nullable = false)
+    private String environment;
+}
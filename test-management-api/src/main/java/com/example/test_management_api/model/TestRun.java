@@ -1,22 +1,35 @@
 package com.example.test_management_api.model;
 
+import com.example.test_management_api.model.enums.RunPriority;
 import com.example.test_management_api.model.enums.TestRunStatus;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        // One index per list filter shape; each ends in startTime so newest-first pages are index range scans
+        @Index(name = "idx_test_run_status_env_start", columnList = "status, environment, startTime"),
+        @Index(name = "idx_test_run_env_start", columnList = "environment, startTime"),
+        @Index(name = "idx_test_run_status_start", columnList = "status, startTime"),
+        @Index(name = "idx_test_run_start", columnList = "startTime")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class TestRun {
+    // Time-ordered (see TimeOrderedUuid) and stored as 16 raw bytes; serialized as the usual UUID string
     @Id
     @JsonProperty("runId")
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
     private UUID id;
 
     @Enumerated(EnumType.STRING)
@@ -31,6 +44,10 @@ public class TestRun {
     private String environment;
 
     private String tags;
+
+    // Decides which job queue lane the run goes through
+    @Enumerated(EnumType.STRING)
+    private RunPriority priority;
     @Column(columnDefinition = "TEXT")
     private String errorMessage;
 
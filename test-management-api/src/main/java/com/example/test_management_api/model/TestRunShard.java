@@ -0,0 +1,58 @@
+package com.example.test_management_api.model;
+
+import com.example.test_management_api.model.enums.TestRunStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One shard of a sharded run. The row is created when the run is split (status SCHEDULED) and filled in with the
+ * result reported by whichever worker executed the shard.
+ * The run is finalized from these rows once every shard has reported (see RunShardService).
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_test_run_shard_run_index", columnNames = {"runId", "shardIndex"}),
+        indexes = @Index(name = "idx_test_run_shard_pending", columnList = "status, plannedAt"))
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class TestRunShard {
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)", nullable = false)
+    private UUID runId;
+
+    private int shardIndex;
+
+    private int shardCount;
+
+    @Enumerated(EnumType.STRING)
+    private TestRunStatus status;
+
+    private Integer failedTestCount;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    private String reportUrl;
+
+    private String screenshotPath;
+
+    private LocalDateTime endTime;
+
+    // When the run was split; the shard times out counting from here
+    private LocalDateTime plannedAt;
+
+    // A failed stand-in for a shard that did not report in time; its real result may still replace it
+    private boolean timedOut;
+}
@@ -0,0 +1,46 @@
+package com.example.test_management_api.model;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Generates version 7 UUIDs (RFC 9562): 48 bits of Unix milliseconds, then a 12-bit counter, then random bits.
+ * Stored as BINARY(16) they sort by creation time, so new rows are appended at the end of the clustered index
+ * instead of landing on random pages. The string form is a regular UUID, so clients see no difference.
+ */
+public final class TimeOrderedUuid {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static long lastMillis;
+    private static int sequence;
+
+    private TimeOrderedUuid() {
+    }
+
+    public static UUID next() {
+        long millis;
+        int seq;
+        synchronized (TimeOrderedUuid.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // Start each millisecond at a random point in the lower half, leaving room to count up
+                sequence = RANDOM.nextInt(MAX_SEQUENCE / 2);
+            } else if (sequence < MAX_SEQUENCE) {
+                // Same millisecond (or the clock went back): keep ids increasing
+                sequence++;
+            } else {
+                // Counter exhausted: borrow the next millisecond
+                lastMillis++;
+                sequence = RANDOM.nextInt(MAX_SEQUENCE / 2);
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+        long mostSigBits = (millis << 16) | (0x7L << 12) | seq;
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
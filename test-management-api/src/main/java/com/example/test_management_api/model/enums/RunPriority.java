@@ -0,0 +1,6 @@
+package com.example.test_management_api.model.enums;
+
+public enum RunPriority {
+    HIGH,
+    NORMAL
+}
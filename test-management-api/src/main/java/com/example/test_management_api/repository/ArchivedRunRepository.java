@@ -0,0 +1,9 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.ArchivedRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface ArchivedRunRepository extends JpaRepository<ArchivedRun, UUID>, BatchInsertRepository<ArchivedRun> {
+}
@@ -0,0 +1,12 @@
+package com.example.test_management_api.repository;
+
+import java.util.Collection;
+
+/**
+ * Repository fragment for inserting many new entities at once.
+ * Unlike saveAll, it never issues a SELECT per entity for assigned ids; rows go out as JDBC batches
+ * of hibernate.jdbc.batch_size.
+ */
+public interface BatchInsertRepository<T> {
+    void insertAll(Collection<T> entities);
+}
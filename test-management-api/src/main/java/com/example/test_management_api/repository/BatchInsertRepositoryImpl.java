@@ -0,0 +1,34 @@
+package com.example.test_management_api.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public class BatchInsertRepositoryImpl<T> implements BatchInsertRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public void insertAll(Collection<T> entities) {
+        int pending = 0;
+        for (T entity : entities) {
+            // persist (not merge) so assigned ids don't trigger a lookup first
+            entityManager.persist(entity);
+            if (++pending == batchSize) {
+                // Send this batch and drop it from the persistence context to keep memory flat
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+    }
+}
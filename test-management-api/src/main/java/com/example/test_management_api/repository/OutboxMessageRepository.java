@@ -0,0 +1,24 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, UUID>, BatchInsertRepository<OutboxMessage> {
+
+    // Oldest due messages, locked for this relay; SKIP LOCKED lets several API instances drain in parallel
+    @Query(value = "select * from outbox_message where next_attempt_at <= :now " +
+            "order by created_at limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxMessage> lockDueMessages(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Messages for a run still waiting in the outbox; a row the relay is publishing right now is locked and waited for
+    @Modifying
+    @Query("delete from OutboxMessage m where m.aggregateId = :aggregateId and m.exchange = :exchange")
+    int deleteUnpublished(@Param("aggregateId") UUID aggregateId, @Param("exchange") String exchange);
+}
@@ -0,0 +1,42 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.RunStatusCounter;
+import com.example.test_management_api.model.RunStatusCounterId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RunStatusCounterRepository extends JpaRepository<RunStatusCounter, RunStatusCounterId> {
+
+    // Atomic increment (or decrement, with a negative delta) that creates the counter row on first use
+    @Modifying
+    @Query(value = "insert into run_status_counter (environment, bucket_start, status, run_count) " +
+            "values (:environment, :bucketStart, :status, :delta) " +
+            "on duplicate key update run_count = run_count + :delta", nativeQuery = true)
+    void increment(@Param("environment") String environment,
+                   @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("status") String status,
+                   @Param("delta") long delta);
+
+    // Returns one [status, sum] row per status; the filters are optional
+    @Query("select c.id.status, sum(c.runCount) from RunStatusCounter c " +
+            "where (:environment is null or c.id.environment = :environment) " +
+            "and (cast(:from as LocalDateTime) is null or c.id.bucketStart >= :from) " +
+            "and (cast(:to as LocalDateTime) is null or c.id.bucketStart < :to) " +
+            "group by c.id.status")
+    List<Object[]> sumByStatus(@Param("environment") String environment,
+                               @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to);
+
+    // One-off seeding of the counters from the existing run history
+    @Modifying
+    @Query(value = "insert into run_status_counter (environment, bucket_start, status, run_count) " +
+            "select coalesce(environment, ''), date_format(start_time, '%Y-%m-%d %H:00:00'), status, count(*) " +
+            "from test_run where start_time is not null and status is not null " +
+            "group by coalesce(environment, ''), date_format(start_time, '%Y-%m-%d %H:00:00'), status", nativeQuery = true)
+    int backfillFromTestRuns();
+}
@@ -0,0 +1,46 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface TestCaseResultRepository extends JpaRepository<TestCaseResult, UUID>, BatchInsertRepository<TestCaseResult> {
+
+    List<TestCaseResult> findByRunIdOrderByTestName(UUID runId);
+
+    List<TestCaseResult> findByRunIdIn(Collection<UUID> runIds);
+
+    boolean existsByScreenshotPath(String screenshotPath);
+
+    @Query("select distinct r.runId from TestCaseResult r where r.runId in :runIds")
+    List<UUID> findRunIdsWithResults(@Param("runIds") Collection<UUID> runIds);
+
+    // Clears earlier results of runs whose result is being re-applied (redelivery or a repeated PUT)
+    @Modifying
+    @Query("delete from TestCaseResult r where r.runId in :runIds")
+    int deleteByRunIdIn(@Param("runIds") Collection<UUID> runIds);
+
+    // Null filters are ignored; the Pageable decides the order (slowest or most recent first) and the limit
+    @Query("select r from TestCaseResult r where (:testName is null or r.testName = :testName) " +
+            "and (:status is null or r.status = :status) " +
+            "and (:environment is null or r.environment = :environment) " +
+            "and (:minDurationMs is null or r.durationMs >= :minDurationMs) " +
+            "and (cast(:from as LocalDateTime) is null or r.recordedAt >= :from) " +
+            "and (cast(:to as LocalDateTime) is null or r.recordedAt < :to)")
+    List<TestCaseResult> search(@Param("testName") String testName,
+                                @Param("status") TestRunStatus status,
+                                @Param("environment") String environment,
+                                @Param("minDurationMs") Long minDurationMs,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to,
+                                Pageable pageable);
+}
@@ -0,0 +1,52 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.TestDurationRollup;
+import com.example.test_management_api.model.TestDurationRollupId;
+import com.example.test_management_api.model.enums.RollupGranularity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface TestDurationRollupRepository extends JpaRepository<TestDurationRollup, TestDurationRollupId> {
+
+    // Rows are locked in key order so concurrent batches touching the same tests cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from TestDurationRollup r where r.id in :ids " +
+            "order by r.id.granularity, r.id.bucketStart, r.id.testName, r.id.environment")
+    List<TestDurationRollup> lockAll(@Param("ids") Collection<TestDurationRollupId> ids);
+
+    // Creates an empty rollup row unless another transaction got there first
+    @Modifying
+    @Query(value = "insert ignore into test_duration_rollup (granularity, bucket_start, test_name, environment, " +
+            "run_count, fail_count, flaky_count, retry_count, total_duration_ms) " +
+            "values (:granularity, :bucketStart, :testName, :environment, 0, 0, 0, 0, 0)", nativeQuery = true)
+    void insertIfAbsent(@Param("granularity") String granularity,
+                        @Param("bucketStart") LocalDateTime bucketStart,
+                        @Param("testName") String testName,
+                        @Param("environment") String environment);
+
+    @Query("select r from TestDurationRollup r where r.id.granularity = :granularity and r.id.testName = :testName " +
+            "and (:environment is null or r.id.environment = :environment) " +
+            "and r.id.bucketStart >= :from and r.id.bucketStart < :to " +
+            "order by r.id.bucketStart")
+    List<TestDurationRollup> findTrend(@Param("granularity") RollupGranularity granularity,
+                                       @Param("testName") String testName,
+                                       @Param("environment") String environment,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+
+    @Query("select r from TestDurationRollup r where r.id.granularity = :granularity " +
+            "and (:environment is null or r.id.environment = :environment) " +
+            "and r.id.bucketStart >= :from and r.id.bucketStart < :to")
+    List<TestDurationRollup> findWindow(@Param("granularity") RollupGranularity granularity,
+                                        @Param("environment") String environment,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+}
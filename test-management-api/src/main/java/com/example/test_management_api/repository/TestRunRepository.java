@@ -1,16 +1,86 @@
 package com.example.test_management_api.repository;
 
+import com.example.test_management_api.dtos.TestRunListItem;
 import com.example.test_management_api.model.TestRun;
 import com.example.test_management_api.model.enums.TestRunStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface TestRunRepository extends JpaRepository<TestRun, UUID> {
-    List<TestRun> findByStatusAndEnvironment(TestRunStatus status, String environment);
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
-    List<TestRun> findByStatus(TestRunStatus status);
+public interface TestRunRepository extends JpaRepository<TestRun, UUID>, BatchInsertRepository<TestRun> {
+    // --- Keyset pagination, newest first, ordered by (startTime, id) ---
+    // The filters are optional: a null parameter turns its condition off.
+    // Both page queries return TestRunListItem, so they never read the TEXT columns and walk the indexes declared on TestRun.
 
-    List<TestRun> findByEnvironment(String environment);
+    String LIST_ITEM_SELECT = "select new com.example.test_management_api.dtos.TestRunListItem(" +
+            "t.id, t.status, t.startTime, t.endTime, t.reportUrl, t.environment, t.tags, t.failedTestCount) " +
+            "from TestRun t ";
+
+    @Query(LIST_ITEM_SELECT +
+            "where (:status is null or t.status = :status) " +
+            "and (:environment is null or t.environment = :environment) " +
+            "order by t.startTime desc, t.id desc")
+    List<TestRunListItem> findFirstPage(@Param("status") TestRunStatus status,
+                                @Param("environment") String environment,
+                                Pageable pageable);
+
+    @Query(LIST_ITEM_SELECT +
+            "where (:status is null or t.status = :status) " +
+            "and (:environment is null or t.environment = :environment) " +
+            "and (t.startTime < :startTime or (t.startTime = :startTime and t.id < :id)) " +
+            "order by t.startTime desc, t.id desc")
+    List<TestRunListItem> findPageAfter(@Param("status") TestRunStatus status,
+                                @Param("environment") String environment,
+                                @Param("startTime") LocalDateTime startTime,
+                                @Param("id") UUID id,
+                                Pageable pageable);
+
+    // Integer.MIN_VALUE makes the MySQL driver stream rows instead of buffering the whole result set
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from TestRun t " +
+            "where (:status is null or t.status = :status) " +
+            "and (:environment is null or t.environment = :environment) " +
+            "order by t.startTime desc, t.id desc")
+    Stream<TestRun> streamAll(@Param("status") TestRunStatus status,
+                              @Param("environment") String environment);
+
+    // --- Retention ---
+
+    @Query("select distinct t.environment from TestRun t")
+    List<String> findDistinctEnvironments();
+
+    // Runs about to change status (results, shards, cancel), locked so only one transaction at a time moves them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from TestRun r where r.id in :ids order by r.id")
+    List<TestRun> lockAllById(@Param("ids") Collection<UUID> ids);
+
+    // Oldest runs of an environment, locked for archiving; SKIP LOCKED lets concurrent archivers take different chunks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select t from TestRun t where t.environment = :environment and t.startTime < :cutoff order by t.startTime")
+    List<TestRun> lockRunsToArchive(@Param("environment") String environment,
+                                    @Param("cutoff") LocalDateTime cutoff,
+                                    Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select t from TestRun t where t.environment is null and t.startTime < :cutoff order by t.startTime")
+    List<TestRun> lockRunsWithoutEnvironmentToArchive(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 }
@@ -0,0 +1,34 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.TestRunShard;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface TestRunShardRepository extends JpaRepository<TestRunShard, UUID>, BatchInsertRepository<TestRunShard> {
+
+    // Locking read, so it sees shards committed by other transactions since ours started
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from TestRunShard s where s.runId in :runIds order by s.runId, s.shardIndex")
+    List<TestRunShard> lockByRunIdIn(@Param("runIds") Collection<UUID> runIds);
+
+    // Shards of unfinished runs that were planned before the cutoff and have not reported yet
+    @Query("select s from TestRunShard s where s.status = com.example.test_management_api.model.enums.TestRunStatus.SCHEDULED " +
+            "and s.plannedAt < :cutoff and s.runId in (select r.id from TestRun r where r.status in :statuses) " +
+            "order by s.runId, s.shardIndex")
+    List<TestRunShard> findPendingShardsPlannedBefore(@Param("statuses") Collection<TestRunStatus> statuses,
+                                                      @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("delete from TestRunShard s where s.runId in :runIds")
+    int deleteByRunIdIn(@Param("runIds") Collection<UUID> runIds);
+}
@@ -0,0 +1,79 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.model.OutboxMessage;
+import com.example.test_management_api.repository.OutboxMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Background half of the transactional outbox: moves committed messages to RabbitMQ in confirmed batches.
+ * Request threads never wait for the broker; if it is slow or down, messages simply stay in the table
+ * and are retried with exponential backoff.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final RabbitMQProducer rabbitMQProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxBackoffMs;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository,
+                       RabbitMQProducer rabbitMQProducer,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.max-backoff-ms:60000}") long maxBackoffMs) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.rabbitMQProducer = rabbitMQProducer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        // Keep draining while full batches come back, so a backlog clears without waiting for the next tick
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> relayBatch()))) {
+            log.debug("Outbox batch relayed, checking for more");
+        }
+    }
+
+    /**
+     * Publishes one batch and deletes it, or records the failure for a later retry.
+     * @return true when a full batch was published and more messages may be waiting.
+     */
+    private boolean relayBatch() {
+        List<OutboxMessage> batch = outboxMessageRepository.lockDueMessages(LocalDateTime.now(), batchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        try {
+            rabbitMQProducer.publishConfirmed(batch);
+        } catch (Exception e) {
+            log.warn("Could not publish {} outbox messages, will retry: {}", batch.size(), e.getMessage());
+            for (OutboxMessage message : batch) {
+                message.setAttempts(message.getAttempts() + 1);
+                message.setNextAttemptAt(LocalDateTime.now().plusNanos(backoffMs(message.getAttempts()) * 1_000_000));
+                message.setLastError(e.getMessage());
+            }
+            // Dirty entities are written back when the transaction commits
+            return false;
+        }
+        outboxMessageRepository.deleteAllInBatch(batch);
+        return batch.size() == batchSize;
+    }
+
+    private long backoffMs(int attempts) {
+        // 1s, 2s, 4s, ... capped at maxBackoffMs
+        return Math.min(maxBackoffMs, 1000L << Math.min(attempts - 1, 20));
+    }
+}
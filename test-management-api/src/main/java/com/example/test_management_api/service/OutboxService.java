@@ -0,0 +1,84 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.model.OutboxMessage;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.TimeOrderedUuid;
+import com.example.test_management_api.model.enums.RunPriority;
+import com.example.test_management_api.repository.OutboxMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Write side of the transactional outbox.
+ * Must be called inside the transaction that saves the runs, so the job exists exactly when the run does.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final MessageConverter messageConverter;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchangeName;
+
+    @Value("${rabbitmq.routing.key}")
+    private String routingKey;
+
+    // High-priority runs are routed to their own queue, which workers consume with reserved capacity
+    @Value("${rabbitmq.routing.high-key}")
+    private String highPriorityRoutingKey;
+
+    @Value("${rabbitmq.cancel.exchange.name}")
+    private String cancelExchangeName;
+
+    public void enqueueTestRunJob(TestRun testRun) {
+        outboxMessageRepository.save(toOutboxMessage(testRun, exchangeName, jobRoutingKey(testRun)));
+    }
+
+    public void enqueueTestRunJobs(List<TestRun> testRuns) {
+        outboxMessageRepository.insertAll(testRuns.stream()
+                .map(testRun -> toOutboxMessage(testRun, exchangeName, jobRoutingKey(testRun)))
+                .toList());
+    }
+
+    /**
+     * Drops the run's job if the relay has not published it yet, so a cancelled run never reaches a worker.
+     * Returns false if the job is already on its way.
+     */
+    public boolean discardTestRunJob(TestRun testRun) {
+        return outboxMessageRepository.deleteUnpublished(testRun.getId(), exchangeName) > 0;
+    }
+
+    // The cancelled run itself is the signal; the fanout exchange ignores the routing key
+    public void enqueueCancelSignal(TestRun testRun) {
+        outboxMessageRepository.save(toOutboxMessage(testRun, cancelExchangeName, ""));
+    }
+
+    private String jobRoutingKey(TestRun testRun) {
+        return testRun.getPriority() == RunPriority.HIGH ? highPriorityRoutingKey : routingKey;
+    }
+
+    private OutboxMessage toOutboxMessage(TestRun testRun, String exchange, String key) {
+        // Same JSON the RabbitTemplate would have produced for the TestRun
+        byte[] body = messageConverter.toMessage(testRun, new MessageProperties()).getBody();
+        LocalDateTime now = LocalDateTime.now();
+
+        OutboxMessage message = new OutboxMessage();
+        message.setId(TimeOrderedUuid.next());
+        message.setAggregateId(testRun.getId());
+        message.setExchange(exchange);
+        message.setRoutingKey(key);
+        message.setPayload(new String(body, StandardCharsets.UTF_8));
+        message.setCreatedAt(now);
+        message.setNextAttemptAt(now);
+        return message;
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.test_management_api.service;
 
-import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.OutboxMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 @Service
 @Slf4j // Creates the 'log' variable
 @RequiredArgsConstructor // Creates a constructor for all 'final' fields
@@ -15,24 +22,44 @@ public class RabbitMQProducer {
     // This is now final, so RequiredArgsConstructor will inject it
     private final RabbitTemplate rabbitTemplate;
 
-    @Value("${rabbitmq.exchange.name}")
-    private String exchangeName;
-
-    @Value("${rabbitmq.routing.key}")
-    private String routingKey;
+    // How many messages to publish before waiting for the broker to confirm them
+    @Value("${rabbitmq.publisher.confirm-batch-size:100}")
+    private int confirmBatchSize;
 
-    // The @Autowired constructor is no longer needed
+    @Value("${rabbitmq.publisher.confirm-timeout-ms:10000}")
+    private long confirmTimeoutMs;
 
-    public void sendTestRunJob(TestRun testRun) {
-        // The 'log' variable will now be found
-        log.info("Sending job to RabbitMQ: Run ID {}", testRun.getId());
+    /**
+     * Publishes outbox messages on a single channel, waiting for publisher confirms once per batch
+     * instead of paying a broker round trip per message.
+     * Throws if the broker nacks or does not confirm in time; the caller keeps the messages and retries.
+     * Needs spring.rabbitmq.publisher-confirm-type=simple.
+     */
+    public void publishConfirmed(List<OutboxMessage> messages) {
+        rabbitTemplate.invoke(operations -> {
+            int unconfirmed = 0;
+            for (OutboxMessage outboxMessage : messages) {
+                operations.send(outboxMessage.getExchange(), outboxMessage.getRoutingKey(), toAmqpMessage(outboxMessage));
+                if (++unconfirmed == confirmBatchSize) {
+                    operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                    unconfirmed = 0;
+                }
+            }
+            if (unconfirmed > 0) {
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            }
+            return null;
+        });
 
-        rabbitTemplate.convertAndSend(
-                exchangeName,
-                routingKey,
-                testRun // Send the entire TestRun object as JSON
-        );
+        log.info("{} messages confirmed by the broker", messages.size());
+    }
 
-        log.info("Job sent successfully for Run ID {}", testRun.getId());
+    private Message toAmqpMessage(OutboxMessage outboxMessage) {
+        return MessageBuilder.withBody(outboxMessage.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(outboxMessage.getId().toString())
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.example.test_management_api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Finds the report files the workers write to the shared reports volume, and picks the pre-compressed copy
+ * ({@code .br}, then {@code .gz}) a client accepts when one is there and at least as new as the report.
+ */
+@Service
+public class ReportFileService {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final Path reportsDir;
+
+    public ReportFileService(@Value("${reports.dir:reports}") String reportsDir) {
+        this.reportsDir = Paths.get(reportsDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @param relativePath   path under the reports directory, e.g. {@code run-<id>.html} or {@code screenshots/ab/ab….png}
+     * @param acceptEncoding the request's Accept-Encoding header, may be null
+     */
+    public Optional<ReportFile> resolve(String relativePath, String acceptEncoding) {
+        String trimmed = relativePath == null ? "" : relativePath.replaceFirst("^/+", "");
+        if (trimmed.isEmpty()) {
+            return Optional.empty();
+        }
+        Path file = reportsDir.resolve(trimmed).normalize();
+        // Never serve anything outside the reports directory
+        if (!file.startsWith(reportsDir)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes original = attributes(file);
+        if (original == null || !original.isRegularFile()) {
+            return Optional.empty();
+        }
+        MediaType contentType = contentType(file.getFileName().toString());
+        long lastModified = original.lastModifiedTime().toMillis();
+
+        for (String encoding : new String[]{"br", "gzip"}) {
+            if (!accepts(acceptEncoding, encoding)) {
+                continue;
+            }
+            Path variant = file.resolveSibling(file.getFileName() + (encoding.equals("br") ? ".br" : ".gz"));
+            BasicFileAttributes encoded = attributes(variant);
+            // An older copy belongs to an earlier version of the report (e.g. a redelivered run)
+            if (encoded != null && encoded.isRegularFile() && encoded.lastModifiedTime().toMillis() >= lastModified) {
+                return Optional.of(new ReportFile(variant, contentType, encoding, encoded.size(), lastModified,
+                        etag(encoded.size(), encoded.lastModifiedTime().toMillis(), encoding)));
+            }
+        }
+        return Optional.of(new ReportFile(file, contentType, null, original.size(), lastModified,
+                etag(original.size(), lastModified, null)));
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Tokens like "gzip, deflate, br;q=0.5"; a q of 0 means "not acceptable"
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals(encoding) && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static MediaType contentType(String filename) {
+        if (filename.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        MediaType type = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        // The workers write text as UTF-8
+        return type.getType().equals("text") ? new MediaType(type, StandardCharsets.UTF_8) : type;
+    }
+
+    // Strong validator per representation: the gzip copy is a different byte sequence than the report itself
+    private static String etag(long size, long lastModified, String encoding) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified)
+                + (encoding != null ? "-" + encoding : "") + "\"";
+    }
+
+    /**
+     * The file to send: the report itself, or its compressed copy when {@code contentEncoding} is set.
+     * {@code lastModified} is the report's, so it means the same whichever copy is sent.
+     */
+    public record ReportFile(Path path, MediaType contentType, String contentEncoding, long length,
+                             long lastModified, String etag) {
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.config.CacheConfig;
+import com.example.test_management_api.config.RetentionProperties;
+import com.example.test_management_api.dtos.ArchivedRunDto;
+import com.example.test_management_api.model.ArchivedRun;
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.repository.ArchivedRunRepository;
+import com.example.test_management_api.repository.TestCaseResultRepository;
+import com.example.test_management_api.repository.TestRunRepository;
+import com.example.test_management_api.repository.TestRunShardRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves runs past their environment's retention period out of the database into gzip NDJSON segment files,
+ * one chunk per transaction, and deletes their report files. Archived runs can be read back or rehydrated.
+ */
+@Service
+@Slf4j
+public class RetentionService {
+
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // HTML reports are named report-<id>-<suffix>.html; the CSV written alongside shares the report-<id>- prefix
+    private static final Pattern HTML_REPORT = Pattern.compile("report-(.+)-[^-]+\\.html");
+    // Run summary reports: run-<id>.html, or one per shard (run-<id>-shard-<n>.html) of which the run links the first
+    private static final Pattern RUN_REPORT = Pattern.compile("run-([0-9a-f-]{36})(-shard-\\d+)?\\.html");
+    // Content-addressed screenshots (reports/screenshots/<xx>/<sha-256>.png), shared by every result with that image
+    private static final Pattern SHARED_SCREENSHOT = Pattern.compile("([0-9a-f]{64})\\.png");
+
+    private final RetentionProperties properties;
+    private final TestRunRepository testRunRepository;
+    private final TestCaseResultRepository testCaseResultRepository;
+    private final ArchivedRunRepository archivedRunRepository;
+    private final TestRunShardRepository testRunShardRepository;
+    private final RunSummaryService runSummaryService;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter lineWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public RetentionService(RetentionProperties properties,
+                            TestRunRepository testRunRepository,
+                            TestCaseResultRepository testCaseResultRepository,
+                            ArchivedRunRepository archivedRunRepository,
+                            TestRunShardRepository testRunShardRepository,
+                            RunSummaryService runSummaryService,
+                            CacheManager cacheManager,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.testRunRepository = testRunRepository;
+        this.testCaseResultRepository = testCaseResultRepository;
+        this.archivedRunRepository = archivedRunRepository;
+        this.testRunShardRepository = testRunShardRepository;
+        this.runSummaryService = runSummaryService;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+        this.lineWriter = objectMapper.writerFor(ArchivedRunDto.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${retention.cron:0 30 3 * * *}")
+    public void applyRetention() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (String environment : testRunRepository.findDistinctEnvironments()) {
+            int days = properties.daysFor(environment);
+            if (days <= 0) {
+                continue;
+            }
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(days);
+            int total = 0;
+            int archived;
+            do {
+                archived = archiveChunk(environment, cutoff);
+                total += archived;
+            } while (archived == properties.getChunkSize());
+            if (total > 0) {
+                log.info("Archived {} runs of environment '{}' started before {}", total, environment, cutoff);
+            }
+        }
+    }
+
+    /**
+     * Archives up to chunk-size runs: the segment is written while the rows are locked and the rows are deleted
+     * in the same transaction, so a failure either keeps the runs or leaves them archived, never neither.
+     * @return the number of runs archived.
+     */
+    int archiveChunk(String environment, LocalDateTime cutoff) {
+        String segment = segmentName(environment);
+        Path segmentPath = Paths.get(properties.getArchiveDir()).resolve(segment);
+        List<String> artifacts = new ArrayList<>();
+
+        Integer archived;
+        try {
+            archived = transactionTemplate.execute(status -> {
+                PageRequest chunk = PageRequest.of(0, properties.getChunkSize());
+                List<TestRun> runs = environment != null
+                        ? testRunRepository.lockRunsToArchive(environment, cutoff, chunk)
+                        : testRunRepository.lockRunsWithoutEnvironmentToArchive(cutoff, chunk);
+                if (runs.isEmpty()) {
+                    return 0;
+                }
+                List<UUID> runIds = runs.stream().map(TestRun::getId).toList();
+                Map<UUID, List<TestCaseResult>> resultsByRun = testCaseResultRepository.findByRunIdIn(runIds).stream()
+                        .collect(Collectors.groupingBy(TestCaseResult::getRunId));
+
+                writeSegment(segmentPath, runs, resultsByRun);
+
+                LocalDateTime now = LocalDateTime.now();
+                archivedRunRepository.insertAll(runs.stream()
+                        .map(run -> new ArchivedRun(run.getId(), run.getEnvironment(), run.getStartTime(), segment, now))
+                        .toList());
+                testCaseResultRepository.deleteByRunIdIn(runIds);
+                testRunShardRepository.deleteByRunIdIn(runIds);
+                testRunRepository.deleteAllByIdInBatch(runIds);
+                runSummaryService.recordRemoved(runs);
+
+                Cache cache = cacheManager.getCache(CacheConfig.TEST_RUNS_CACHE);
+                for (TestRun run : runs) {
+                    if (cache != null) {
+                        cache.evict(run.getId());
+                    }
+                    collectArtifacts(artifacts, run.getReportUrl(), run.getScreenshotPath());
+                    for (TestCaseResult result : resultsByRun.getOrDefault(run.getId(), List.of())) {
+                        collectArtifacts(artifacts, result.getReportUrl(), result.getScreenshotPath());
+                    }
+                }
+                return runs.size();
+            });
+        } catch (RuntimeException e) {
+            // The runs are still in the database, so the half-written or orphaned segment must go
+            deleteQuietly(segmentPath);
+            throw e;
+        }
+
+        // Only delete files once the rows that point at them are gone for good
+        artifacts.forEach(this::pruneArtifact);
+        return archived != null ? archived : 0;
+    }
+
+    /**
+     * Reads an archived run back from its segment without restoring it.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ArchivedRunDto> findArchivedRun(UUID runId) {
+        return archivedRunRepository.findById(runId).map(entry -> readFromSegment(entry.getSegment(), runId));
+    }
+
+    /**
+     * Puts an archived run (and its per-test results) back into the database.
+     * It stays there until the next retention pass finds it past its retention period again.
+     */
+    @Transactional
+    public Optional<TestRun> rehydrate(UUID runId) {
+        Optional<ArchivedRun> entry = archivedRunRepository.findById(runId);
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+        ArchivedRunDto archived = readFromSegment(entry.get().getSegment(), runId);
+        TestRun run = archived.getRun();
+        testRunRepository.insertAll(List.of(run));
+        if (archived.getTestCaseResults() != null) {
+            testCaseResultRepository.insertAll(archived.getTestCaseResults());
+        }
+        runSummaryService.recordCreated(run);
+        archivedRunRepository.delete(entry.get());
+        log.info("Rehydrated run {} from {}", runId, entry.get().getSegment());
+        return Optional.of(run);
+    }
+
+    private void writeSegment(Path segmentPath, List<TestRun> runs, Map<UUID, List<TestCaseResult>> resultsByRun) {
+        try {
+            Files.createDirectories(segmentPath.getParent());
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(segmentPath)), StandardCharsets.UTF_8))) {
+                for (TestRun run : runs) {
+                    writer.write(lineWriter.writeValueAsString(
+                            new ArchivedRunDto(run, resultsByRun.getOrDefault(run.getId(), List.of()))));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive segment " + segmentPath, e);
+        }
+    }
+
+    private ArchivedRunDto readFromSegment(String segment, UUID runId) {
+        Path segmentPath = Paths.get(properties.getArchiveDir()).resolve(segment);
+        String id = runId.toString();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segmentPath)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Cheap text check first; only the matching line is parsed
+                if (line.contains(id)) {
+                    ArchivedRunDto archived = objectMapper.readValue(line, ArchivedRunDto.class);
+                    if (runId.equals(archived.getRun().getId())) {
+                        return archived;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive segment " + segmentPath, e);
+        }
+        throw new IllegalStateException("Run " + runId + " is not in archive segment " + segment);
+    }
+
+    // e.g. QA/2024-05/runs-20240501-033000-1a2b3c4d.ndjson.gz
+    private static String segmentName(String environment) {
+        String directory = environment != null ? environment.replaceAll("[^A-Za-z0-9_-]", "_") : "_none";
+        LocalDateTime now = LocalDateTime.now();
+        return directory + "/" + now.getYear() + "-" + String.format("%02d", now.getMonthValue()) + "/runs-"
+                + now.format(SEGMENT_TIME) + "-" + UUID.randomUUID().toString().substring(0, 8) + ".ndjson.gz";
+    }
+
+    private static void collectArtifacts(List<String> artifacts, String... paths) {
+        for (String path : paths) {
+            if (path != null && !path.isBlank() && !path.contains("://")) {
+                artifacts.add(path);
+            }
+        }
+    }
+
+    private void pruneArtifact(String artifact) {
+        Path base = Paths.get(properties.getArtifactsBaseDir()).toAbsolutePath().normalize();
+        Path file = base.resolve(artifact).toAbsolutePath().normalize();
+        // Never follow a stored path outside the reports area
+        if (!file.startsWith(base.resolve("reports"))) {
+            log.warn("Not pruning artifact outside the reports directory: {}", artifact);
+            return;
+        }
+        Matcher screenshot = SHARED_SCREENSHOT.matcher(file.getFileName().toString());
+        if (screenshot.matches()) {
+            // Runs still kept may show the same image
+            if (testCaseResultRepository.existsByScreenshotPath(artifact)) {
+                return;
+            }
+            deleteQuietly(file);
+            deleteQuietly(file.resolveSibling(screenshot.group(1) + "-thumb.jpg"));
+            return;
+        }
+        deleteWithEncodings(file);
+
+        Matcher runReport = RUN_REPORT.matcher(file.getFileName().toString());
+        if (runReport.matches() && file.getParent() != null) {
+            // Shard reports and the results journals (CSV/JSONL) of the run and its shards
+            try (DirectoryStream<Path> siblings = Files.newDirectoryStream(file.getParent(),
+                    "run-" + runReport.group(1) + "{-shard-*.html,.csv,.jsonl,-shard-*.csv,-shard-*.jsonl}")) {
+                siblings.forEach(RetentionService::deleteWithEncodings);
+            } catch (IOException e) {
+                log.warn("Could not prune shard reports and journals next to {}: {}", file, e.getMessage());
+            }
+        }
+
+        // Per-test CSVs of runs from before the results journal
+        Matcher html = HTML_REPORT.matcher(file.getFileName().toString());
+        if (html.matches() && file.getParent() != null) {
+            try (DirectoryStream<Path> siblings = Files.newDirectoryStream(file.getParent(), "report-" + html.group(1) + "-*.csv")) {
+                siblings.forEach(RetentionService::deleteWithEncodings);
+            } catch (IOException e) {
+                log.warn("Could not prune CSV reports next to {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    // A report and the pre-compressed copies the API serves in its place
+    private static void deleteWithEncodings(Path file) {
+        deleteQuietly(file);
+        deleteQuietly(file.resolveSibling(file.getFileName() + ".gz"));
+        deleteQuietly(file.resolveSibling(file.getFileName() + ".br"));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
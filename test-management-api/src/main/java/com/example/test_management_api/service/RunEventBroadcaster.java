@@ -0,0 +1,118 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.RunEventDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans run change events out to Server-Sent Events clients.
+ * Every client has its own bounded buffer, drained by a small shared pool.
+ * A client whose buffer overflows is too slow to keep up and gets disconnected; the browser reconnects and reloads.
+ */
+@Service
+@Slf4j
+public class RunEventBroadcaster {
+
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final ThreadPoolTaskExecutor senderPool;
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    public RunEventBroadcaster(@Value("${runs.events.buffer-size:256}") int bufferSize,
+                               @Value("${runs.events.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${runs.events.sender-threads:2}") int senderThreads) {
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+
+        this.senderPool = new ThreadPoolTaskExecutor();
+        senderPool.setCorePoolSize(senderThreads);
+        senderPool.setMaxPoolSize(senderThreads);
+        senderPool.setThreadNamePrefix("SseSender-");
+        senderPool.initialize();
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMs));
+    }
+
+    // Package-private so tests can hand in an emitter they watch
+    SseEmitter subscribe(SseEmitter emitter) {
+        Client client = new Client(emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+        clients.add(client);
+        log.info("SSE client subscribed ({} connected)", clients.size());
+        return emitter;
+    }
+
+    // Runs after the surrounding transaction commits, so clients never see changes that were rolled back
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(RunEventDto event) {
+        for (Client client : clients) {
+            if (!client.queue.offer(event)) {
+                log.warn("Dropping slow SSE client: {} events pending", client.queue.size());
+                disconnect(client);
+                continue;
+            }
+            scheduleDrain(client);
+        }
+    }
+
+    private void scheduleDrain(Client client) {
+        // Only one drain task per client at a time keeps its events in order
+        if (client.draining.compareAndSet(false, true)) {
+            senderPool.execute(() -> drain(client));
+        }
+    }
+
+    private void drain(Client client) {
+        try {
+            RunEventDto event;
+            while ((event = client.queue.poll()) != null) {
+                client.emitter.send(SseEmitter.event().name("run").data(event));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE client went away: {}", e.getMessage());
+            disconnect(client);
+            return;
+        } finally {
+            client.draining.set(false);
+        }
+        // An event may have arrived after the last poll but before the flag was cleared
+        if (!client.queue.isEmpty()) {
+            scheduleDrain(client);
+        }
+    }
+
+    private void disconnect(Client client) {
+        if (clients.remove(client)) {
+            client.queue.clear();
+            client.emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.forEach(this::disconnect);
+        senderPool.shutdown();
+    }
+
+    private record Client(SseEmitter emitter, BlockingQueue<RunEventDto> queue, AtomicBoolean draining) {
+        Client(SseEmitter emitter, BlockingQueue<RunEventDto> queue) {
+            this(emitter, queue, new AtomicBoolean());
+        }
+    }
+}
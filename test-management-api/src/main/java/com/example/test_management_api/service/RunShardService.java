@@ -0,0 +1,215 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.TestRunShard;
+import com.example.test_management_api.model.TimeOrderedUuid;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.TestRunRepository;
+import com.example.test_management_api.repository.TestRunShardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregator for sharded runs: workers report each shard separately, and the run gets its final status
+ * once all of its shards are in. Must be called inside the transaction that applies the results.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RunShardService {
+
+    private final TestRunRepository testRunRepository;
+    private final TestRunShardRepository testRunShardRepository;
+    private final TestCaseResultService testCaseResultService;
+    private final ShardReportIndexWriter shardReportIndexWriter;
+
+    /**
+     * Records the shard plans and results among the updates and returns the run-level updates to apply:
+     * the non-shard updates as they are, plus one combined update per run whose last shard just arrived.
+     * A plan creates a SCHEDULED row per shard, stamped with the time the run was split; a result fills in its row
+     * (a result from a worker that sent no plan creates the rows first). Repeated shards (redelivery), and shards of
+     * unknown, cancelled or already finished runs, are dropped; a real result replaces a timed-out stand-in.
+     */
+    public List<TestRunUpdateDto> collect(List<TestRunUpdateDto> updateDtos) {
+        List<TestRunUpdateDto> runUpdates = new ArrayList<>();
+        Map<UUID, Integer> shardCounts = new LinkedHashMap<>();
+        Map<String, TestRunUpdateDto> shardUpdates = new LinkedHashMap<>();
+        for (TestRunUpdateDto updateDto : updateDtos) {
+            if (!updateDto.isShardResult()) {
+                runUpdates.add(updateDto);
+            } else if (updateDto.getRunId() == null || updateDto.getShardCount() < 1) {
+                log.warn("Dropping shard result without a runId or shardCount");
+            } else {
+                shardCounts.putIfAbsent(updateDto.getRunId(), updateDto.getShardCount());
+                if (!updateDto.isShardPlan()) {
+                    shardUpdates.put(updateDto.getRunId() + "/" + updateDto.getShardIndex(), updateDto);
+                }
+            }
+        }
+        if (shardCounts.isEmpty()) {
+            return runUpdates;
+        }
+
+        // Locking the runs serializes shard bookkeeping per run, so exactly one transaction sees the last shard arrive
+        Map<UUID, TestRun> runsById = testRunRepository.lockAllById(shardCounts.keySet()).stream()
+                .collect(Collectors.toMap(TestRun::getId, run -> run));
+        Map<UUID, Map<Integer, TestRunShard>> shardsByRun = new HashMap<>();
+        for (TestRunShard shard : testRunShardRepository.lockByRunIdIn(runsById.keySet())) {
+            shardsByRun.computeIfAbsent(shard.getRunId(), id -> new HashMap<>()).put(shard.getShardIndex(), shard);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TestRunShard> plannedShards = new ArrayList<>();
+        shardCounts.forEach((runId, shardCount) -> {
+            TestRun testRun = runsById.get(runId);
+            if (testRun == null) {
+                log.warn("Dropping shards of unknown run {}", runId);
+            } else if (isUnfinished(testRun)) {
+                Map<Integer, TestRunShard> shards = shardsByRun.computeIfAbsent(runId, id -> new HashMap<>());
+                for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+                    if (!shards.containsKey(shardIndex)) {
+                        TestRunShard planned = planned(runId, shardIndex, shardCount, now);
+                        shards.put(shardIndex, planned);
+                        plannedShards.add(planned);
+                    }
+                }
+            }
+        });
+
+        List<TestRunUpdateDto> newShardUpdates = new ArrayList<>();
+        Set<UUID> touchedRunIds = new LinkedHashSet<>();
+        for (TestRunUpdateDto shardUpdate : shardUpdates.values()) {
+            TestRun testRun = runsById.get(shardUpdate.getRunId());
+            if (testRun == null) {
+                continue;
+            }
+            if (!isUnfinished(testRun)) {
+                log.info("Dropping shard {} of run {}, which is already {}", shardUpdate.getShardIndex(), testRun.getId(), testRun.getStatus());
+                continue;
+            }
+            TestRunShard shard = shardsByRun.get(testRun.getId()).get(shardUpdate.getShardIndex());
+            if (shard == null) {
+                log.warn("Dropping shard {} of run {}, which has only {} shards", shardUpdate.getShardIndex(), testRun.getId(),
+                        shardsByRun.get(testRun.getId()).size());
+                continue;
+            }
+            if (shard.getStatus() != TestRunStatus.SCHEDULED && !(shard.isTimedOut() && !shardUpdate.isTimedOut())) {
+                log.debug("Shard {} of run {} was recorded already", shardUpdate.getShardIndex(), testRun.getId());
+                continue;
+            }
+            if (shard.isTimedOut()) {
+                log.info("Shard {} of run {} reported after it had timed out", shardUpdate.getShardIndex(), testRun.getId());
+            }
+            // Pending rows read from the database are managed and written back at commit
+            report(shard, shardUpdate);
+            newShardUpdates.add(shardUpdate);
+            touchedRunIds.add(testRun.getId());
+        }
+        // After the rows above were changed: inserting flushes them and may clear the persistence context
+        if (!plannedShards.isEmpty()) {
+            testRunShardRepository.insertAll(plannedShards);
+        }
+        if (newShardUpdates.isEmpty()) {
+            return runUpdates;
+        }
+        testCaseResultService.append(newShardUpdates, runsById);
+
+        for (UUID runId : touchedRunIds) {
+            Collection<TestRunShard> shards = shardsByRun.get(runId).values();
+            long pending = shards.stream().filter(shard -> shard.getStatus() == TestRunStatus.SCHEDULED).count();
+            if (pending == 0) {
+                runUpdates.add(combine(runId, shards));
+            } else {
+                log.debug("Run {} has {} of {} shards", runId, shards.size() - pending, shards.size());
+            }
+        }
+        log.info("Recorded {} shard results for {} runs", newShardUpdates.size(), touchedRunIds.size());
+        return runUpdates;
+    }
+
+    /**
+     * Failed stand-in results for the shards of unfinished runs that were planned before the cutoff and have not
+     * reported (the worker running them died, or their messages were lost). Applied like any other shard results,
+     * they complete the run; a real result that still arrives before the run's last shard replaces its stand-in.
+     */
+    public List<TestRunUpdateDto> missingShards(LocalDateTime cutoff, long timeoutMinutes) {
+        List<TestRunUpdateDto> missing = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (TestRunShard shard : testRunShardRepository.findPendingShardsPlannedBefore(
+                List.of(TestRunStatus.SCHEDULED, TestRunStatus.RUNNING), cutoff)) {
+            TestRunUpdateDto shardUpdate = new TestRunUpdateDto();
+            shardUpdate.setRunId(shard.getRunId());
+            shardUpdate.setShardIndex(shard.getShardIndex());
+            shardUpdate.setShardCount(shard.getShardCount());
+            shardUpdate.setStatus(TestRunStatus.FAILED);
+            shardUpdate.setErrorMessage("Shard " + shard.getShardIndex() + " did not report within " + timeoutMinutes + " minutes");
+            shardUpdate.setEndTime(now);
+            shardUpdate.setTimedOut(true);
+            missing.add(shardUpdate);
+        }
+        return missing;
+    }
+
+    // The run fails if any shard failed; counts are summed and error messages listed in shard order.
+    // The run's report lists every shard and links their reports
+    private TestRunUpdateDto combine(UUID runId, Collection<TestRunShard> shards) {
+        List<TestRunShard> ordered = shards.stream().sorted(Comparator.comparingInt(TestRunShard::getShardIndex)).toList();
+        TestRunUpdateDto combined = new TestRunUpdateDto();
+        combined.setRunId(runId);
+        combined.setStatus(ordered.stream().anyMatch(shard -> shard.getStatus() == TestRunStatus.FAILED)
+                ? TestRunStatus.FAILED : TestRunStatus.COMPLETED);
+        combined.setFailedTestCount(ordered.stream()
+                .mapToInt(shard -> shard.getFailedTestCount() != null ? shard.getFailedTestCount() : 0).sum());
+        String errors = ordered.stream().map(TestRunShard::getErrorMessage).filter(Objects::nonNull)
+                .collect(Collectors.joining("\n"));
+        combined.setErrorMessage(errors.isEmpty() ? null : errors);
+        String reportUrl = shardReportIndexWriter.write(runId, combined.getStatus(), ordered);
+        combined.setReportUrl(reportUrl != null ? reportUrl
+                : ordered.stream().map(TestRunShard::getReportUrl).filter(Objects::nonNull).findFirst().orElse(null));
+        combined.setScreenshotPath(ordered.stream().map(TestRunShard::getScreenshotPath).filter(Objects::nonNull).findFirst().orElse(null));
+        combined.setEndTime(ordered.stream().map(TestRunShard::getEndTime).filter(Objects::nonNull)
+                .max(Comparator.naturalOrder()).orElse(LocalDateTime.now()));
+        return combined;
+    }
+
+    private static boolean isUnfinished(TestRun testRun) {
+        return testRun.getStatus() == TestRunStatus.SCHEDULED || testRun.getStatus() == TestRunStatus.RUNNING;
+    }
+
+    private static TestRunShard planned(UUID runId, int shardIndex, int shardCount, LocalDateTime plannedAt) {
+        TestRunShard shard = new TestRunShard();
+        shard.setId(TimeOrderedUuid.next());
+        shard.setRunId(runId);
+        shard.setShardIndex(shardIndex);
+        shard.setShardCount(shardCount);
+        shard.setStatus(TestRunStatus.SCHEDULED);
+        shard.setPlannedAt(plannedAt);
+        return shard;
+    }
+
+    private static void report(TestRunShard shard, TestRunUpdateDto shardUpdate) {
+        shard.setStatus(shardUpdate.getStatus());
+        shard.setFailedTestCount(shardUpdate.getFailedTestCount());
+        shard.setErrorMessage(shardUpdate.getErrorMessage());
+        shard.setReportUrl(shardUpdate.getReportUrl());
+        shard.setScreenshotPath(shardUpdate.getScreenshotPath());
+        shard.setEndTime(shardUpdate.getEndTime());
+        shard.setTimedOut(shardUpdate.isTimedOut());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.RunSummaryDto;
+import com.example.test_management_api.model.RunStatusCounterId;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.RunStatusCounterRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Maintains the per-status run counters behind GET /api/runs/summary.
+ * Callers must invoke it inside the same transaction that saves the run, so counters and runs never drift apart.
+ */
+@Service
+@RequiredArgsConstructor
+public class RunSummaryService {
+
+    // Counter rows are always updated in primary key order, so two transactions touching the same buckets
+    // wait for each other instead of deadlocking
+    private static final Comparator<RunStatusCounterId> KEY_ORDER = Comparator
+            .comparing(RunStatusCounterId::getEnvironment)
+            .thenComparing(RunStatusCounterId::getBucketStart)
+            .thenComparing(bucket -> bucket.getStatus().name());
+
+    private final RunStatusCounterRepository counterRepository;
+
+    public void recordCreated(TestRun testRun) {
+        adjust(testRun, testRun.getStatus(), 1);
+    }
+
+    // Batch variant: one counter update per (environment, hour) instead of one per run
+    public void recordCreated(List<TestRun> testRuns) {
+        Map<RunStatusCounterId, Long> deltas = new TreeMap<>(KEY_ORDER);
+        for (TestRun testRun : testRuns) {
+            addDelta(deltas, testRun, testRun.getStatus(), 1);
+        }
+        applyDeltas(deltas);
+    }
+
+    // Runs leaving the table (archived) stop being counted
+    public void recordRemoved(List<TestRun> testRuns) {
+        Map<RunStatusCounterId, Long> deltas = new TreeMap<>(KEY_ORDER);
+        for (TestRun testRun : testRuns) {
+            addDelta(deltas, testRun, testRun.getStatus(), -1);
+        }
+        applyDeltas(deltas);
+    }
+
+    public void recordStatusChange(TestRun testRun, TestRunStatus previousStatus) {
+        if (previousStatus == testRun.getStatus()) {
+            return;
+        }
+        Map<RunStatusCounterId, Long> deltas = new TreeMap<>(KEY_ORDER);
+        addDelta(deltas, testRun, previousStatus, -1);
+        addDelta(deltas, testRun, testRun.getStatus(), 1);
+        applyDeltas(deltas);
+    }
+
+    // Batch variant of recordStatusChange; previousStatuses is keyed by run id
+    public void recordStatusChanges(List<TestRun> testRuns, Map<UUID, TestRunStatus> previousStatuses) {
+        Map<RunStatusCounterId, Long> deltas = new TreeMap<>(KEY_ORDER);
+        for (TestRun testRun : testRuns) {
+            TestRunStatus previousStatus = previousStatuses.get(testRun.getId());
+            if (previousStatus == testRun.getStatus()) {
+                continue;
+            }
+            addDelta(deltas, testRun, previousStatus, -1);
+            addDelta(deltas, testRun, testRun.getStatus(), 1);
+        }
+        applyDeltas(deltas);
+    }
+
+    /**
+     * Adds delta runs of the given status to the counter bucket of the run's environment and start hour.
+     */
+    public void adjust(TestRun testRun, TestRunStatus status, long delta) {
+        if (status == null || testRun.getStartTime() == null) {
+            return;
+        }
+        counterRepository.increment(bucketEnvironment(testRun.getEnvironment()),
+                testRun.getStartTime().truncatedTo(ChronoUnit.HOURS), status.name(), delta);
+    }
+
+    /**
+     * Sums the counters. The window [from, to) is matched on run start time, at hourly resolution.
+     */
+    @Transactional(readOnly = true)
+    public RunSummaryDto getSummary(String environment, LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = counterRepository.sumByStatus(environment,
+                from != null ? from.truncatedTo(ChronoUnit.HOURS) : null,
+                to != null ? to.truncatedTo(ChronoUnit.HOURS) : null);
+
+        RunSummaryDto summary = new RunSummaryDto();
+        for (Object[] row : rows) {
+            TestRunStatus status = (TestRunStatus) row[0];
+            long count = ((Number) row[1]).longValue();
+            summary.setTotal(summary.getTotal() + count);
+            switch (status) {
+                case SCHEDULED -> summary.setScheduled(count);
+                case RUNNING -> summary.setRunning(count);
+                case COMPLETED -> summary.setCompleted(count);
+                case FAILED -> summary.setFailed(count);
+                case CANCELLED -> summary.setCancelled(count);
+            }
+        }
+        return summary;
+    }
+
+    private static void addDelta(Map<RunStatusCounterId, Long> deltas, TestRun testRun, TestRunStatus status, long delta) {
+        if (status == null || testRun.getStartTime() == null) {
+            return;
+        }
+        RunStatusCounterId bucket = new RunStatusCounterId(bucketEnvironment(testRun.getEnvironment()),
+                testRun.getStartTime().truncatedTo(ChronoUnit.HOURS), status);
+        deltas.merge(bucket, delta, Long::sum);
+    }
+
+    private void applyDeltas(Map<RunStatusCounterId, Long> deltas) {
+        deltas.forEach((bucket, delta) -> {
+            if (delta != 0) {
+                counterRepository.increment(bucket.getEnvironment(), bucket.getBucketStart(), bucket.getStatus().name(), delta);
+            }
+        });
+    }
+
+    private static String bucketEnvironment(String environment) {
+        return environment != null ? environment : "";
+    }
+}
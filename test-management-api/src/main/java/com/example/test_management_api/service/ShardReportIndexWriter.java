@@ -0,0 +1,88 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.model.TestRunShard;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Writes the report of a sharded run: {@code run-<id>.html} in the reports directory, one row per shard with its
+ * outcome and a link to the report its worker wrote. Same name and place as the report of an unsharded run,
+ * so the run links one report whichever way it was executed.
+ */
+@Service
+@Slf4j
+public class ShardReportIndexWriter {
+
+    private static final String REPORTS_PREFIX = "reports/";
+
+    private final Path reportsDir;
+
+    public ShardReportIndexWriter(@Value("${reports.dir:reports}") String reportsDir) {
+        this.reportsDir = Paths.get(reportsDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return the report's relative path for the dashboard, or null if it could not be written
+     */
+    public String write(UUID runId, TestRunStatus status, Collection<TestRunShard> shards) {
+        String filename = "run-" + runId + ".html";
+        Path destination = reportsDir.resolve(filename);
+        Path partial = reportsDir.resolve(filename + ".part");
+        try {
+            Files.createDirectories(reportsDir);
+            Files.writeString(partial, render(runId, status, shards), StandardCharsets.UTF_8);
+            // Moved into place in one go, so nobody opens a half-written report
+            Files.move(partial, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return REPORTS_PREFIX + filename;
+        } catch (IOException e) {
+            log.error("Could not write the shard report index for run {}: {}", runId, e.getMessage());
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // Nothing more to do, the next attempt overwrites it
+            }
+            return null;
+        }
+    }
+
+    private static String render(UUID runId, TestRunStatus status, Collection<TestRunShard> shards) {
+        StringBuilder html = new StringBuilder()
+                .append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"UTF-8\">\n")
+                .append("<title>Run ").append(runId).append("</title>\n</head>\n<body>\n")
+                .append("<h1>Run ").append(runId).append("</h1>\n")
+                .append("<p>Status: ").append(status).append(", ").append(shards.size()).append(" shards, generated ")
+                .append(LocalDateTime.now()).append("</p>\n")
+                .append("<table>\n<tr><th>Shard</th><th>Status</th><th>Failed tests</th><th>Errors</th><th>Report</th></tr>\n");
+        shards.stream().sorted(Comparator.comparingInt(TestRunShard::getShardIndex)).forEach(shard -> {
+            html.append("<tr><td>").append(shard.getShardIndex() + 1).append(" of ").append(shard.getShardCount())
+                    .append("</td><td>").append(shard.getStatus())
+                    .append("</td><td>").append(shard.getFailedTestCount() != null ? shard.getFailedTestCount() : "")
+                    .append("</td><td>").append(shard.getErrorMessage() != null ? HtmlUtils.htmlEscape(shard.getErrorMessage()) : "")
+                    .append("</td><td>");
+            if (shard.getReportUrl() != null) {
+                html.append("<a href=\"").append(HtmlUtils.htmlEscape(link(shard.getReportUrl()))).append("\">report</a>");
+            }
+            html.append("</td></tr>\n");
+        });
+        return html.append("</table>\n</body>\n</html>\n").toString();
+    }
+
+    // Shard reports sit next to this one; anything else (e.g. an absolute URL) is linked as it is
+    private static String link(String reportUrl) {
+        return reportUrl.startsWith(REPORTS_PREFIX) ? reportUrl.substring(REPORTS_PREFIX.length()) : reportUrl;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Finishes sharded runs whose shards stop reporting: a shard that has not reported {@code runs.shards.timeout-minutes}
+ * after its run was split is recorded as failed, and the run gets its final status once no shard is left pending.
+ * The limit applies to each shard separately and covers its time in the queue as well as its execution.
+ */
+@Service
+@Slf4j
+public class ShardTimeoutSweeper {
+
+    private final RunShardService runShardService;
+    private final TestRunService testRunService;
+    private final long timeoutMinutes;
+
+    public ShardTimeoutSweeper(RunShardService runShardService,
+                               TestRunService testRunService,
+                               @Value("${runs.shards.timeout-minutes:30}") long timeoutMinutes) {
+        this.runShardService = runShardService;
+        this.testRunService = testRunService;
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    @Scheduled(fixedDelayString = "${runs.shards.sweep-interval-ms:60000}")
+    public void failMissingShards() {
+        List<TestRunUpdateDto> missing = runShardService.missingShards(
+                LocalDateTime.now().minusMinutes(timeoutMinutes), timeoutMinutes);
+        if (missing.isEmpty()) {
+            return;
+        }
+        log.warn("{} shards did not report within {} minutes, failing them", missing.size(), timeoutMinutes);
+        // Same path as shard results from workers: the runs are locked and completed once every shard is in
+        testRunService.applyTestRunUpdates(missing);
+    }
+}
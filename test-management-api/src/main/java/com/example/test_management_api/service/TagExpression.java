@@ -0,0 +1,135 @@
+package com.example.test_management_api.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The tag expression grammar the workers select tests with (their TagExpression; keep the two in step),
+ * parsed here to validate new runs and to see which tags a run selects on.
+ * <p>
+ * Grammar: {@code !} (or {@code not}) binds tightest, then {@code &} / {@code ,} / {@code and}, then {@code |} / {@code or};
+ * parentheses group. Words with only whitespace between them form one tag ("smoke test"). Case-insensitive.
+ */
+public final class TagExpression {
+
+    private final List<String> tokens;
+    private final Set<String> selectingTags = new HashSet<>();
+    private int position;
+
+    private TagExpression(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * The (lower-case) tags an expression selects tests by, i.e. every tag not under an odd number of negations:
+     * {@code "smoke | api"} and {@code "(smoke & ui)"} contain "smoke", {@code "api & !smoke"} does not.
+     *
+     * @throws IllegalArgumentException if the expression doesn't parse
+     */
+    public static Set<String> selectingTags(String expression) {
+        List<String> tokens = tokenize(expression == null ? "" : expression);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Empty tag expression");
+        }
+        TagExpression parser = new TagExpression(tokens);
+        parser.parseOr(false);
+        if (parser.position < tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + tokens.get(parser.position) + "' in tag expression: " + expression);
+        }
+        return parser.selectingTags;
+    }
+
+    private void parseOr(boolean negated) {
+        parseAnd(negated);
+        while (accept("|", "or")) {
+            parseAnd(negated);
+        }
+    }
+
+    private void parseAnd(boolean negated) {
+        parseNot(negated);
+        while (accept("&", ",", "and")) {
+            parseNot(negated);
+        }
+    }
+
+    private void parseNot(boolean negated) {
+        if (accept("!", "not")) {
+            parseNot(!negated);
+            return;
+        }
+        if (accept("(")) {
+            parseOr(negated);
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Missing ')' in tag expression");
+            }
+            return;
+        }
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Tag expression ends where a tag was expected");
+        }
+        String token = tokens.get(position);
+        if (isOperator(token)) {
+            throw new IllegalArgumentException("Expected a tag but found '" + token + "' in tag expression");
+        }
+        position++;
+        if (!negated) {
+            selectingTags.add(token);
+        }
+    }
+
+    private boolean accept(String... operators) {
+        if (position >= tokens.size()) {
+            return false;
+        }
+        for (String operator : operators) {
+            if (tokens.get(position).equals(operator)) {
+                position++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOperator(String token) {
+        return switch (token) {
+            case "|", "or", "&", ",", "and", "!", "not", "(", ")" -> true;
+            default -> false;
+        };
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (char c : expression.toLowerCase(Locale.ROOT).toCharArray()) {
+            if ("|&,!()".indexOf(c) >= 0 || Character.isWhitespace(c)) {
+                addWord(tokens, word);
+                if (!Character.isWhitespace(c)) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                word.append(c);
+            }
+        }
+        addWord(tokens, word);
+        return tokens;
+    }
+
+    // A word straight after another tag word continues that tag
+    private static void addWord(List<String> tokens, StringBuilder word) {
+        if (word.isEmpty()) {
+            return;
+        }
+        String current = word.toString();
+        word.setLength(0);
+        int last = tokens.size() - 1;
+        if (last >= 0 && !isOperator(current) && !isOperator(tokens.get(last))) {
+            tokens.set(last, tokens.get(last) + " " + current);
+        } else {
+            tokens.add(current);
+        }
+    }
+}
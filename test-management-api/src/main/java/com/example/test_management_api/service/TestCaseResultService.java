@@ -0,0 +1,121 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.TestCaseResultDto;
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.TimeOrderedUuid;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.TestCaseResultRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores and queries the per-test breakdown of runs.
+ * The record methods must be called inside the transaction that applies the run result.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TestCaseResultService {
+
+    private final TestCaseResultRepository testCaseResultRepository;
+    private final TestRollupService testRollupService;
+
+    @Value("${tests.results.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * Replaces the per-test results of the given runs with the ones in their updates, using batched inserts,
+     * and rolls them up for analytics. Runs whose update carries no per-test results are left untouched.
+     */
+    public void record(List<TestRun> testRuns, Map<UUID, TestRunUpdateDto> updatesById) {
+        List<UUID> replacedRunIds = new ArrayList<>();
+        List<TestCaseResult> rows = new ArrayList<>();
+        for (TestRun testRun : testRuns) {
+            List<TestCaseResultDto> results = updatesById.get(testRun.getId()).getTestCaseResults();
+            if (results == null || results.isEmpty()) {
+                continue;
+            }
+            replacedRunIds.add(testRun.getId());
+            for (TestCaseResultDto result : results) {
+                rows.add(toEntity(testRun, result, testRun.getEndTime()));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        // Runs that already had results were rolled up before; don't count a redelivered result twice
+        Set<UUID> alreadyRolledUp = new HashSet<>(testCaseResultRepository.findRunIdsWithResults(replacedRunIds));
+        testCaseResultRepository.deleteByRunIdIn(replacedRunIds);
+        testCaseResultRepository.insertAll(rows);
+        testRollupService.record(rows.stream().filter(row -> !alreadyRolledUp.contains(row.getRunId())).toList());
+        log.debug("Stored {} test case results for {} runs", rows.size(), replacedRunIds.size());
+    }
+
+    public void record(TestRun testRun, TestRunUpdateDto updateDto) {
+        record(List.of(testRun), Map.of(testRun.getId(), updateDto));
+    }
+
+    /**
+     * Adds the per-test results of newly reported shards. Each shard is recorded once (see RunShardService),
+     * so nothing is replaced; the results are stamped with the shard's end time.
+     */
+    public void append(List<TestRunUpdateDto> shardUpdates, Map<UUID, TestRun> runsById) {
+        List<TestCaseResult> rows = new ArrayList<>();
+        for (TestRunUpdateDto shardUpdate : shardUpdates) {
+            if (shardUpdate.getTestCaseResults() == null) {
+                continue;
+            }
+            TestRun testRun = runsById.get(shardUpdate.getRunId());
+            LocalDateTime recordedAt = shardUpdate.getEndTime() != null ? shardUpdate.getEndTime() : LocalDateTime.now();
+            for (TestCaseResultDto result : shardUpdate.getTestCaseResults()) {
+                rows.add(toEntity(testRun, result, recordedAt));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        testCaseResultRepository.insertAll(rows);
+        testRollupService.record(rows);
+        log.debug("Stored {} test case results from {} shards", rows.size(), shardUpdates.size());
+    }
+
+    @Transactional(readOnly = true)
+    public List<TestCaseResult> getForRun(UUID runId) {
+        return testCaseResultRepository.findByRunIdOrderByTestName(runId);
+    }
+
+    /**
+     * Finds test results across runs. With sort=duration the slowest come first, otherwise the most recent.
+     */
+    @Transactional(readOnly = true)
+    public List<TestCaseResult> search(String testName, TestRunStatus status, String environment, Long minDurationMs,
+                                       LocalDateTime from, LocalDateTime to, String sort, int limit) {
+        Sort order = "duration".equalsIgnoreCase(sort)
+                ? Sort.by(Sort.Direction.DESC, "durationMs")
+                : Sort.by(Sort.Direction.DESC, "recordedAt");
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        return testCaseResultRepository.search(testName, status, environment, minDurationMs, from, to,
+                PageRequest.of(0, pageSize, order));
+    }
+
+    private static TestCaseResult toEntity(TestRun testRun, TestCaseResultDto result, LocalDateTime recordedAt) {
+        return new TestCaseResult(TimeOrderedUuid.next(), testRun.getId(), result.getTestName(), result.getTags(),
+                testRun.getEnvironment(), result.getStatus(), result.getAttempts(), result.getDurationMs(),
+                result.getErrorMessage(), result.getReportUrl(), result.getScreenshotPath(), recordedAt);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.TestStatsDto;
+import com.example.test_management_api.model.DurationSketch;
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.TestDurationRollup;
+import com.example.test_management_api.model.TestDurationRollupId;
+import com.example.test_management_api.model.enums.RollupGranularity;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.TestDurationRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the hourly and daily per-test rollups behind /api/analytics and answers queries from them.
+ * record() must be called inside the transaction that stores the results it rolls up.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TestRollupService {
+
+    private static final Comparator<TestDurationRollupId> KEY_ORDER = Comparator
+            .comparing(TestDurationRollupId::getGranularity)
+            .thenComparing(TestDurationRollupId::getBucketStart)
+            .thenComparing(TestDurationRollupId::getTestName)
+            .thenComparing(TestDurationRollupId::getEnvironment);
+
+    private final TestDurationRollupRepository rollupRepository;
+
+    /**
+     * Folds new results into their rollup rows.
+     * The batch is aggregated in memory first, so each affected row is locked and updated once.
+     */
+    public void record(List<TestCaseResult> results) {
+        Map<TestDurationRollupId, Aggregate> deltas = new TreeMap<>(KEY_ORDER);
+        for (TestCaseResult result : results) {
+            LocalDateTime recordedAt = result.getRecordedAt() != null ? result.getRecordedAt() : LocalDateTime.now();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                TestDurationRollupId id = new TestDurationRollupId(granularity, granularity.bucketStart(recordedAt),
+                        result.getTestName(), bucketEnvironment(result.getEnvironment()));
+                deltas.computeIfAbsent(id, key -> new Aggregate()).add(result);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<TestDurationRollupId, TestDurationRollup> rows = lock(deltas.keySet());
+        if (rows.size() < deltas.size()) {
+            // First results of a new hour or day: create the missing rows, then lock them as well
+            Set<TestDurationRollupId> missing = deltas.keySet().stream()
+                    .filter(id -> !rows.containsKey(id))
+                    .collect(Collectors.toSet());
+            missing.forEach(id -> rollupRepository.insertIfAbsent(id.getGranularity().name(), id.getBucketStart(),
+                    id.getTestName(), id.getEnvironment()));
+            rows.putAll(lock(missing));
+        }
+
+        // Managed rows: the changes are flushed as batched updates at commit
+        deltas.forEach((id, delta) -> delta.addTo(rows.get(id)));
+        log.debug("Rolled {} test results into {} rollup rows", results.size(), deltas.size());
+    }
+
+    /**
+     * One point per bucket for a single test; without an environment the environments are merged per bucket.
+     */
+    @Transactional(readOnly = true)
+    public List<TestStatsDto> getTrend(String testName, String environment, RollupGranularity granularity,
+                                       LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, Aggregate> perBucket = new LinkedHashMap<>();
+        for (TestDurationRollup rollup : rollupRepository.findTrend(granularity, testName, environment,
+                granularity.bucketStart(from), to)) {
+            perBucket.computeIfAbsent(rollup.getId().getBucketStart(), bucket -> new Aggregate()).add(rollup);
+        }
+        List<TestStatsDto> points = new ArrayList<>();
+        perBucket.forEach((bucketStart, aggregate) -> points.add(aggregate.toStats(testName, environment, bucketStart)));
+        return points;
+    }
+
+    /**
+     * Totals per test over a window, ordered by the given criterion: flaky, failing or slowest.
+     */
+    @Transactional(readOnly = true)
+    public List<TestStatsDto> getTestStats(String environment, LocalDateTime from, LocalDateTime to,
+                                           String sort, int limit) {
+        // Daily rows are enough for anything longer than two days and there are 24 times fewer of them
+        RollupGranularity granularity = from.plusDays(2).isBefore(to) ? RollupGranularity.DAY : RollupGranularity.HOUR;
+
+        Map<String, Aggregate> perTest = new HashMap<>();
+        for (TestDurationRollup rollup : rollupRepository.findWindow(granularity, environment,
+                granularity.bucketStart(from), to)) {
+            perTest.computeIfAbsent(rollup.getId().getTestName(), name -> new Aggregate()).add(rollup);
+        }
+
+        Comparator<TestStatsDto> order = switch (sort == null ? "" : sort.toLowerCase()) {
+            case "failing" -> Comparator.comparingDouble(TestStatsDto::getFailRate);
+            case "slowest" -> Comparator.comparing(TestStatsDto::getP95DurationMs, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> Comparator.comparingDouble(TestStatsDto::getFlakeRate);
+        };
+        return perTest.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey(), environment, null))
+                .sorted(order.reversed().thenComparing(TestStatsDto::getTestName))
+                .limit(limit)
+                .toList();
+    }
+
+    private Map<TestDurationRollupId, TestDurationRollup> lock(Set<TestDurationRollupId> ids) {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return rollupRepository.lockAll(ids).stream()
+                .collect(Collectors.toMap(TestDurationRollup::getId, Function.identity(), (a, b) -> a, HashMap::new));
+    }
+
+    private static String bucketEnvironment(String environment) {
+        return environment != null ? environment : "";
+    }
+
+    // Running totals for one rollup key (or one query group) while a batch or a query is being folded together
+    private static final class Aggregate {
+        private long runs;
+        private long failures;
+        private long flaky;
+        private long retries;
+        private long totalDurationMs;
+        private final DurationSketch sketch = new DurationSketch();
+
+        void add(TestCaseResult result) {
+            runs++;
+            if (result.getStatus() == TestRunStatus.FAILED) {
+                failures++;
+            } else if (result.getAttempts() > 1) {
+                flaky++;
+            }
+            retries += Math.max(0, result.getAttempts() - 1);
+            if (result.getDurationMs() != null) {
+                totalDurationMs += result.getDurationMs();
+                sketch.add(result.getDurationMs());
+            }
+        }
+
+        void add(TestDurationRollup rollup) {
+            runs += rollup.getRunCount();
+            failures += rollup.getFailCount();
+            flaky += rollup.getFlakyCount();
+            retries += rollup.getRetryCount();
+            totalDurationMs += rollup.getTotalDurationMs();
+            sketch.merge(DurationSketch.fromBytes(rollup.getSketch()));
+        }
+
+        void addTo(TestDurationRollup rollup) {
+            rollup.setRunCount(rollup.getRunCount() + runs);
+            rollup.setFailCount(rollup.getFailCount() + failures);
+            rollup.setFlakyCount(rollup.getFlakyCount() + flaky);
+            rollup.setRetryCount(rollup.getRetryCount() + retries);
+            rollup.setTotalDurationMs(rollup.getTotalDurationMs() + totalDurationMs);
+            DurationSketch merged = DurationSketch.fromBytes(rollup.getSketch());
+            merged.merge(sketch);
+            rollup.setSketch(merged.toBytes());
+        }
+
+        TestStatsDto toStats(String testName, String environment, LocalDateTime bucketStart) {
+            TestStatsDto stats = new TestStatsDto();
+            stats.setTestName(testName);
+            stats.setEnvironment(environment);
+            stats.setBucketStart(bucketStart);
+            stats.setRuns(runs);
+            stats.setFailures(failures);
+            stats.setFlaky(flaky);
+            stats.setRetries(retries);
+            if (runs > 0) {
+                stats.setFailRate((double) failures / runs);
+                stats.setFlakeRate((double) flaky / runs);
+            }
+            if (sketch.getCount() > 0) {
+                stats.setAvgDurationMs(totalDurationMs / sketch.getCount());
+                stats.setP50DurationMs(sketch.quantile(0.50));
+                stats.setP95DurationMs(sketch.quantile(0.95));
+                stats.setP99DurationMs(sketch.quantile(0.99));
+            }
+            return stats;
+        }
+    }
+}
@@ -2,19 +2,27 @@ package com.example.test_management_api.service;
 
 
 import com.example.test_management_api.dtos.CreateTestRunRequestDto;
+import com.example.test_management_api.dtos.RunSummaryDto;
+import com.example.test_management_api.dtos.TestRunPageDto;
 import com.example.test_management_api.dtos.TestRunUpdateDto;
 import com.example.test_management_api.model.TestRun;
 import com.example.test_management_api.model.enums.TestRunStatus;
-import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface TestRunService {
 //    TestRun saveTestRun(TestRun testRun);
     TestRun createTestRun(CreateTestRunRequestDto requestDto);
+    List<TestRun> createTestRuns(List<CreateTestRunRequestDto> requestDtos);
     Optional<TestRun> findTestRun(UUID id);
     TestRun updateTestRunStatus(UUID id, TestRunUpdateDto updateDto);
-    List<TestRun> getAllTestsByCriteria(@RequestParam(required = false) TestRunStatus status, @RequestParam(required = false) String environment);
+    int applyTestRunUpdates(List<TestRunUpdateDto> updateDtos);
+    TestRun cancelTestRun(UUID id);
+    TestRunPageDto getTestRunPage(TestRunStatus status, String environment, String cursor, int size);
+    void streamTestRuns(TestRunStatus status, String environment, Consumer<TestRun> consumer);
+    RunSummaryDto getRunSummary(String environment, LocalDateTime from, LocalDateTime to);
 }
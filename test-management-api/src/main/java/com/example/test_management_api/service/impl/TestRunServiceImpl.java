@@ -1,91 +1,340 @@
 package com.example.test_management_api.service.impl;
 
 
+import com.example.test_management_api.config.CacheConfig;
 import com.example.test_management_api.dtos.CreateTestRunRequestDto;
+import com.example.test_management_api.dtos.RunEventDto;
+import com.example.test_management_api.dtos.RunSummaryDto;
+import com.example.test_management_api.dtos.TestRunCursor;
+import com.example.test_management_api.dtos.TestRunListItem;
+import com.example.test_management_api.dtos.TestRunPageDto;
 import com.example.test_management_api.dtos.TestRunUpdateDto;
 import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.TimeOrderedUuid;
+import com.example.test_management_api.model.enums.RunPriority;
 import com.example.test_management_api.model.enums.TestRunStatus;
 import com.example.test_management_api.repository.TestRunRepository;
+import com.example.test_management_api.service.OutboxService;
+import com.example.test_management_api.service.RunShardService;
+import com.example.test_management_api.service.RunSummaryService;
+import com.example.test_management_api.service.TagExpression;
+import com.example.test_management_api.service.TestCaseResultService;
 import com.example.test_management_api.service.TestRunService;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class TestRunServiceImpl implements TestRunService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestRunServiceImpl.class);
     private final TestRunRepository testRunRepository;
+    private final EntityManager entityManager;
+    private final RunSummaryService runSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OutboxService outboxService;
+    private final CacheManager cacheManager;
+    private final TestCaseResultService testCaseResultService;
+    private final RunShardService runShardService;
+
+    @Value("${runs.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${runs.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    // Runs with one of these tags, or in one of these environments, go through the high-priority lane
+    @Value("${runs.priority.high-tags:smoke}")
+    private List<String> highPriorityTags;
+
+    @Value("${runs.priority.high-environments:}")
+    private List<String> highPriorityEnvironments;
 //
 //    public TestRun saveTestRun(TestRun testRun){
 //        return testRunRepository.save(testRun);
 //    }
 
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.TEST_RUNS_CACHE, key = "#result.id")
     @Override
     public TestRun createTestRun(CreateTestRunRequestDto requestDto) {
+        TestRun testRun=newScheduledTestRun(requestDto);
+        LOGGER.info("Creating new TestRun for environment: {}", requestDto.getEnvironment());
+        TestRun savedTestRun = testRunRepository.save(testRun);
+        runSummaryService.recordCreated(savedTestRun);
+        // The job is published by OutboxRelay after this transaction commits
+        outboxService.enqueueTestRunJob(savedTestRun);
+        eventPublisher.publishEvent(RunEventDto.of(savedTestRun, null));
+        return savedTestRun;
+    }
+
+    /**
+     * Creates a whole matrix of runs in one transaction.
+     * The runs and their outbox messages are written with batched inserts, and the counters with one update per bucket.
+     */
+    @Transactional
+    @Override
+    public List<TestRun> createTestRuns(List<CreateTestRunRequestDto> requestDtos) {
+        if (requestDtos == null || requestDtos.isEmpty()) {
+            throw new IllegalArgumentException("A batch must contain at least one run");
+        }
+        if (requestDtos.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxBatchSize + " runs, got " + requestDtos.size());
+        }
+        // Every element is checked before anything is written, so a bad element rejects the whole batch
+        for (int i = 0; i < requestDtos.size(); i++) {
+            if (requestDtos.get(i) == null) {
+                throw new IllegalArgumentException("Run " + i + " of the batch is empty");
+            }
+        }
+        List<TestRun> testRuns = requestDtos.stream().map(this::newScheduledTestRun).toList();
+        LOGGER.info("Creating batch of {} TestRuns", testRuns.size());
+
+        testRunRepository.insertAll(testRuns);
+        runSummaryService.recordCreated(testRuns);
+        outboxService.enqueueTestRunJobs(testRuns);
+        testRuns.forEach(testRun -> eventPublisher.publishEvent(RunEventDto.of(testRun, null)));
+        return testRuns;
+    }
+
+    private TestRun newScheduledTestRun(CreateTestRunRequestDto requestDto) {
         TestRun testRun=new TestRun();
 
-        testRun.setId(UUID.randomUUID());
+        testRun.setId(TimeOrderedUuid.next());
         testRun.setStatus(TestRunStatus.SCHEDULED);
         testRun.setStartTime(LocalDateTime.now());
         testRun.setEnvironment(requestDto.getEnvironment());
         testRun.setTags(requestDto.getTags());
-        LOGGER.info("Creating new TestRun for environment: {}", requestDto.getEnvironment());
-        return testRunRepository.save(testRun);
+        testRun.setPriority(resolvePriority(requestDto));
+        return testRun;
     }
 
+    // Tags are checked against the workers' grammar even when a priority is given, so a bad expression is a 400 here
+    // instead of a failed run later
+    private RunPriority resolvePriority(CreateTestRunRequestDto requestDto) {
+        Set<String> selectingTags = requestDto.getTags() != null
+                ? TagExpression.selectingTags(requestDto.getTags()) : Set.of();
+        if (requestDto.getPriority() != null) {
+            return requestDto.getPriority();
+        }
+        if (requestDto.getEnvironment() != null && highPriorityEnvironments != null
+                && highPriorityEnvironments.stream().anyMatch(requestDto.getEnvironment()::equalsIgnoreCase)) {
+            return RunPriority.HIGH;
+        }
+        // A high-priority tag anywhere the expression selects on ("smoke | api", "(smoke & ui)"), but not "api & !smoke"
+        if (highPriorityTags != null && highPriorityTags.stream()
+                .anyMatch(tag -> selectingTags.contains(tag.trim().toLowerCase(Locale.ROOT)))) {
+            return RunPriority.HIGH;
+        }
+        return RunPriority.NORMAL;
+    }
+
+    // Misses (unknown ids) are not cached, so a run becomes visible as soon as it exists
+    @Cacheable(cacheNames = CacheConfig.TEST_RUNS_CACHE, unless = "#result == null")
     public Optional<TestRun> findTestRun(UUID id){
         return testRunRepository.findById(id);
     }
 
+    // Write-through: the cache gets the updated run once the transaction commits
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.TEST_RUNS_CACHE, key = "#id")
     public TestRun updateTestRunStatus(UUID id, TestRunUpdateDto updateDto) {
+        if (updateDto.isShardResult()) {
+            // One shard of a sharded run; the run itself only changes once its last shard is in
+            updateDto.setRunId(id);
+            applyTestRunUpdates(List.of(updateDto));
+            return testRunRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Test run with ID " + id + " not found to update!"));
+        }
 
-        TestRun existingTestRun = testRunRepository.findById(id)
+        TestRun existingTestRun = lockTestRun(id)
                 .orElseThrow(() -> new EntityNotFoundException("Test run with ID " + id + " not found to update!"));
-        existingTestRun.setStatus(updateDto.getStatus());
-        existingTestRun.setEndTime(LocalDateTime.now());
-        existingTestRun.setReportUrl(updateDto.getReportUrl());
-        //for error messages
-        existingTestRun.setErrorMessage(updateDto.getErrorMessage());
-        existingTestRun.setErrorDetails(updateDto.getErrorDetails());
-        existingTestRun.setFailedTestCount(updateDto.getFailedTestCount());
-        existingTestRun.setScreenshotPath(updateDto.getScreenshotPath());
+        TestRunStatus previousStatus = existingTestRun.getStatus();
+        if (previousStatus == TestRunStatus.CANCELLED) {
+            // A worker that missed the cancel signal finished anyway; the run stays cancelled
+            LOGGER.info("Ignoring update for cancelled TestRun {}", id);
+            return existingTestRun;
+        }
+        applyUpdate(existingTestRun, updateDto);
 
         LOGGER.info("Before saving: FailedTestCount = {}", existingTestRun.getFailedTestCount());
 
-        return testRunRepository.save(existingTestRun);
+        TestRun savedTestRun = testRunRepository.save(existingTestRun);
+        runSummaryService.recordStatusChange(savedTestRun, previousStatus);
+        testCaseResultService.record(savedTestRun, updateDto);
+        eventPublisher.publishEvent(RunEventDto.of(savedTestRun, previousStatus));
+        return savedTestRun;
     }
-    @Transactional // Good practice, can add (readOnly = true) for optimization
+
+    /**
+     * Applies a batch of worker results in one transaction: one select for all runs, JDBC-batched updates
+     * and per-test result inserts, summed counter deltas and one cache put and event per run.
+     * Results for unknown runs are skipped.
+     */
+    @Transactional
     @Override
-    public List<TestRun> getAllTestsByCriteria(TestRunStatus status, String environment) {
-        // Case 1: Both filters are provided
-        if(status != null && environment != null){
-            LOGGER.info("Fetching TestRuns by status '{}' and environment '{}'", status, environment);
-            return testRunRepository.findByStatusAndEnvironment(status, environment);
-        }
-        // Case 2: Only status is provided
-        else if(status != null){ // No need to check environment == null here
-            LOGGER.info("Fetching TestRuns by status '{}'", status);
-            return testRunRepository.findByStatus(status);
-        }
-        // Case 3: Only environment is provided
-        else if(environment != null){ // No need to check status == null here
-            LOGGER.info("Fetching TestRuns by environment '{}'", environment);
-            return testRunRepository.findByEnvironment(environment);
-        }
-        // Case 4: Neither filter is provided
-        else{
-            LOGGER.info("Fetching all TestRuns (no filters provided)");
-            return testRunRepository.findAll();
+    public int applyTestRunUpdates(List<TestRunUpdateDto> updateDtos) {
+        if (updateDtos.stream().anyMatch(TestRunUpdateDto::isShardResult)) {
+            // Shard results are stored per shard; a run whose last shard just arrived comes back as one combined update
+            updateDtos = runShardService.collect(updateDtos);
         }
+        // A redelivered or repeated result for the same run: the last one wins
+        Map<UUID, TestRunUpdateDto> updatesById = new LinkedHashMap<>();
+        for (TestRunUpdateDto updateDto : updateDtos) {
+            if (updateDto.getRunId() == null) {
+                LOGGER.warn("Dropping run result without a runId");
+                continue;
+            }
+            updatesById.put(updateDto.getRunId(), updateDto);
+        }
+
+        // Locked, so a concurrent cancel or a redelivered result waits instead of moving the counters twice
+        List<TestRun> testRuns = testRunRepository.lockAllById(updatesById.keySet());
+        if (testRuns.size() < updatesById.size()) {
+            LOGGER.warn("{} run results refer to unknown runs and were skipped", updatesById.size() - testRuns.size());
+        }
+        // Late results for cancelled runs don't bring them back
+        List<TestRun> cancelled = testRuns.stream().filter(testRun -> testRun.getStatus() == TestRunStatus.CANCELLED).toList();
+        if (!cancelled.isEmpty()) {
+            LOGGER.info("{} run results belong to cancelled runs and were skipped", cancelled.size());
+            testRuns = testRuns.stream().filter(testRun -> testRun.getStatus() != TestRunStatus.CANCELLED).toList();
+        }
+
+        Map<UUID, TestRunStatus> previousStatuses = new HashMap<>();
+        for (TestRun testRun : testRuns) {
+            previousStatuses.put(testRun.getId(), testRun.getStatus());
+            applyUpdate(testRun, updatesById.get(testRun.getId()));
+        }
+        // The runs are managed, so the updates are flushed in JDBC batches at commit
+        runSummaryService.recordStatusChanges(testRuns, previousStatuses);
+        testCaseResultService.record(testRuns, updatesById);
+
+        Cache cache = cacheManager.getCache(CacheConfig.TEST_RUNS_CACHE);
+        for (TestRun testRun : testRuns) {
+            if (cache != null) {
+                cache.put(testRun.getId(), testRun);
+            }
+            eventPublisher.publishEvent(RunEventDto.of(testRun, previousStatuses.get(testRun.getId())));
+        }
+        LOGGER.info("Applied {} run results", testRuns.size());
+        return testRuns.size();
+    }
+
+    /**
+     * Marks a scheduled or running run as cancelled and broadcasts a cancel signal to the workers (through the outbox,
+     * so the signal goes out only if the cancel commits). A job still in the outbox is deleted instead, in the same
+     * transaction. Cancelling an already cancelled run is a no-op.
+     */
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.TEST_RUNS_CACHE, key = "#id")
+    @Override
+    public TestRun cancelTestRun(UUID id) {
+        TestRun testRun = lockTestRun(id)
+                .orElseThrow(() -> new EntityNotFoundException("Test run with ID " + id + " not found to cancel!"));
+        TestRunStatus previousStatus = testRun.getStatus();
+        if (previousStatus == TestRunStatus.CANCELLED) {
+            return testRun;
+        }
+        if (previousStatus != TestRunStatus.SCHEDULED && previousStatus != TestRunStatus.RUNNING) {
+            throw new IllegalStateException("Test run " + id + " already finished as " + previousStatus);
+        }
+
+        LOGGER.info("Cancelling TestRun {} ({})", id, previousStatus);
+        testRun.setStatus(TestRunStatus.CANCELLED);
+        testRun.setEndTime(LocalDateTime.now());
+        TestRun savedTestRun = testRunRepository.save(testRun);
+        runSummaryService.recordStatusChange(savedTestRun, previousStatus);
+        if (previousStatus == TestRunStatus.SCHEDULED && outboxService.discardTestRunJob(savedTestRun)) {
+            LOGGER.info("Discarded unpublished job of TestRun {}", id);
+        } else {
+            // Workers that start later don't get the broadcast; they check the run's status when they dequeue it
+            outboxService.enqueueCancelSignal(savedTestRun);
+        }
+        eventPublisher.publishEvent(RunEventDto.of(savedTestRun, previousStatus));
+        return savedTestRun;
+    }
+
+    // Every status change takes the row lock first, so only one of cancel and result handling sees the old status
+    private Optional<TestRun> lockTestRun(UUID id) {
+        return testRunRepository.lockAllById(List.of(id)).stream().findFirst();
+    }
+
+    private static void applyUpdate(TestRun testRun, TestRunUpdateDto updateDto) {
+        testRun.setStatus(updateDto.getStatus());
+        testRun.setEndTime(updateDto.getEndTime() != null ? updateDto.getEndTime() : LocalDateTime.now());
+        testRun.setReportUrl(updateDto.getReportUrl());
+        //for error messages
+        testRun.setErrorMessage(updateDto.getErrorMessage());
+        testRun.setErrorDetails(updateDto.getErrorDetails());
+        testRun.setFailedTestCount(updateDto.getFailedTestCount());
+        testRun.setScreenshotPath(updateDto.getScreenshotPath());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public TestRunPageDto getTestRunPage(TestRunStatus status, String environment, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        // Fetch one extra row so we know whether another page exists without running a count query
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<TestRunListItem> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = testRunRepository.findFirstPage(status, environment, limit);
+        } else {
+            TestRunCursor position = TestRunCursor.decode(cursor);
+            rows = testRunRepository.findPageAfter(status, environment, position.startTime(), position.id(), limit);
+        }
+
+        String next = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TestRunListItem last = rows.get(pageSize - 1);
+            next = new TestRunCursor(last.getStartTime(), last.getId()).encode();
+        }
+        LOGGER.info("Fetched page of {} TestRuns (status '{}', environment '{}')", rows.size(), status, environment);
+        return new TestRunPageDto(rows, rows.size(), next);
     }
 
+    /**
+     * Feeds every matching run to the consumer one at a time.
+     * Rows are streamed from the database and detached after use, so memory stays flat however large the history is.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void streamTestRuns(TestRunStatus status, String environment, Consumer<TestRun> consumer) {
+        try (Stream<TestRun> runs = testRunRepository.streamAll(status, environment)) {
+            runs.forEach(testRun -> {
+                consumer.accept(testRun);
+                entityManager.detach(testRun);
+            });
+        }
+    }
+
+    @Override
+    public RunSummaryDto getRunSummary(String environment, LocalDateTime from, LocalDateTime to) {
+        return runSummaryService.getSummary(environment, from, to);
+    }
 }
@@ -0,0 +1,80 @@
+package com.example.test_management_api.config;
+
+import com.example.test_management_api.repository.RunStatusCounterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RunStatusCounterBackfillTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RunStatusCounterRepository counterRepository;
+
+    private RunStatusCounterBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        backfill = new RunStatusCounterBackfill(jdbcTemplate, new TransactionTemplate(transactionManager), counterRepository);
+    }
+
+    @Test
+    void whoeverClaimsTheMarkerRebuildsTheCountersInItsTransaction() {
+        given(jdbcTemplate.update(anyString(), eq(RunStatusCounterBackfill.MIGRATION))).willReturn(1);
+
+        backfill.afterPropertiesSet();
+
+        InOrder order = inOrder(jdbcTemplate, counterRepository, transactionManager);
+        order.verify(jdbcTemplate).execute(anyString());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(jdbcTemplate).update(anyString(), eq(RunStatusCounterBackfill.MIGRATION));
+        // Rows written before the seed ran are replaced, not added to
+        order.verify(counterRepository).deleteAllInBatch();
+        order.verify(counterRepository).backfillFromTestRuns();
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void skipsOnceTheMarkerExists() {
+        given(jdbcTemplate.update(anyString(), eq(RunStatusCounterBackfill.MIGRATION))).willReturn(0);
+
+        backfill.afterPropertiesSet();
+
+        verify(counterRepository, never()).deleteAllInBatch();
+        verify(counterRepository, never()).backfillFromTestRuns();
+    }
+
+    @Test
+    void aFailedSeedRollsBackItsMarker() {
+        given(jdbcTemplate.update(anyString(), eq(RunStatusCounterBackfill.MIGRATION))).willReturn(1);
+        given(counterRepository.backfillFromTestRuns()).willThrow(new IllegalStateException("lock wait timeout"));
+
+        assertThrows(IllegalStateException.class, () -> backfill.afterPropertiesSet());
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+}
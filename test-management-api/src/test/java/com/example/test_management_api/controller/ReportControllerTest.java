@@ -0,0 +1,134 @@
+package com.example.test_management_api.controller;
+
+import com.example.test_management_api.service.ReportFileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ReportControllerTest {
+
+    private static final String REPORT = "<html><body>" + "row ".repeat(500) + "</body></html>";
+
+    @TempDir
+    Path reportsDir;
+
+    private MockMvc mockMvc;
+    private byte[] gzipped;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path report = reportsDir.resolve("run-1.html");
+        Files.writeString(report, REPORT);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(REPORT.getBytes(StandardCharsets.UTF_8));
+        }
+        gzipped = bytes.toByteArray();
+        Files.write(reportsDir.resolve("run-1.html.gz"), gzipped);
+        Files.writeString(reportsDir.resolve("secret.txt"), "outside");
+        Files.createDirectories(reportsDir.resolve("reports"));
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new ReportController(new ReportFileService(reportsDir.resolve("reports").toString()))).build();
+        Files.move(report, reportsDir.resolve("reports/run-1.html"));
+        Files.move(reportsDir.resolve("run-1.html.gz"), reportsDir.resolve("reports/run-1.html.gz"));
+    }
+
+    @Test
+    void servesTheReportWithAnETag() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(REPORT, response.getContentAsString());
+        assertTrue(response.getContentType().startsWith("text/html"));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+    }
+
+    @Test
+    void servesTheGzipCopyToClientsThatAcceptIt() throws Exception {
+        MockHttpServletResponse plain = mockMvc.perform(get("/api/reports/run-1.html")).andReturn().getResponse();
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(gzipped, response.getContentAsByteArray());
+        assertNotEquals(plain.getHeader(HttpHeaders.ETAG), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    void staleGzipCopyIsIgnored() throws Exception {
+        Path gzip = reportsDir.resolve("reports/run-1.html.gz");
+        Files.setLastModifiedTime(gzip, FileTime.fromMillis(Files.getLastModifiedTime(gzip).toMillis() - 60_000));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn().getResponse();
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(REPORT, response.getContentAsString());
+    }
+
+    @Test
+    void matchingIfNoneMatchGetsNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/reports/run-1.html")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse();
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void servesASingleByteRange() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")
+                .header(HttpHeaders.RANGE, "bytes=6-11")).andReturn().getResponse();
+
+        assertEquals(206, response.getStatus());
+        assertEquals("<body>", response.getContentAsString());
+        assertEquals("bytes 6-11/" + REPORT.length(), response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(6, response.getContentLength());
+    }
+
+    @Test
+    void rangeWithAnOutdatedIfRangeGetsTheWholeFile() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")
+                .header(HttpHeaders.RANGE, "bytes=6-11")
+                .header(HttpHeaders.IF_RANGE, "\"old\"")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(REPORT, response.getContentAsString());
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/reports/run-1.html")
+                .header(HttpHeaders.RANGE, "bytes=999999-")).andReturn().getResponse();
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + REPORT.length(), response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void missingFilesAndPathsOutsideTheReportsDirectoryAreNotFound() throws Exception {
+        assertEquals(404, mockMvc.perform(get("/api/reports/nope.html")).andReturn().getResponse().getStatus());
+        assertEquals(404, mockMvc.perform(get("/api/reports/../secret.txt")).andReturn().getResponse().getStatus());
+        assertEquals(404, mockMvc.perform(get("/api/reports/sub/%2e%2e/%2e%2e/secret.txt")).andReturn().getResponse().getStatus());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.test_management_api.controller;
+
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.service.TestCaseResultService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(MockitoExtension.class)
+class TestCaseResultControllerTest {
+
+    @Mock
+    private TestCaseResultService testCaseResultService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new TestCaseResultController(testCaseResultService)).build();
+    }
+
+    @Test
+    void searchPassesTheFiltersOn() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2026, 3, 1, 0, 0);
+        given(testCaseResultService.search("ApiTests.a", TestRunStatus.FAILED, "QA", 5000L, from, null, "duration", 20))
+                .willReturn(List.of(result("ApiTests.a")));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/tests/results")
+                .param("testName", "ApiTests.a").param("status", "FAILED").param("environment", "QA")
+                .param("minDurationMs", "5000").param("from", "2026-03-01T00:00:00")
+                .param("sort", "duration").param("limit", "20")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getContentAsString().contains("ApiTests.a"));
+    }
+
+    @Test
+    void searchDefaultsToTheMostRecentHundred() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/tests/results")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        verify(testCaseResultService).search(null, null, null, null, null, null, "recent", 100);
+    }
+
+    @Test
+    void unknownStatusIsABadRequest() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/tests/results").param("status", "BROKEN"))
+                .andReturn().getResponse();
+
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    void listsTheTestsOfOneRun() throws Exception {
+        UUID runId = UUID.randomUUID();
+        given(testCaseResultService.getForRun(runId)).willReturn(List.of(result("UiTests.b")));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/runs/{id}/tests", runId)).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getContentAsString().contains("UiTests.b"));
+    }
+
+    private static TestCaseResult result(String testName) {
+        TestCaseResult result = new TestCaseResult();
+        result.setId(UUID.randomUUID());
+        result.setTestName(testName);
+        result.setStatus(TestRunStatus.FAILED);
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.test_management_api.controller;
+
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.service.RunEventBroadcaster;
+import com.example.test_management_api.service.TestRunService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@ExtendWith(MockitoExtension.class)
+class TestRunControllerTest {
+
+    @Mock
+    private TestRunService testRunService;
+
+    @Mock
+    private RunEventBroadcaster runEventBroadcaster;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new TestRunController(testRunService, new ObjectMapper(), runEventBroadcaster)).build();
+    }
+
+    @Test
+    void whenBatchIsValid_shouldCreateEveryRun() throws Exception {
+        TestRun created = new TestRun();
+        created.setId(UUID.randomUUID());
+        created.setStatus(TestRunStatus.SCHEDULED);
+        given(testRunService.createTestRuns(anyList())).willReturn(List.of(created));
+
+        MockHttpServletResponse response = postBatch("[{\"environment\":\"QA\",\"tags\":\"api\"}]");
+
+        assertEquals(201, response.getStatus());
+        assertTrue(response.getContentAsString().contains(created.getId().toString()));
+    }
+
+    @Test
+    void whenServiceRejectsAnElement_shouldAnswer400() throws Exception {
+        given(testRunService.createTestRuns(anyList())).willThrow(new IllegalArgumentException("Run 1 of the batch is empty"));
+
+        MockHttpServletResponse response = postBatch("[{\"environment\":\"QA\"},null]");
+
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    void whenAnElementDoesNotParse_shouldAnswer400WithoutCreatingAnyRun() throws Exception {
+        MockHttpServletResponse response = postBatch(
+                "[{\"environment\":\"QA\"},{\"environment\":\"QA\",\"priority\":\"URGENT\"}]");
+
+        assertEquals(400, response.getStatus());
+        verify(testRunService, never()).createTestRuns(any());
+    }
+
+    @Test
+    void whenTagsDoNotParse_shouldAnswer400() throws Exception {
+        given(testRunService.createTestRun(any())).willThrow(new IllegalArgumentException("Missing ')' in tag expression"));
+
+        MockHttpServletResponse response = mockMvc.perform(post("/api/runs").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"environment\":\"QA\",\"tags\":\"(smoke | api\"}")).andReturn().getResponse();
+
+        assertEquals(400, response.getStatus());
+    }
+
+    private MockHttpServletResponse postBatch(String body) throws Exception {
+        return mockMvc.perform(post("/api/runs/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn().getResponse();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.test_management_api.listener;
+
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import com.example.test_management_api.service.TestRunService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.JpaSystemException;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TestRunResultListenerTest {
+
+    @Mock
+    private TestRunService testRunService;
+
+    @InjectMocks
+    private TestRunResultListener listener;
+
+    @Test
+    void aTransientBatchFailureRedeliversTheBatch() {
+        List<TestRunUpdateDto> batch = List.of(result(), result());
+        given(testRunService.applyTestRunUpdates(batch)).willThrow(new CannotAcquireLockException("lock wait timeout"));
+
+        assertThrows(CannotAcquireLockException.class, () -> listener.handleResults(batch));
+
+        verify(testRunService, times(1)).applyTestRunUpdates(any());
+    }
+
+    @Test
+    void aBadResultIsDroppedAndTheOthersAreStillApplied() {
+        TestRunUpdateDto good = result();
+        TestRunUpdateDto bad = result();
+        List<TestRunUpdateDto> batch = List.of(bad, good);
+        given(testRunService.applyTestRunUpdates(batch)).willThrow(new DataIntegrityViolationException("data too long"));
+        given(testRunService.applyTestRunUpdates(List.of(bad))).willThrow(new DataIntegrityViolationException("data too long"));
+        given(testRunService.applyTestRunUpdates(List.of(good))).willReturn(1);
+
+        listener.handleResults(batch);
+
+        verify(testRunService).applyTestRunUpdates(List.of(good));
+    }
+
+    @Test
+    void aTransientFailureWhileRetryingOneByOneRedeliversInsteadOfDropping() {
+        TestRunUpdateDto bad = result();
+        TestRunUpdateDto unlucky = result();
+        TestRunUpdateDto notTried = result();
+        List<TestRunUpdateDto> batch = List.of(bad, unlucky, notTried);
+        given(testRunService.applyTestRunUpdates(batch)).willThrow(new DataIntegrityViolationException("data too long"));
+        given(testRunService.applyTestRunUpdates(List.of(bad))).willThrow(new DataIntegrityViolationException("data too long"));
+        // Connection lost, surfaced by Hibernate rather than translated by Spring
+        JpaSystemException connectionLost = new JpaSystemException(
+                new RuntimeException(new SQLTransientConnectionException("connection is not available")));
+        given(testRunService.applyTestRunUpdates(List.of(unlucky))).willThrow(connectionLost);
+
+        assertThrows(JpaSystemException.class, () -> listener.handleResults(batch));
+
+        verify(testRunService, never()).applyTestRunUpdates(List.of(notTried));
+    }
+
+    private static TestRunUpdateDto result() {
+        TestRunUpdateDto result = new TestRunUpdateDto();
+        result.setRunId(UUID.randomUUID());
+        return result;
+    }
+}
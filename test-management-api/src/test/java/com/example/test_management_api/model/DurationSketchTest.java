@@ -0,0 +1,49 @@
+package com.example.test_management_api.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class DurationSketchTest {
+
+    @Test
+    public void quantilesStayWithinTwoPercent() {
+        DurationSketch sketch = new DurationSketch();
+        for (long ms = 1; ms <= 10_000; ms++) {
+            sketch.add(ms);
+        }
+
+        assertThat(sketch.quantile(0.50)).isCloseTo(5_000L, within(100L));
+        assertThat(sketch.quantile(0.95)).isCloseTo(9_500L, within(190L));
+        assertThat(sketch.quantile(0.99)).isCloseTo(9_900L, within(198L));
+    }
+
+    @Test
+    public void mergedSketchesMatchOneSketchOfAllValues() {
+        DurationSketch all = new DurationSketch();
+        DurationSketch fast = new DurationSketch();
+        DurationSketch slow = new DurationSketch();
+        for (long ms = 100; ms < 200; ms++) {
+            fast.add(ms);
+            all.add(ms);
+        }
+        for (long ms = 5_000; ms < 5_100; ms++) {
+            slow.add(ms);
+            all.add(ms);
+        }
+
+        // Merging must also survive the round trip through the database column
+        DurationSketch merged = DurationSketch.fromBytes(fast.toBytes());
+        merged.merge(DurationSketch.fromBytes(slow.toBytes()));
+
+        assertThat(merged.getCount()).isEqualTo(200);
+        assertThat(merged.quantile(0.25)).isEqualTo(all.quantile(0.25));
+        assertThat(merged.quantile(0.95)).isEqualTo(all.quantile(0.95));
+    }
+
+    @Test
+    public void emptySketchHasNoQuantiles() {
+        assertThat(DurationSketch.fromBytes(null).quantile(0.5)).isNull();
+    }
+}
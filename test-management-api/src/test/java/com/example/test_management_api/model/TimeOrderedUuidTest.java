@@ -0,0 +1,38 @@
+package com.example.test_management_api.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimeOrderedUuidTest {
+
+    @Test
+    public void idsAreVersion7AndCarryTheCreationTime() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedUuid.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, after + 1);
+    }
+
+    @Test
+    public void storedBytesIncreaseWithEveryId() {
+        // BINARY(16) compares byte by byte, which is what keeps inserts at the end of the index
+        byte[] previous = bytes(TimeOrderedUuid.next());
+        for (int i = 0; i < 100_000; i++) {
+            byte[] current = bytes(TimeOrderedUuid.next());
+            assertThat(Arrays.compareUnsigned(previous, current)).isNegative();
+            previous = current;
+        }
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+}
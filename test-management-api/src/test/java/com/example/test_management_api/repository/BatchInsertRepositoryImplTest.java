@@ -0,0 +1,83 @@
+package com.example.test_management_api.repository;
+
+import com.example.test_management_api.model.TestRun;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BatchInsertRepositoryImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    private BatchInsertRepositoryImpl<TestRun> repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new BatchInsertRepositoryImpl<>();
+        ReflectionTestUtils.setField(repository, "entityManager", entityManager);
+        ReflectionTestUtils.setField(repository, "batchSize", 2);
+    }
+
+    @Test
+    void whenInsertingPastTheBatchSize_shouldFlushAndClearAtEachBoundary() {
+        List<TestRun> runs = IntStream.range(0, 5).mapToObj(i -> run()).toList();
+
+        repository.insertAll(runs);
+
+        InOrder order = inOrder(entityManager);
+        order.verify(entityManager).persist(runs.get(0));
+        order.verify(entityManager).persist(runs.get(1));
+        order.verify(entityManager).flush();
+        order.verify(entityManager).clear();
+        order.verify(entityManager).persist(runs.get(2));
+        order.verify(entityManager).persist(runs.get(3));
+        order.verify(entityManager).flush();
+        order.verify(entityManager).clear();
+        order.verify(entityManager).persist(runs.get(4));
+        // The last, partial batch is sent too, but stays managed
+        order.verify(entityManager).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void whenInsertingExactlyOneBatch_shouldNotLeaveAnythingUnflushed() {
+        List<TestRun> runs = List.of(run(), run());
+
+        repository.insertAll(runs);
+
+        verify(entityManager, times(2)).persist(any(TestRun.class));
+        verify(entityManager, times(2)).flush();
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void whenInsertingNothing_shouldNotClearTheContext() {
+        repository.insertAll(List.of());
+
+        verify(entityManager, never()).persist(any());
+        verify(entityManager, never()).clear();
+    }
+
+    private static TestRun run() {
+        TestRun run = new TestRun();
+        run.setId(UUID.randomUUID());
+        return run;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.model.OutboxMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RabbitMQProducerTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations channel;
+
+    @InjectMocks
+    private RabbitMQProducer rabbitMQProducer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rabbitMQProducer, "confirmBatchSize", 2);
+        ReflectionTestUtils.setField(rabbitMQProducer, "confirmTimeoutMs", 1000L);
+        given(rabbitTemplate.invoke(any())).willAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(channel));
+    }
+
+    @Test
+    void whenPublishingSeveralBatches_shouldWaitForConfirmsAfterEachBatchAndTheRest() {
+        List<OutboxMessage> messages = IntStream.range(0, 5).mapToObj(i -> message()).toList();
+
+        rabbitMQProducer.publishConfirmed(messages);
+
+        InOrder order = inOrder(channel);
+        order.verify(channel, times(2)).send(eq("test_run_exchange"), eq("test_run_jobs_key"), any(Message.class));
+        order.verify(channel).waitForConfirmsOrDie(1000L);
+        order.verify(channel, times(2)).send(eq("test_run_exchange"), eq("test_run_jobs_key"), any(Message.class));
+        order.verify(channel).waitForConfirmsOrDie(1000L);
+        order.verify(channel).send(eq("test_run_exchange"), eq("test_run_jobs_key"), any(Message.class));
+        order.verify(channel).waitForConfirmsOrDie(1000L);
+    }
+
+    @Test
+    void whenBrokerNacks_shouldThrowSoTheRelayKeepsTheMessages() {
+        willThrow(new AmqpException("nack")).given(channel).waitForConfirmsOrDie(anyLong());
+
+        assertThrows(AmqpException.class, () -> rabbitMQProducer.publishConfirmed(List.of(message())));
+        verify(channel).send(anyString(), anyString(), any(Message.class));
+    }
+
+    @Test
+    void whenPublishing_shouldSendPersistentJsonWithTheOutboxIdAsMessageId() {
+        OutboxMessage outboxMessage = message();
+
+        rabbitMQProducer.publishConfirmed(List.of(outboxMessage));
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(channel).send(anyString(), anyString(), sent.capture());
+        assertEquals(outboxMessage.getId().toString(), sent.getValue().getMessageProperties().getMessageId());
+        assertEquals(MessageDeliveryMode.PERSISTENT, sent.getValue().getMessageProperties().getDeliveryMode());
+        assertEquals(outboxMessage.getPayload(), new String(sent.getValue().getBody(), StandardCharsets.UTF_8));
+    }
+
+    private static OutboxMessage message() {
+        OutboxMessage message = new OutboxMessage();
+        message.setId(UUID.randomUUID());
+        message.setAggregateId(UUID.randomUUID());
+        message.setExchange("test_run_exchange");
+        message.setRoutingKey("test_run_jobs_key");
+        message.setPayload("{\"environment\":\"QA\"}");
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.config.RetentionProperties;
+import com.example.test_management_api.dtos.ArchivedRunDto;
+import com.example.test_management_api.model.ArchivedRun;
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.ArchivedRunRepository;
+import com.example.test_management_api.repository.TestCaseResultRepository;
+import com.example.test_management_api.repository.TestRunRepository;
+import com.example.test_management_api.repository.TestRunShardRepository;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RetentionServiceTest {
+
+    @Mock
+    private TestRunRepository testRunRepository;
+
+    @Mock
+    private TestCaseResultRepository testCaseResultRepository;
+
+    @Mock
+    private ArchivedRunRepository archivedRunRepository;
+
+    @Mock
+    private TestRunShardRepository testRunShardRepository;
+
+    @Mock
+    private RunSummaryService runSummaryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path baseDir;
+
+    private RetentionProperties properties;
+    private RetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RetentionProperties();
+        properties.setEnabled(true);
+        properties.setDefaultDays(30);
+        properties.setChunkSize(2);
+        properties.setArchiveDir(baseDir.resolve("archive").toString());
+        properties.setArtifactsBaseDir(baseDir.toString());
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        retentionService = new RetentionService(properties, testRunRepository, testCaseResultRepository,
+                archivedRunRepository, testRunShardRepository, runSummaryService, new ConcurrentMapCacheManager(),
+                JsonMapper.builder().findAndAddModules().build(), transactionManager);
+    }
+
+    @Test
+    void archivesInChunksUntilAChunkComesBackShort() throws IOException {
+        TestRun first = run("reports/report-a-11111111.html");
+        TestRun second = run(null);
+        TestRun third = run(null);
+        Path report = artifact("reports/report-a-11111111.html");
+        Path csv = artifact("reports/report-a-22222222.csv");
+        given(testRunRepository.findDistinctEnvironments()).willReturn(List.of("QA"));
+        given(testRunRepository.lockRunsToArchive(eq("QA"), any(), any()))
+                .willReturn(List.of(first, second), List.of(third));
+        given(testCaseResultRepository.findByRunIdIn(any())).willReturn(List.of(result(first.getId())));
+
+        retentionService.applyRetention();
+
+        verify(testRunRepository, times(2)).lockRunsToArchive(eq("QA"), any(), any());
+        verify(testRunRepository).deleteAllByIdInBatch(List.of(first.getId(), second.getId()));
+        verify(testRunRepository).deleteAllByIdInBatch(List.of(third.getId()));
+        verify(testCaseResultRepository, times(2)).deleteByRunIdIn(any());
+        verify(runSummaryService, times(2)).recordRemoved(any());
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(2, segments().size());
+        // Files go once their rows are gone, the per-test CSV along with its HTML report
+        assertFalse(Files.exists(report));
+        assertFalse(Files.exists(csv));
+    }
+
+    @Test
+    void nothingHappensWhileDisabled() {
+        properties.setEnabled(false);
+
+        retentionService.applyRetention();
+
+        verify(testRunRepository, never()).findDistinctEnvironments();
+    }
+
+    @Test
+    void failedChunkRollsBackAndDeletesItsSegment() throws IOException {
+        TestRun run = run("reports/report-b-11111111.html");
+        Path report = artifact("reports/report-b-11111111.html");
+        given(testRunRepository.lockRunsToArchive(eq("QA"), any(), any())).willReturn(List.of(run));
+        willThrow(new IllegalStateException("deadlock")).given(testRunRepository).deleteAllByIdInBatch(any());
+
+        assertThrows(IllegalStateException.class, () -> retentionService.archiveChunk("QA", LocalDateTime.now()));
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertTrue(segments().isEmpty());
+        // The run is still in the database, so its report must stay
+        assertTrue(Files.exists(report));
+    }
+
+    @Test
+    void pruningSkipsUrlsPathsOutsideTheReportsDirAndScreenshotsStillInUse() throws IOException {
+        Path outside = artifact("outside.txt");
+        Path shared = artifact("reports/screenshots/ab/" + "ab".repeat(32) + ".png");
+        Path sharedThumbnail = artifact("reports/screenshots/ab/" + "ab".repeat(32) + "-thumb.jpg");
+        Path unused = artifact("reports/screenshots/cd/" + "cd".repeat(32) + ".png");
+        TestRun remote = run("http://reports.example.com/reports/run.html");
+        remote.setScreenshotPath("reports/../outside.txt");
+        TestRun local = run(null);
+        TestCaseResult sharedResult = result(local.getId());
+        sharedResult.setScreenshotPath(baseDir.relativize(shared).toString().replace('\\', '/'));
+        TestCaseResult unusedResult = result(local.getId());
+        unusedResult.setScreenshotPath(baseDir.relativize(unused).toString().replace('\\', '/'));
+        given(testRunRepository.lockRunsToArchive(eq("QA"), any(), any())).willReturn(List.of(remote, local));
+        given(testCaseResultRepository.findByRunIdIn(any())).willReturn(List.of(sharedResult, unusedResult));
+        given(testCaseResultRepository.existsByScreenshotPath(anyString())).willReturn(false);
+        given(testCaseResultRepository.existsByScreenshotPath(sharedResult.getScreenshotPath())).willReturn(true);
+
+        retentionService.archiveChunk("QA", LocalDateTime.now());
+
+        assertTrue(Files.exists(outside));
+        assertTrue(Files.exists(shared));
+        assertTrue(Files.exists(sharedThumbnail));
+        assertFalse(Files.exists(unused));
+    }
+
+    @Test
+    void rehydratePutsTheArchivedRunAndItsResultsBack() {
+        TestRun run = run(null);
+        TestCaseResult testResult = result(run.getId());
+        given(testRunRepository.lockRunsToArchive(eq("QA"), any(), any())).willReturn(List.of(run));
+        given(testCaseResultRepository.findByRunIdIn(any())).willReturn(List.of(testResult));
+        retentionService.archiveChunk("QA", LocalDateTime.now());
+        ArgumentCaptor<Collection<ArchivedRun>> entries = captor();
+        verify(archivedRunRepository).insertAll(entries.capture());
+        ArchivedRun entry = entries.getValue().iterator().next();
+        given(archivedRunRepository.findById(run.getId())).willReturn(Optional.of(entry));
+
+        Optional<ArchivedRunDto> archived = retentionService.findArchivedRun(run.getId());
+        Optional<TestRun> rehydrated = retentionService.rehydrate(run.getId());
+
+        assertTrue(archived.isPresent());
+        assertEquals(1, archived.get().getTestCaseResults().size());
+        assertTrue(rehydrated.isPresent());
+        assertEquals(run.getId(), rehydrated.get().getId());
+        assertEquals(TestRunStatus.COMPLETED, rehydrated.get().getStatus());
+        ArgumentCaptor<Collection<TestRun>> runs = captor();
+        verify(testRunRepository).insertAll(runs.capture());
+        assertEquals(run.getId(), runs.getValue().iterator().next().getId());
+        ArgumentCaptor<Collection<TestCaseResult>> results = captor();
+        verify(testCaseResultRepository).insertAll(results.capture());
+        assertEquals(testResult.getId(), results.getValue().iterator().next().getId());
+        verify(runSummaryService).recordCreated(any(TestRun.class));
+        verify(archivedRunRepository).delete(entry);
+    }
+
+    @Test
+    void rehydrateOfAnUnknownRunFindsNothing() {
+        given(archivedRunRepository.findById(any())).willReturn(Optional.empty());
+
+        assertTrue(retentionService.rehydrate(UUID.randomUUID()).isEmpty());
+        verify(testRunRepository, never()).insertAll(any());
+    }
+
+    private TestRun run(String reportUrl) {
+        TestRun run = new TestRun();
+        run.setId(UUID.randomUUID());
+        run.setStatus(TestRunStatus.COMPLETED);
+        run.setEnvironment("QA");
+        run.setStartTime(LocalDateTime.now().minusDays(60));
+        run.setReportUrl(reportUrl);
+        return run;
+    }
+
+    private static TestCaseResult result(UUID runId) {
+        TestCaseResult result = new TestCaseResult();
+        result.setId(UUID.randomUUID());
+        result.setRunId(runId);
+        result.setTestName("ApiTests.runApiContentTest");
+        result.setStatus(TestRunStatus.COMPLETED);
+        result.setAttempts(1);
+        return result;
+    }
+
+    private Path artifact(String relativePath) throws IOException {
+        Path file = baseDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "x");
+        return file;
+    }
+
+    private List<Path> segments() throws IOException {
+        Path archive = baseDir.resolve("archive");
+        if (!Files.exists(archive)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.walk(archive)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> ArgumentCaptor<Collection<T>> captor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(Collection.class);
+    }
+}
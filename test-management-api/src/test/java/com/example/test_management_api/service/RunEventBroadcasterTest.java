@@ -0,0 +1,189 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.RunEventDto;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunEventBroadcasterTest {
+
+    private final RunEventBroadcaster broadcaster = new RunEventBroadcaster(2, 60_000, 2);
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void everyClientGetsEveryEventInOrder() throws Exception {
+        RecordingEmitter first = subscribe(new RecordingEmitter());
+        RecordingEmitter second = subscribe(new RecordingEmitter());
+
+        // Many more events than a client buffers, so they are sent by many separate drain tasks
+        for (int i = 0; i < 20; i++) {
+            RunEventDto event = event();
+            broadcaster.publish(event);
+            assertEquals(event, first.next());
+            assertEquals(event, second.next());
+        }
+
+        assertTrue(first.received.isEmpty());
+        assertTrue(second.received.isEmpty());
+    }
+
+    @Test
+    void aClientThatFallsBehindIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = subscribe(new RecordingEmitter() {
+            @Override
+            void beforeSend() throws IOException {
+                sending.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        RecordingEmitter fast = subscribe(new RecordingEmitter());
+
+        // The first event is stuck in send, the next two fill the buffer, the fourth doesn't fit
+        for (int i = 0; i < 4; i++) {
+            RunEventDto event = event();
+            broadcaster.publish(event);
+            assertEquals(event, fast.next());
+            if (i == 0) {
+                assertTrue(sending.await(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertTrue(slow.isCompleted());
+        release.countDown();
+        broadcaster.publish(event());
+        assertNotNull(fast.next());
+        // Its backlog went with it
+        Thread.sleep(200);
+        assertEquals(1, slow.sends.get());
+    }
+
+    @Test
+    void aClientWhoseConnectionBrokeIsDropped() throws Exception {
+        RecordingEmitter broken = subscribe(new RecordingEmitter() {
+            @Override
+            void beforeSend() throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        });
+        RecordingEmitter healthy = subscribe(new RecordingEmitter());
+
+        broadcaster.publish(event());
+        assertNotNull(healthy.next());
+        assertTrue(broken.completed.await(5, TimeUnit.SECONDS));
+        broadcaster.publish(event());
+
+        assertNotNull(healthy.next());
+        Thread.sleep(200);
+        assertEquals(1, broken.sends.get());
+    }
+
+    @Test
+    void completedAndTimedOutClientsAreForgotten() throws Exception {
+        RecordingEmitter completed = subscribe(new RecordingEmitter());
+        RecordingEmitter timedOut = subscribe(new RecordingEmitter());
+        RecordingEmitter remaining = subscribe(new RecordingEmitter());
+
+        completed.completionCallback.run();
+        timedOut.timeoutCallback.run();
+        broadcaster.publish(event());
+
+        assertNotNull(remaining.next());
+        Thread.sleep(200);
+        assertEquals(0, completed.sends.get());
+        assertEquals(0, timedOut.sends.get());
+    }
+
+    @Test
+    void shutdownClosesEveryConnection() {
+        RecordingEmitter emitter = subscribe(new RecordingEmitter());
+
+        broadcaster.shutdown();
+
+        assertTrue(emitter.isCompleted());
+    }
+
+    private RecordingEmitter subscribe(RecordingEmitter emitter) {
+        broadcaster.subscribe(emitter);
+        return emitter;
+    }
+
+    private static RunEventDto event() {
+        RunEventDto event = new RunEventDto();
+        event.setRunId(UUID.randomUUID());
+        event.setStatus(TestRunStatus.RUNNING);
+        return event;
+    }
+
+    // Stands in for a client connection: keeps what was sent and the callbacks the broadcaster registered
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<RunEventDto> received = new LinkedBlockingQueue<>();
+        private final AtomicInteger sends = new AtomicInteger();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Runnable completionCallback;
+        private volatile Runnable timeoutCallback;
+
+        void beforeSend() throws IOException {
+        }
+
+        RunEventDto next() throws InterruptedException {
+            return received.poll(5, TimeUnit.SECONDS);
+        }
+
+        boolean isCompleted() {
+            return completed.getCount() == 0;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sends.incrementAndGet();
+            beforeSend();
+            builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(RunEventDto.class::isInstance)
+                    .forEach(data -> received.add((RunEventDto) data));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+        }
+
+        @Override
+        public void onError(Consumer<Throwable> callback) {
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.TestRunShard;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.TestRunRepository;
+import com.example.test_management_api.repository.TestRunShardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RunShardServiceTest {
+
+    @Mock
+    private TestRunRepository testRunRepository;
+
+    @Mock
+    private TestRunShardRepository testRunShardRepository;
+
+    @Mock
+    private TestCaseResultService testCaseResultService;
+
+    @Mock
+    private ShardReportIndexWriter shardReportIndexWriter;
+
+    @InjectMocks
+    private RunShardService runShardService;
+
+    private TestRun run;
+
+    @BeforeEach
+    void setUp() {
+        run = new TestRun();
+        run.setId(UUID.randomUUID());
+        run.setStatus(TestRunStatus.SCHEDULED);
+        given(testRunRepository.lockAllById(any())).willReturn(List.of(run));
+    }
+
+    @Test
+    void whenRunIsSplit_shouldPlanAPendingRowPerShard() {
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of());
+        TestRunUpdateDto plan = new TestRunUpdateDto();
+        plan.setRunId(run.getId());
+        plan.setStatus(TestRunStatus.RUNNING);
+        plan.setShardCount(2);
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(List.of(plan));
+
+        assertTrue(runUpdates.isEmpty());
+        List<TestRunShard> planned = insertedShards();
+        assertEquals(2, planned.size());
+        assertTrue(planned.stream().allMatch(shard -> shard.getStatus() == TestRunStatus.SCHEDULED && shard.getPlannedAt() != null));
+        verify(testCaseResultService, never()).append(any(), any());
+    }
+
+    @Test
+    void whenSomeShardsAreMissing_shouldOnlyRecordThem() {
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of());
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(List.of(shard(0, TestRunStatus.COMPLETED, null)));
+
+        // No plan from the worker: the rows are planned when the first shard arrives
+        assertTrue(runUpdates.isEmpty());
+        List<TestRunShard> shards = insertedShards();
+        assertEquals(TestRunStatus.COMPLETED, shards.get(0).getStatus());
+        assertEquals(TestRunStatus.SCHEDULED, shards.get(1).getStatus());
+    }
+
+    @Test
+    void whenLastShardArrives_shouldCombineAllShardsIntoTheRunResult() {
+        TestRunShard first = stored(0, TestRunStatus.FAILED, 2, "first failed", LocalDateTime.of(2024, 5, 1, 12, 0));
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of(first, pending(1)));
+        given(shardReportIndexWriter.write(eq(run.getId()), eq(TestRunStatus.FAILED), any()))
+                .willReturn("reports/run-" + run.getId() + ".html");
+        TestRunUpdateDto last = shard(1, TestRunStatus.COMPLETED, null);
+        last.setEndTime(LocalDateTime.of(2024, 5, 1, 12, 5));
+        TestRunUpdateDto plain = new TestRunUpdateDto();
+        plain.setRunId(UUID.randomUUID());
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(List.of(plain, last, last));
+
+        assertEquals(2, runUpdates.size());
+        assertSame(plain, runUpdates.get(0));
+        TestRunUpdateDto combined = runUpdates.get(1);
+        assertEquals(run.getId(), combined.getRunId());
+        assertEquals(TestRunStatus.FAILED, combined.getStatus());
+        assertEquals(2, combined.getFailedTestCount());
+        assertEquals("first failed", combined.getErrorMessage());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 5), combined.getEndTime());
+        assertEquals("reports/run-" + run.getId() + ".html", combined.getReportUrl());
+        assertFalse(combined.isShardResult());
+        verify(testCaseResultService).append(List.of(last), Map.of(run.getId(), run));
+    }
+
+    @Test
+    void whenShardWasRecordedBefore_shouldIgnoreTheRedelivery() {
+        TestRunShard first = stored(0, TestRunStatus.COMPLETED, 0, null, LocalDateTime.now());
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of(first, pending(1)));
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(List.of(shard(0, TestRunStatus.COMPLETED, null)));
+
+        assertTrue(runUpdates.isEmpty());
+        verify(testRunShardRepository, never()).insertAll(any(Collection.class));
+        verify(testCaseResultService, never()).append(any(), any());
+    }
+
+    @Test
+    void whenShardsDoNotReportInTime_shouldFailThePendingOnesAndCompleteTheRun() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(30);
+        TestRunShard first = stored(0, TestRunStatus.COMPLETED, 0, null, LocalDateTime.now());
+        TestRunShard second = pending(1);
+        given(testRunShardRepository.findPendingShardsPlannedBefore(List.of(TestRunStatus.SCHEDULED, TestRunStatus.RUNNING), cutoff))
+                .willReturn(List.of(second));
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of(first, second));
+
+        List<TestRunUpdateDto> missing = runShardService.missingShards(cutoff, 30);
+
+        assertEquals(1, missing.size());
+        assertEquals(1, missing.get(0).getShardIndex());
+        assertEquals(2, missing.get(0).getShardCount());
+        assertEquals(TestRunStatus.FAILED, missing.get(0).getStatus());
+        assertTrue(missing.get(0).isTimedOut());
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(missing);
+
+        assertEquals(1, runUpdates.size());
+        assertEquals(run.getId(), runUpdates.get(0).getRunId());
+        assertEquals(TestRunStatus.FAILED, runUpdates.get(0).getStatus());
+        assertEquals("Shard 1 did not report within 30 minutes", runUpdates.get(0).getErrorMessage());
+        assertTrue(second.isTimedOut());
+    }
+
+    @Test
+    void whenNoShardEverReports_shouldStillTimeOutFromThePlan() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(30);
+        List<TestRunShard> shards = List.of(pending(0), pending(1));
+        given(testRunShardRepository.findPendingShardsPlannedBefore(any(), any())).willReturn(shards);
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(shards);
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(runShardService.missingShards(cutoff, 30));
+
+        assertEquals(1, runUpdates.size());
+        assertEquals(TestRunStatus.FAILED, runUpdates.get(0).getStatus());
+        assertEquals("Shard 0 did not report within 30 minutes\nShard 1 did not report within 30 minutes",
+                runUpdates.get(0).getErrorMessage());
+    }
+
+    @Test
+    void whenATimedOutShardReportsAfterAll_shouldReplaceItsStandIn() {
+        TestRunShard timedOut = stored(0, TestRunStatus.FAILED, null, "Shard 0 did not report within 30 minutes", LocalDateTime.now());
+        timedOut.setTimedOut(true);
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of(timedOut, pending(1)));
+        TestRunUpdateDto late = shard(0, TestRunStatus.COMPLETED, null);
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(List.of(late));
+
+        assertTrue(runUpdates.isEmpty());
+        assertEquals(TestRunStatus.COMPLETED, timedOut.getStatus());
+        assertFalse(timedOut.isTimedOut());
+        assertNull(timedOut.getErrorMessage());
+        verify(testCaseResultService).append(List.of(late), Map.of(run.getId(), run));
+    }
+
+    @Test
+    void whenAStandInArrivesForAReportedShard_shouldKeepTheRealResult() {
+        TestRunShard reported = stored(1, TestRunStatus.COMPLETED, 0, null, LocalDateTime.now());
+        given(testRunShardRepository.lockByRunIdIn(any())).willReturn(List.of(pending(0), reported));
+        TestRunUpdateDto standIn = shard(1, TestRunStatus.FAILED, "Shard 1 did not report within 30 minutes");
+        standIn.setTimedOut(true);
+
+        List<TestRunUpdateDto> runUpdates = runShardService.collect(List.of(standIn));
+
+        assertTrue(runUpdates.isEmpty());
+        assertEquals(TestRunStatus.COMPLETED, reported.getStatus());
+    }
+
+    private TestRunUpdateDto shard(int index, TestRunStatus status, String error) {
+        TestRunUpdateDto update = new TestRunUpdateDto();
+        update.setRunId(run.getId());
+        update.setShardIndex(index);
+        update.setShardCount(2);
+        update.setStatus(status);
+        update.setErrorMessage(error);
+        update.setFailedTestCount(status == TestRunStatus.FAILED ? 1 : 0);
+        return update;
+    }
+
+    private TestRunShard stored(int index, TestRunStatus status, Integer failed, String error, LocalDateTime endTime) {
+        return new TestRunShard(UUID.randomUUID(), run.getId(), index, 2, status, failed, error, null, null, endTime,
+                LocalDateTime.now().minusMinutes(40), false);
+    }
+
+    private TestRunShard pending(int index) {
+        return stored(index, TestRunStatus.SCHEDULED, null, null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TestRunShard> insertedShards() {
+        ArgumentCaptor<Collection<TestRunShard>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(testRunShardRepository).insertAll(inserted.capture());
+        return inserted.getValue().stream().sorted(Comparator.comparingInt(TestRunShard::getShardIndex)).toList();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.RunStatusCounterRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RunSummaryServiceTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2026, 3, 2, 9, 0);
+    private static final LocalDateTime TEN = LocalDateTime.of(2026, 3, 2, 10, 0);
+
+    @Mock
+    private RunStatusCounterRepository counterRepository;
+
+    @InjectMocks
+    private RunSummaryService runSummaryService;
+
+    @Test
+    void whenStatusesChangeInBatch_shouldUpdateCountersInKeyOrder() {
+        TestRun staging = run("STAGING", TEN.plusMinutes(5), TestRunStatus.FAILED);
+        TestRun qaLate = run("QA", TEN.plusMinutes(30), TestRunStatus.COMPLETED);
+        TestRun qaEarly = run("QA", NINE.plusMinutes(45), TestRunStatus.COMPLETED);
+        Map<UUID, TestRunStatus> previous = Map.of(staging.getId(), TestRunStatus.RUNNING,
+                qaLate.getId(), TestRunStatus.RUNNING, qaEarly.getId(), TestRunStatus.RUNNING);
+
+        runSummaryService.recordStatusChanges(List.of(staging, qaLate, qaEarly), previous);
+
+        InOrder order = inOrder(counterRepository);
+        order.verify(counterRepository).increment("QA", NINE, "COMPLETED", 1);
+        order.verify(counterRepository).increment("QA", NINE, "RUNNING", -1);
+        order.verify(counterRepository).increment("QA", TEN, "COMPLETED", 1);
+        order.verify(counterRepository).increment("QA", TEN, "RUNNING", -1);
+        order.verify(counterRepository).increment("STAGING", TEN, "FAILED", 1);
+        order.verify(counterRepository).increment("STAGING", TEN, "RUNNING", -1);
+    }
+
+    @Test
+    void whenDeltasCancelOut_shouldSkipTheUpdate() {
+        TestRun finished = run("QA", NINE, TestRunStatus.COMPLETED);
+        TestRun retried = run("QA", NINE.plusMinutes(10), TestRunStatus.RUNNING);
+
+        runSummaryService.recordStatusChanges(List.of(finished, retried),
+                Map.of(finished.getId(), TestRunStatus.RUNNING, retried.getId(), TestRunStatus.COMPLETED));
+
+        verify(counterRepository, never()).increment(anyString(), any(), anyString(), anyLong());
+    }
+
+    private static TestRun run(String environment, LocalDateTime startTime, TestRunStatus status) {
+        TestRun run = new TestRun();
+        run.setId(UUID.randomUUID());
+        run.setEnvironment(environment);
+        run.setStartTime(startTime);
+        run.setStatus(status);
+        return run;
+    }
+}
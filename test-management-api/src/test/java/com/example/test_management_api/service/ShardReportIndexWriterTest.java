@@ -0,0 +1,54 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.model.TestRunShard;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardReportIndexWriterTest {
+
+    @TempDir
+    Path reportsDir;
+
+    @Test
+    void listsEveryShardInOrderAndLinksItsReport() throws IOException {
+        UUID runId = UUID.randomUUID();
+        TestRunShard second = shard(runId, 1, TestRunStatus.FAILED, "reports/run-" + runId + "-shard-2.html", "<b>boom</b>");
+        TestRunShard first = shard(runId, 0, TestRunStatus.COMPLETED, "reports/run-" + runId + "-shard-1.html", null);
+
+        String reportUrl = new ShardReportIndexWriter(reportsDir.toString()).write(runId, TestRunStatus.FAILED, List.of(second, first));
+
+        assertEquals("reports/run-" + runId + ".html", reportUrl);
+        String html = Files.readString(reportsDir.resolve("run-" + runId + ".html"));
+        int firstLink = html.indexOf("href=\"run-" + runId + "-shard-1.html\"");
+        int secondLink = html.indexOf("href=\"run-" + runId + "-shard-2.html\"");
+        assertTrue(firstLink > 0);
+        assertTrue(secondLink > firstLink);
+        assertTrue(html.contains("&lt;b&gt;boom&lt;/b&gt;"));
+        assertFalse(Files.exists(reportsDir.resolve("run-" + runId + ".html.part")));
+    }
+
+    @Test
+    void returnsNullWhenTheReportCannotBeWritten() throws IOException {
+        Path notADirectory = Files.writeString(reportsDir.resolve("file"), "x");
+
+        String reportUrl = new ShardReportIndexWriter(notADirectory.toString())
+                .write(UUID.randomUUID(), TestRunStatus.COMPLETED, List.of());
+
+        assertNull(reportUrl);
+    }
+
+    private static TestRunShard shard(UUID runId, int index, TestRunStatus status, String reportUrl, String error) {
+        return new TestRunShard(UUID.randomUUID(), runId, index, 2, status, status == TestRunStatus.FAILED ? 1 : 0,
+                error, reportUrl, null, LocalDateTime.now(), LocalDateTime.now().minusMinutes(5), false);
+    }
+}
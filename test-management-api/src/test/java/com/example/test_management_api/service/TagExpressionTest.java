@@ -0,0 +1,26 @@
+package com.example.test_management_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagExpressionTest {
+
+    @Test
+    void selectingTagsLeaveOutNegatedOnes() {
+        assertEquals(Set.of("api", "smoke"), TagExpression.selectingTags("API, Smoke"));
+        assertEquals(Set.of("api", "ui"), TagExpression.selectingTags("(api | ui) & !smoke"));
+        assertEquals(Set.of("smoke"), TagExpression.selectingTags("not not smoke"));
+        assertEquals(Set.of("ui", "smoke test"), TagExpression.selectingTags("ui and not (slow or flaky) | smoke  test"));
+    }
+
+    @Test
+    void rejectsWhatTheWorkersCannotParse() {
+        assertThrows(IllegalArgumentException.class, () -> TagExpression.selectingTags(" "));
+        assertThrows(IllegalArgumentException.class, () -> TagExpression.selectingTags("smoke |"));
+        assertThrows(IllegalArgumentException.class, () -> TagExpression.selectingTags("(smoke & ui"));
+        assertThrows(IllegalArgumentException.class, () -> TagExpression.selectingTags("smoke (ui)"));
+    }
+}
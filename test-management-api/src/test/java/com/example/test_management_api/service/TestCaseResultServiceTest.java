@@ -0,0 +1,172 @@
+package com.example.test_management_api.service;
+
+import com.example.test_management_api.dtos.TestCaseResultDto;
+import com.example.test_management_api.dtos.TestRunUpdateDto;
+import com.example.test_management_api.model.TestCaseResult;
+import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.TestRunStatus;
+import com.example.test_management_api.repository.TestCaseResultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TestCaseResultServiceTest {
+
+    private static final LocalDateTime FINISHED = LocalDateTime.of(2026, 3, 2, 10, 15);
+
+    @Mock
+    private TestCaseResultRepository testCaseResultRepository;
+
+    @Mock
+    private TestRollupService testRollupService;
+
+    @InjectMocks
+    private TestCaseResultService testCaseResultService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(testCaseResultService, "maxLimit", 1000);
+    }
+
+    @Test
+    void whenRunsAreRecorded_shouldReplaceTheirResultsAndRollUpOnlyNewOnes() {
+        TestRun fresh = run();
+        TestRun redelivered = run();
+        TestRun withoutResults = run();
+        Map<UUID, TestRunUpdateDto> updates = Map.of(
+                fresh.getId(), update(result("ApiTests.a", 120L), result("ApiTests.b", 80L)),
+                redelivered.getId(), update(result("UiTests.c", 3000L)),
+                withoutResults.getId(), update());
+        given(testCaseResultRepository.findRunIdsWithResults(List.of(fresh.getId(), redelivered.getId())))
+                .willReturn(List.of(redelivered.getId()));
+
+        testCaseResultService.record(List.of(fresh, redelivered, withoutResults), updates);
+
+        verify(testCaseResultRepository).deleteByRunIdIn(List.of(fresh.getId(), redelivered.getId()));
+        List<TestCaseResult> inserted = captureInserted();
+        assertEquals(List.of("ApiTests.a", "ApiTests.b", "UiTests.c"), inserted.stream().map(TestCaseResult::getTestName).toList());
+        TestCaseResult first = inserted.get(0);
+        assertEquals(fresh.getId(), first.getRunId());
+        assertEquals("QA", first.getEnvironment());
+        assertEquals(FINISHED, first.getRecordedAt());
+        assertEquals(120L, first.getDurationMs());
+        assertNotNull(first.getId());
+        // The redelivered run was rolled up the first time round
+        ArgumentCaptor<List<TestCaseResult>> rolledUp = listCaptor();
+        verify(testRollupService).record(rolledUp.capture());
+        assertEquals(List.of("ApiTests.a", "ApiTests.b"), rolledUp.getValue().stream().map(TestCaseResult::getTestName).toList());
+    }
+
+    @Test
+    void whenNoRunCarriesResults_shouldLeaveStoredResultsAlone() {
+        TestRun run = run();
+
+        testCaseResultService.record(run, update());
+
+        verifyNoInteractions(testCaseResultRepository, testRollupService);
+    }
+
+    @Test
+    void whenShardsAreAppended_shouldStampThemWithTheShardsEndTime() {
+        TestRun run = run();
+        TestRunUpdateDto shard = update(result("ApiTests.a", 10L));
+        shard.setRunId(run.getId());
+        shard.setEndTime(FINISHED.minusMinutes(5));
+        TestRunUpdateDto standIn = update();
+        standIn.setRunId(run.getId());
+        standIn.setTestCaseResults(null);
+
+        testCaseResultService.append(List.of(shard, standIn), Map.of(run.getId(), run));
+
+        List<TestCaseResult> inserted = captureInserted();
+        assertEquals(1, inserted.size());
+        assertEquals(FINISHED.minusMinutes(5), inserted.get(0).getRecordedAt());
+        verify(testCaseResultRepository, never()).deleteByRunIdIn(any());
+        verify(testRollupService).record(inserted);
+    }
+
+    @Test
+    void whenSearching_shouldClampTheLimitAndSortAsAsked() {
+        ReflectionTestUtils.setField(testCaseResultService, "maxLimit", 50);
+        LocalDateTime from = FINISHED.minusDays(1);
+
+        testCaseResultService.search("ApiTests.a", TestRunStatus.FAILED, "QA", 1000L, from, FINISHED, "DURATION", 10_000);
+        testCaseResultService.search(null, null, null, null, null, null, "recent", 0);
+
+        ArgumentCaptor<Pageable> pages = ArgumentCaptor.forClass(Pageable.class);
+        verify(testCaseResultRepository).search(eq("ApiTests.a"), eq(TestRunStatus.FAILED), eq("QA"), eq(1000L), eq(from),
+                eq(FINISHED), pages.capture());
+        verify(testCaseResultRepository).search(eq(null), eq(null), eq(null), eq(null), eq(null), eq(null), pages.capture());
+        Pageable slowest = pages.getAllValues().get(0);
+        assertEquals(50, slowest.getPageSize());
+        assertEquals(0, slowest.getPageNumber());
+        assertEquals(Sort.by(Sort.Direction.DESC, "durationMs"), slowest.getSort());
+        Pageable recent = pages.getAllValues().get(1);
+        assertEquals(1, recent.getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "recordedAt"), recent.getSort());
+    }
+
+    private List<TestCaseResult> captureInserted() {
+        ArgumentCaptor<Collection<TestCaseResult>> inserted = collectionCaptor();
+        verify(testCaseResultRepository).insertAll(inserted.capture());
+        return new ArrayList<>(inserted.getValue());
+    }
+
+    private static TestRun run() {
+        TestRun run = new TestRun();
+        run.setId(UUID.randomUUID());
+        run.setEnvironment("QA");
+        run.setStatus(TestRunStatus.COMPLETED);
+        run.setEndTime(FINISHED);
+        return run;
+    }
+
+    private static TestRunUpdateDto update(TestCaseResultDto... results) {
+        TestRunUpdateDto update = new TestRunUpdateDto();
+        update.setStatus(TestRunStatus.COMPLETED);
+        update.setTestCaseResults(List.of(results));
+        return update;
+    }
+
+    private static TestCaseResultDto result(String testName, Long durationMs) {
+        TestCaseResultDto result = new TestCaseResultDto();
+        result.setTestName(testName);
+        result.setStatus(TestRunStatus.COMPLETED);
+        result.setAttempts(1);
+        result.setDurationMs(durationMs);
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<Collection<TestCaseResult>> collectionCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(Collection.class);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<List<TestCaseResult>> listCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+}
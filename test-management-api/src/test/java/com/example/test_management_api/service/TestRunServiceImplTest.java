@@ -1,6 +1,13 @@
 package com.example.test_management_api.service;
+import com.example.test_management_api.dtos.CreateTestRunRequestDto;
+import com.example.test_management_api.dtos.RunEventDto;
+import com.example.test_management_api.dtos.TestRunCursor;
+import com.example.test_management_api.dtos.TestRunListItem;
+import com.example.test_management_api.dtos.TestRunPageDto;
+import com.example.test_management_api.dtos.TestRunUpdateDto;
 import com.example.test_management_api.service.impl.TestRunServiceImpl;
 import com.example.test_management_api.model.TestRun;
+import com.example.test_management_api.model.enums.RunPriority;
 import com.example.test_management_api.model.enums.TestRunStatus;
 import com.example.test_management_api.repository.TestRunRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -10,15 +17,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.BDDMockito.given; // BDDMockito style for given/when/then
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @Slf4j
@@ -28,6 +45,21 @@ class TestRunServiceImplTest {
     @Mock
     private TestRunRepository testRunRepository;
 
+    @Mock
+    private RunSummaryService runSummaryService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private TestCaseResultService testCaseResultService;
+
     @InjectMocks // Creates a real instance of TestRunServiceImpl and injects the mocks (@Mock) into it
     private TestRunServiceImpl testRunService;
 
@@ -53,86 +85,297 @@ class TestRunServiceImplTest {
         run3_completed_staging.setId(UUID.randomUUID());
         run3_completed_staging.setStatus(TestRunStatus.COMPLETED);
         run3_completed_staging.setEnvironment("Staging");
+
+        run1_failed_qa.setStartTime(LocalDateTime.of(2024, 5, 3, 10, 0));
+        run2_completed_qa.setStartTime(LocalDateTime.of(2024, 5, 2, 10, 0));
+        run3_completed_staging.setStartTime(LocalDateTime.of(2024, 5, 1, 10, 0));
+
+        ReflectionTestUtils.setField(testRunService, "maxPageSize", 500);
     }
 
 
     @Test
-    void whenFindByStatusOnly_shouldCallRepositoryFindByStatus() {
-        TestRunStatus filterStatus = TestRunStatus.FAILED;
-        String filterEnvironment = null;
-        List<TestRun> expectedRuns = List.of(run1_failed_qa);
+    void whenPageFilteredByStatusOnly_shouldPassTheStatusThrough() {
+        given(testRunRepository.findFirstPage(TestRunStatus.FAILED, null, PageRequest.of(0, 51)))
+                .willReturn(List.of(listItem(run1_failed_qa)));
+
+        TestRunPageDto page = testRunService.getTestRunPage(TestRunStatus.FAILED, null, null, 50);
 
-        given(testRunRepository.findByStatus(filterStatus)).willReturn(expectedRuns);
+        assertEquals(1, page.getSize());
+        assertEquals(run1_failed_qa.getId(), page.getItems().get(0).getId());
+        assertEquals(TestRunStatus.FAILED, page.getItems().get(0).getStatus());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void whenPageFilteredByEnvironmentOnly_shouldPassTheEnvironmentThrough() {
+        given(testRunRepository.findFirstPage(null, "QA", PageRequest.of(0, 51)))
+                .willReturn(List.of(listItem(run1_failed_qa), listItem(run2_completed_qa)));
 
-        List<TestRun> actualRuns = testRunService.getAllTestsByCriteria(filterStatus, filterEnvironment);
+        TestRunPageDto page = testRunService.getTestRunPage(null, "QA", null, 50);
 
-        assertNotNull(actualRuns);
-        assertEquals(1, actualRuns.size());
-        assertEquals(run1_failed_qa.getId(), actualRuns.get(0).getId());
-        assertEquals(filterStatus, actualRuns.get(0).getStatus());
+        assertEquals(2, page.getSize());
+        assertEquals(run1_failed_qa.getId(), page.getItems().get(0).getId());
+        assertEquals(run2_completed_qa.getId(), page.getItems().get(1).getId());
     }
 
     @Test
-    void whenFindByEnvironmentOnly_shouldCallRepositoryFindByEnvironment(){
-        TestRunStatus status=null;
-        String environment="QA";
-        List<TestRun> expectedRuns=List.of(run1_failed_qa,run2_completed_qa);
-        given(testRunRepository.findByEnvironment(environment)).willReturn(expectedRuns);
-        List<TestRun> actualRuns=testRunService.getAllTestsByCriteria(status,environment);
-        assertNotNull(actualRuns);
-        assertEquals(2,actualRuns.size());
-        assertEquals(run1_failed_qa.getId(),actualRuns.get(0).getId());
-        assertEquals(run2_completed_qa.getId(),actualRuns.get(1).getId());
+    void whenPageFilteredByStatusAndEnvironment_shouldPassBothThrough() {
+        given(testRunRepository.findFirstPage(TestRunStatus.COMPLETED, "QA", PageRequest.of(0, 51)))
+                .willReturn(List.of(listItem(run2_completed_qa)));
+
+        TestRunPageDto page = testRunService.getTestRunPage(TestRunStatus.COMPLETED, "QA", null, 50);
+
+        assertEquals(1, page.getSize());
+        assertEquals(run2_completed_qa.getId(), page.getItems().get(0).getId());
+        verify(testRunRepository, never()).findAll();
     }
 
     @Test
-    void whenFindByStatusAndEnvironment_shouldCallRepositoryFindByStatusAndEnvironment(){
-        //step 1
-        TestRunStatus status = TestRunStatus.COMPLETED;
-        String environment="QA";
-        List<TestRun> expectedRuns=List.of(run2_completed_qa);
+    void whenPageSizeIsOutOfRange_shouldClampIt() {
+        given(testRunRepository.findFirstPage(null, null, PageRequest.of(0, 501))).willReturn(List.of());
+        given(testRunRepository.findFirstPage(null, null, PageRequest.of(0, 2))).willReturn(List.of());
+
+        assertEquals(0, testRunService.getTestRunPage(null, null, null, 100_000).getSize());
+        assertEquals(0, testRunService.getTestRunPage(null, null, null, 0).getSize());
+        verify(testRunRepository, never()).findAll();
+    }
 
-        given(testRunRepository.findByStatusAndEnvironment(status,environment)).willReturn(expectedRuns);
-        //step 2
+    @Test
+    void whenMoreRowsThanPageSize_shouldTrimPageAndReturnCursorOfLastRow() {
+        // The service asks for size + 1 rows to detect a following page
+        given(testRunRepository.findFirstPage(null, null, PageRequest.of(0, 3)))
+                .willReturn(List.of(listItem(run1_failed_qa), listItem(run2_completed_qa), listItem(run3_completed_staging)));
 
-        List<TestRun> actualRuns = testRunService.getAllTestsByCriteria(TestRunStatus.COMPLETED, "QA");
+        TestRunPageDto page = testRunService.getTestRunPage(null, null, null, 2);
 
-        //step 3
-        assertNotNull(actualRuns);
-        assertEquals(1, actualRuns.size());
-        assertEquals(run2_completed_qa.getId(), actualRuns.get(0).getId());
-        verify(testRunRepository).findByStatusAndEnvironment(TestRunStatus.COMPLETED, "QA"); // Check this WAS called
-        verify(testRunRepository, never()).findByStatus(any());
-        verify(testRunRepository, never()).findByEnvironment(any());
+        assertEquals(2, page.getSize());
+        assertEquals(List.of(listItem(run1_failed_qa), listItem(run2_completed_qa)), page.getItems());
+        TestRunCursor next = TestRunCursor.decode(page.getNext());
+        assertEquals(run2_completed_qa.getStartTime(), next.startTime());
+        assertEquals(run2_completed_qa.getId(), next.id());
         verify(testRunRepository, never()).findAll();
     }
 
+    @Test
+    void whenCursorGiven_shouldSeekPastItAndReturnNoCursorOnLastPage() {
+        String cursor = new TestRunCursor(run2_completed_qa.getStartTime(), run2_completed_qa.getId()).encode();
+        given(testRunRepository.findPageAfter(eq(null), eq("QA"), eq(run2_completed_qa.getStartTime()),
+                eq(run2_completed_qa.getId()), any())).willReturn(List.of(listItem(run3_completed_staging)));
+
+        TestRunPageDto page = testRunService.getTestRunPage(null, "QA", cursor, 2);
+
+        assertEquals(1, page.getSize());
+        assertNull(page.getNext());
+    }
 
     @Test
-    void whenNoFilters_shouldCallRepositoryFindAll() { // Renamed for clarity
-        TestRunStatus filterStatus = null; // No status filter
-        String filterEnvironment = null;   // No environment filter
+    void whenCursorIsGarbage_shouldRejectIt() {
+        assertThrows(IllegalArgumentException.class,
+                () -> testRunService.getTestRunPage(null, null, "not-a-cursor", 10));
+    }
 
-        List<TestRun> expectedRuns = List.of(run1_failed_qa, run2_completed_qa, run3_completed_staging);
+    @Test
+    void whenRunCreated_shouldCountItAsScheduled() {
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
 
-        given(testRunRepository.findAll()).willReturn(expectedRuns);
+        TestRun created = testRunService.createTestRun(new CreateTestRunRequestDto("QA", "smoke"));
 
+        assertEquals(TestRunStatus.SCHEDULED, created.getStatus());
+        assertEquals(7, created.getId().version());
+        verify(runSummaryService).recordCreated(created);
+        verify(outboxService).enqueueTestRunJob(created);
+    }
 
-        List<TestRun> actualRuns = testRunService.getAllTestsByCriteria(filterStatus, filterEnvironment);
+    @Test
+    void whenRunCreated_shouldDerivePriorityUnlessGivenExplicitly() {
+        ReflectionTestUtils.setField(testRunService, "highPriorityTags", List.of("smoke"));
+        ReflectionTestUtils.setField(testRunService, "highPriorityEnvironments", List.of("PROD"));
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
 
-        assertNotNull(actualRuns);
-        assertEquals(3, actualRuns.size());
-        // Check if the IDs match (order doesn't matter)
-        List<UUID> actualIds = actualRuns.stream().map(TestRun::getId).collect(Collectors.toList());
-        assertTrue(actualIds.contains(run1_failed_qa.getId()));
-        assertTrue(actualIds.contains(run2_completed_qa.getId()));
-        assertTrue(actualIds.contains(run3_completed_staging.getId()));
+        assertEquals(RunPriority.HIGH, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "api, Smoke")).getPriority());
+        assertEquals(RunPriority.HIGH, testRunService.createTestRun(new CreateTestRunRequestDto("prod", "regression")).getPriority());
+        assertEquals(RunPriority.NORMAL, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "regression")).getPriority());
+        assertEquals(RunPriority.NORMAL,
+                testRunService.createTestRun(new CreateTestRunRequestDto("QA", "smoke", RunPriority.NORMAL)).getPriority());
+    }
 
+    @Test
+    void whenTagsAreAnExpression_shouldReadThemWithTheWorkersGrammar() {
+        ReflectionTestUtils.setField(testRunService, "highPriorityTags", List.of("smoke", "login page"));
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
+
+        assertEquals(RunPriority.HIGH, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "smoke | api")).getPriority());
+        assertEquals(RunPriority.HIGH, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "(SMOKE & ui)")).getPriority());
+        assertEquals(RunPriority.HIGH, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "ui & Login  Page")).getPriority());
+        assertEquals(RunPriority.NORMAL, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "api & !smoke")).getPriority());
+        assertEquals(RunPriority.NORMAL, testRunService.createTestRun(new CreateTestRunRequestDto("QA", "smoketest")).getPriority());
+        assertThrows(IllegalArgumentException.class,
+                () -> testRunService.createTestRun(new CreateTestRunRequestDto("QA", "smoke &", RunPriority.HIGH)));
+        verify(testRunRepository, times(5)).save(any(TestRun.class));
+    }
+
+    @Test
+    void whenBatchCreated_shouldInsertRunsCountersAndJobsTogether() {
+        ReflectionTestUtils.setField(testRunService, "maxBatchSize", 10);
 
-        verify(testRunRepository).findAll();
-        verify(testRunRepository, never()).findByStatus(any());
-        verify(testRunRepository, never()).findByEnvironment(any());
-        verify(testRunRepository, never()).findByStatusAndEnvironment(any(), any());
+        List<TestRun> created = testRunService.createTestRuns(List.of(
+                new CreateTestRunRequestDto("QA", "api"), new CreateTestRunRequestDto("Staging", "ui")));
+
+        assertEquals(2, created.size());
+        assertTrue(created.stream().allMatch(run -> run.getStatus() == TestRunStatus.SCHEDULED));
+        verify(testRunRepository).insertAll(created);
+        verify(runSummaryService).recordCreated(created);
+        verify(outboxService).enqueueTestRunJobs(created);
     }
 
-}
\ No newline at end of file
+    @Test
+    void whenBatchHasABadElement_shouldRejectItWithoutWritingAnything() {
+        ReflectionTestUtils.setField(testRunService, "maxBatchSize", 10);
+        List<CreateTestRunRequestDto> batch = new ArrayList<>();
+        batch.add(new CreateTestRunRequestDto("QA", "api"));
+        batch.add(null);
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> testRunService.createTestRuns(batch));
+
+        assertTrue(rejected.getMessage().contains("Run 1"));
+        verify(testRunRepository, never()).insertAll(any());
+        verify(outboxService, never()).enqueueTestRunJobs(any());
+    }
+
+    @Test
+    void whenBatchIsEmptyOrTooLarge_shouldRejectIt() {
+        ReflectionTestUtils.setField(testRunService, "maxBatchSize", 1);
+
+        assertThrows(IllegalArgumentException.class, () -> testRunService.createTestRuns(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> testRunService.createTestRuns(List.of(
+                new CreateTestRunRequestDto("QA", "api"), new CreateTestRunRequestDto("QA", "ui"))));
+        verify(testRunRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void whenRunUpdated_shouldMoveItBetweenStatusCounters() {
+        TestRun running = new TestRun();
+        running.setId(UUID.randomUUID());
+        running.setStatus(TestRunStatus.RUNNING);
+        given(testRunRepository.lockAllById(List.of(running.getId()))).willReturn(List.of(running));
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
+        TestRunUpdateDto update = new TestRunUpdateDto();
+        update.setStatus(TestRunStatus.FAILED);
+
+        TestRun updated = testRunService.updateTestRunStatus(running.getId(), update);
+
+        assertEquals(TestRunStatus.FAILED, updated.getStatus());
+        verify(runSummaryService).recordStatusChange(updated, TestRunStatus.RUNNING);
+        verify(eventPublisher).publishEvent(RunEventDto.of(updated, TestRunStatus.RUNNING));
+    }
+
+    @Test
+    void whenResultsArriveInBatch_shouldApplyThemWithOneLookupAndSkipUnknownRuns() {
+        TestRun running = new TestRun();
+        running.setId(UUID.randomUUID());
+        running.setStatus(TestRunStatus.RUNNING);
+        UUID unknownId = UUID.randomUUID();
+        given(testRunRepository.lockAllById(any())).willReturn(List.of(running));
+
+        TestRunUpdateDto stale = new TestRunUpdateDto();
+        stale.setRunId(running.getId());
+        stale.setStatus(TestRunStatus.FAILED);
+        TestRunUpdateDto latest = new TestRunUpdateDto();
+        latest.setRunId(running.getId());
+        latest.setStatus(TestRunStatus.COMPLETED);
+        latest.setEndTime(LocalDateTime.of(2024, 5, 1, 12, 0));
+        TestRunUpdateDto unknown = new TestRunUpdateDto();
+        unknown.setRunId(unknownId);
+        unknown.setStatus(TestRunStatus.COMPLETED);
+
+        int applied = testRunService.applyTestRunUpdates(List.of(stale, latest, unknown));
+
+        assertEquals(1, applied);
+        assertEquals(TestRunStatus.COMPLETED, running.getStatus());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 0), running.getEndTime());
+        verify(testRunRepository).lockAllById(Set.of(running.getId(), unknownId));
+        verify(runSummaryService).recordStatusChanges(List.of(running), Map.of(running.getId(), TestRunStatus.RUNNING));
+        verify(testCaseResultService).record(List.of(running), Map.of(running.getId(), latest, unknownId, unknown));
+        verify(eventPublisher).publishEvent(RunEventDto.of(running, TestRunStatus.RUNNING));
+    }
+
+    @Test
+    void whenRunningRunCancelled_shouldMarkItAndBroadcastTheSignal() {
+        TestRun running = new TestRun();
+        running.setId(UUID.randomUUID());
+        running.setStatus(TestRunStatus.RUNNING);
+        given(testRunRepository.lockAllById(List.of(running.getId()))).willReturn(List.of(running));
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
+
+        TestRun cancelled = testRunService.cancelTestRun(running.getId());
+
+        assertEquals(TestRunStatus.CANCELLED, cancelled.getStatus());
+        assertNotNull(cancelled.getEndTime());
+        verify(runSummaryService).recordStatusChange(cancelled, TestRunStatus.RUNNING);
+        verify(outboxService).enqueueCancelSignal(cancelled);
+        verify(outboxService, never()).discardTestRunJob(any());
+        verify(eventPublisher).publishEvent(RunEventDto.of(cancelled, TestRunStatus.RUNNING));
+    }
+
+    @Test
+    void whenScheduledRunCancelledBeforeItsJobWentOut_shouldDiscardTheJobInsteadOfBroadcasting() {
+        TestRun scheduled = new TestRun();
+        scheduled.setId(UUID.randomUUID());
+        scheduled.setStatus(TestRunStatus.SCHEDULED);
+        given(testRunRepository.lockAllById(List.of(scheduled.getId()))).willReturn(List.of(scheduled));
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
+        given(outboxService.discardTestRunJob(scheduled)).willReturn(true);
+
+        TestRun cancelled = testRunService.cancelTestRun(scheduled.getId());
+
+        assertEquals(TestRunStatus.CANCELLED, cancelled.getStatus());
+        verify(runSummaryService).recordStatusChange(cancelled, TestRunStatus.SCHEDULED);
+        verify(outboxService, never()).enqueueCancelSignal(any());
+    }
+
+    @Test
+    void whenScheduledRunCancelledAfterItsJobWentOut_shouldBroadcastTheSignal() {
+        TestRun scheduled = new TestRun();
+        scheduled.setId(UUID.randomUUID());
+        scheduled.setStatus(TestRunStatus.SCHEDULED);
+        given(testRunRepository.lockAllById(List.of(scheduled.getId()))).willReturn(List.of(scheduled));
+        given(testRunRepository.save(any(TestRun.class))).will(returnsFirstArg());
+        given(outboxService.discardTestRunJob(scheduled)).willReturn(false);
+
+        TestRun cancelled = testRunService.cancelTestRun(scheduled.getId());
+
+        verify(outboxService).enqueueCancelSignal(cancelled);
+    }
+
+    @Test
+    void whenFinishedRunCancelled_shouldRejectIt() {
+        given(testRunRepository.lockAllById(List.of(run2_completed_qa.getId()))).willReturn(List.of(run2_completed_qa));
+
+        assertThrows(IllegalStateException.class, () -> testRunService.cancelTestRun(run2_completed_qa.getId()));
+        verify(outboxService, never()).enqueueCancelSignal(any());
+    }
+
+    @Test
+    void whenResultArrivesForCancelledRun_shouldKeepItCancelled() {
+        TestRun cancelled = new TestRun();
+        cancelled.setId(UUID.randomUUID());
+        cancelled.setStatus(TestRunStatus.CANCELLED);
+        given(testRunRepository.lockAllById(any())).willReturn(List.of(cancelled));
+        TestRunUpdateDto late = new TestRunUpdateDto();
+        late.setRunId(cancelled.getId());
+        late.setStatus(TestRunStatus.FAILED);
+
+        int applied = testRunService.applyTestRunUpdates(List.of(late));
+
+        assertEquals(0, applied);
+        assertEquals(TestRunStatus.CANCELLED, cancelled.getStatus());
+        verify(eventPublisher, never()).publishEvent(any(RunEventDto.class));
+    }
+
+    private static TestRunListItem listItem(TestRun run) {
+        return new TestRunListItem(run.getId(), run.getStatus(), run.getStartTime(), run.getEndTime(),
+                run.getReportUrl(), run.getEnvironment(), run.getTags(), run.getFailedTestCount());
+    }
+}
@@ -2,8 +2,10 @@ package com.example.test_runner_worker.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
@@ -15,6 +17,7 @@ import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainer
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
@@ -26,15 +29,48 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.listeners.max-concurrent:10}")
     private int maxConcurrentConsumers;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${rabbitmq.listeners.high-concurrent:2}")
+    private int highPriorityConsumers;
+
     @Value("${rabbitmq.queue.name}")
     private String queueName;
 
+    @Value("${rabbitmq.queue.high-name}")
+    private String highPriorityQueueName;
+
+    @Value("${rabbitmq.shards.queue.name}")
+    private String shardsQueueName;
+
+    @Value("${rabbitmq.shards.routing.key}")
+    private String shardsRoutingKey;
+
+    @Value("${rabbitmq.listeners.shard-concurrent:5}")
+    private int shardConsumers;
+
     @Value("${rabbitmq.exchange.name}")
     private String exchangeName;
 
     @Value("${rabbitmq.routing.key}")
     private String routingKey;
 
+    @Value("${rabbitmq.routing.high-key}")
+    private String highPriorityRoutingKey;
+
+    @Value("${rabbitmq.cancel.exchange.name}")
+    private String cancelExchangeName;
+
+    @Value("${rabbitmq.results.queue.name}")
+    private String resultsQueueName;
+
+    @Value("${rabbitmq.results.exchange.name}")
+    private String resultsExchangeName;
+
+    @Value("${rabbitmq.results.routing.key}")
+    private String resultsRoutingKey;
+
     @Bean
     public Queue queue() {
         return new Queue(queueName, true);
@@ -50,7 +86,61 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(queue).to(exchange).with(routingKey);
     }
 
-    // This bean configures the JSON converter for *receiving* messages
+    // Lane for high-priority runs (smoke checks); it has its own consumers, so it never waits behind the regular backlog
+    @Bean
+    public Queue highPriorityQueue() {
+        return new Queue(highPriorityQueueName, true);
+    }
+
+    @Bean
+    public Binding highPriorityBinding(Queue highPriorityQueue, TopicExchange exchange) {
+        return BindingBuilder.bind(highPriorityQueue).to(exchange).with(highPriorityRoutingKey);
+    }
+
+    // Shards of sharded runs, published by the worker that picked up the run and executed by any worker
+    @Bean
+    public Queue shardsQueue() {
+        return new Queue(shardsQueueName, true);
+    }
+
+    @Bean
+    public Binding shardsBinding(Queue shardsQueue, TopicExchange exchange) {
+        return BindingBuilder.bind(shardsQueue).to(exchange).with(shardsRoutingKey);
+    }
+
+    // Cancel signals are broadcast; every worker gets its own exclusive, auto-deleted queue on the fanout exchange
+    @Bean
+    public FanoutExchange cancelExchange() {
+        return new FanoutExchange(cancelExchangeName);
+    }
+
+    @Bean
+    public Queue cancelQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cancelBinding(Queue cancelQueue, FanoutExchange cancelExchange) {
+        return BindingBuilder.bind(cancelQueue).to(cancelExchange);
+    }
+
+    // Results go back to the API over this exchange; the queue is declared here too so nothing is dropped if the API starts later
+    @Bean
+    public Queue resultsQueue() {
+        return new Queue(resultsQueueName, true);
+    }
+
+    @Bean
+    public TopicExchange resultsExchange() {
+        return new TopicExchange(resultsExchangeName);
+    }
+
+    @Bean
+    public Binding resultsBinding(Queue resultsQueue, TopicExchange resultsExchange) {
+        return BindingBuilder.bind(resultsQueue).to(resultsExchange).with(resultsRoutingKey);
+    }
+
+    // This bean configures the JSON converter for receiving jobs and sending results
     @Bean
     public MessageConverter jsonMessageConverter() {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -59,8 +149,12 @@ public class RabbitMQConfig {
     }
 
     // This bean creates the thread pool for parallel listeners
+    // (in virtual-thread mode each consumer gets a virtual thread; the consumer counts still cap how many runs we take)
     @Bean
     public TaskExecutor rabbitListenerExecutor() {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("RabbitWorker-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(concurrentConsumers);
         executor.setMaxPoolSize(maxConcurrentConsumers);
@@ -85,9 +179,58 @@ public class RabbitMQConfig {
         factory.setConcurrentConsumers(concurrentConsumers);
         factory.setMaxConcurrentConsumers(maxConcurrentConsumers);
 
+        // A run can take many minutes; only take a job when a consumer is free to start it, so queued jobs stay
+        // with the broker (and go to whichever worker frees up first)
+        factory.setPrefetchCount(1);
+
         // Set the message converter
         factory.setMessageConverter(jsonMessageConverter());
 
         return factory;
     }
-}
\ No newline at end of file
+
+    // Fixed consumers reserved for the high-priority lane
+    @Bean
+    public SimpleRabbitListenerContainerFactory highPriorityListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            SimpleRabbitListenerContainerFactoryConfigurer configurer) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(highPriorityConsumers);
+        factory.setMaxConcurrentConsumers(highPriorityConsumers);
+        factory.setPrefetchCount(1);
+        factory.setMessageConverter(jsonMessageConverter());
+        return factory;
+    }
+
+    // Consumers for shards, separate from the job consumers so splitting a run never waits on its own shards
+    @Bean
+    public SimpleRabbitListenerContainerFactory shardListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            SimpleRabbitListenerContainerFactoryConfigurer configurer) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(shardConsumers);
+        factory.setMaxConcurrentConsumers(shardConsumers);
+        // One shard at a time per consumer, so shards spread over all workers instead of piling up on the first one
+        factory.setPrefetchCount(1);
+        factory.setMessageConverter(jsonMessageConverter());
+        return factory;
+    }
+
+    // A single consumer for cancel signals, on its own threads so it is never stuck behind busy job consumers
+    @Bean
+    public SimpleRabbitListenerContainerFactory cancelListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            SimpleRabbitListenerContainerFactoryConfigurer configurer) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setMessageConverter(jsonMessageConverter());
+        return factory;
+    }
+}
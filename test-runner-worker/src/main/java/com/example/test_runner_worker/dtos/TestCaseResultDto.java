@@ -0,0 +1,17 @@
+package com.example.test_runner_worker.dtos;
+
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import lombok.Data;
+
+// Outcome of one @Test method within a run, sent to the API alongside the run result.
+@Data
+public class TestCaseResultDto {
+    private String testName;
+    private String tags;
+    private TestRunStatus status;
+    private int attempts;
+    private Long durationMs;
+    private String errorMessage;
+    private String reportUrl;
+    private String screenshotPath;
+}
@@ -1,8 +1,10 @@
 package com.example.test_runner_worker.dtos;
 
 import com.example.test_runner_worker.model.enums.TestRunStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.List;
 
 // This DTO holds the *result* of a single test execution.
 @Data
@@ -19,4 +21,11 @@ public class TestResult {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private Long durationMs;
+    // How many attempts the test needed (set by TestExecutorService)
+    private int attempts;
+    // What the test failed with, so the executor can tell a timeout (worth a retry) from an assertion; never sent
+    @JsonIgnore
+    private Throwable failureCause;
+    // Per-test breakdown, only set on the aggregated result of a run
+    private List<TestCaseResultDto> testCaseResults;
 }
\ No newline at end of file
@@ -3,13 +3,27 @@ package com.example.test_runner_worker.dtos;
 import com.example.test_runner_worker.model.enums.TestRunStatus;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
 // This DTO is used to send the *final* update back to the API.
 @Data
 public class TestRunUpdateDto {
+    // Set when the result travels over the results queue instead of PUT /api/runs/{id}
+    private UUID runId;
     private TestRunStatus status;
     private String reportUrl;
     private String errorMessage;
     private String errorDetails;
     private Integer failedTestCount;
     private String screenshotPath;
+    // When the worker finished the run; queued results may be applied a little later
+    private LocalDateTime endTime;
+    // One entry per executed test method
+    private List<TestCaseResultDto> testCaseResults;
+    // Set when the result covers one shard of a sharded run; the API finalizes the run once all shards are in.
+    // A shardCount without a shardIndex is the plan sent when the run is split.
+    private Integer shardIndex;
+    private Integer shardCount;
 }
\ No newline at end of file
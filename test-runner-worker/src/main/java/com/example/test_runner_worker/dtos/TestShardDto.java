@@ -0,0 +1,25 @@
+package com.example.test_runner_worker.dtos;
+
+import com.example.test_runner_worker.model.enums.RunPriority;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+// One slice of a sharded run: the test methods ("Class.method") any worker should execute for it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestShardDto {
+    private UUID runId;
+    private RunPriority priority;
+    // 0-based
+    private int shardIndex;
+    private int shardCount;
+    private List<String> testNames;
+    // This shard's share of the run's retry budget; the shares add up to the budget of the whole run
+    // (null from a worker that predates it: the shard then gets a budget of its own)
+    private Integer retryBudget;
+}
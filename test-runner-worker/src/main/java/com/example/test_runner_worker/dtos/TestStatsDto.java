@@ -0,0 +1,15 @@
+package com.example.test_runner_worker.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+// One test's totals from the API's /api/analytics/tests, as far as the worker needs them
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TestStatsDto {
+    private String testName;
+    private long runs;
+    private long failures;
+    private long flaky;
+    private double flakeRate;
+}
@@ -2,65 +2,219 @@ package com.example.test_runner_worker.listener;
 
 import com.example.test_runner_worker.dtos.TestResult;
 import com.example.test_runner_worker.dtos.TestRunUpdateDto;
+import com.example.test_runner_worker.dtos.TestShardDto;
 import com.example.test_runner_worker.model.TestRun;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import com.example.test_runner_worker.service.RunStatusCheck;
 import com.example.test_runner_worker.service.TestExecutorService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Service
 @Slf4j
 public class RabbitMQListener {
 
     private final RestTemplate restTemplate;
     private final TestExecutorService executorService;
+    private final RunStatusCheck runStatusCheck;
     private final String apiBaseUrl;
     private final RetryTemplate retryTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    // "amqp" publishes results to the results queue, "http" uses the old blocking PUT /api/runs/{id}
+    private final String resultsTransport;
+    private final String resultsExchangeName;
+    private final String resultsRoutingKey;
+    private final String exchangeName;
+    private final String shardsRoutingKey;
+    private final long confirmTimeoutMs;
 
     public RabbitMQListener(RestTemplate restTemplate,
                             TestExecutorService executorService,
+                            RunStatusCheck runStatusCheck,
                             @Value("${api.base.url}") String apiBaseUrl,
-                            RetryTemplate retryTemplate) {
+                            RetryTemplate retryTemplate,
+                            RabbitTemplate rabbitTemplate,
+                            @Value("${results.transport:amqp}") String resultsTransport,
+                            @Value("${rabbitmq.results.exchange.name}") String resultsExchangeName,
+                            @Value("${rabbitmq.results.routing.key}") String resultsRoutingKey,
+                            @Value("${rabbitmq.exchange.name}") String exchangeName,
+                            @Value("${rabbitmq.shards.routing.key}") String shardsRoutingKey,
+                            @Value("${rabbitmq.publisher.confirm-timeout-ms:10000}") long confirmTimeoutMs) {
         this.restTemplate = restTemplate;
         this.executorService = executorService;
+        this.runStatusCheck = runStatusCheck;
         this.apiBaseUrl = apiBaseUrl;
         this.retryTemplate = retryTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.resultsTransport = resultsTransport;
+        this.resultsExchangeName = resultsExchangeName;
+        this.resultsRoutingKey = resultsRoutingKey;
+        this.exchangeName = exchangeName;
+        this.shardsRoutingKey = shardsRoutingKey;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    // High-priority lane: same handling, separate consumers
+    @RabbitListener(queues = "${rabbitmq.queue.high-name}", containerFactory = "highPriorityListenerContainerFactory")
+    public void handleHighPriorityMessage(TestRun testRun) {
+        handleMessage(testRun);
     }
 
     // This method listens to the queue specified in application.properties
     @RabbitListener(queues = "${rabbitmq.queue.name}")
     public void handleMessage(TestRun testRun) {
         log.info("Received job from queue: Run ID {}", testRun.getId());
+        if (isCancelled(testRun.getId())) {
+            log.info("Skipping job for cancelled run {}", testRun.getId());
+            return;
+        }
+
+        // Sharded mode: split the run so every worker takes a share; the API puts the shard results back together
+        List<TestShardDto> shards = executorService.planShards(testRun);
+        if (!shards.isEmpty()) {
+            // The plan goes first (a shard can finish before the last one is published): the API keeps a row per
+            // shard from now on and fails the ones that never report
+            reportResult(testRun.getId(), shardPlan(testRun.getId(), shards.size()));
+            for (TestShardDto shard : shards) {
+                // The API ignores a shard it has seen, so a redelivered job that splits again does no harm
+                sendConfirmed(exchangeName, shardsRoutingKey, shard);
+            }
+            log.info("Split run {} into {} shards", testRun.getId(), shards.size());
+            return;
+        }
 
         // 1. Execute the test(s)
         TestResult result = executorService.executeTest(testRun);
+        if (result.getStatus() == TestRunStatus.CANCELLED) {
+            // The API marked the run cancelled already; there is nothing to report
+            log.info("Run {} was cancelled while executing", testRun.getId());
+            return;
+        }
+
+        // 2. Send the result back to the API
+        reportResult(testRun.getId(), toUpdateDto(testRun.getId(), result));
+    }
+
+    @RabbitListener(queues = "${rabbitmq.shards.queue.name}", containerFactory = "shardListenerContainerFactory")
+    public void handleShard(TestShardDto shard) {
+        if (isCancelled(shard.getRunId())) {
+            log.info("Skipping shard {} of cancelled run {}", shard.getShardIndex(), shard.getRunId());
+            return;
+        }
+
+        TestResult result = executorService.executeShard(shard);
+        if (result.getStatus() == TestRunStatus.CANCELLED) {
+            log.info("Shard {} of run {} was cancelled while executing", shard.getShardIndex(), shard.getRunId());
+            return;
+        }
+
+        TestRunUpdateDto updateDto = toUpdateDto(shard.getRunId(), result);
+        updateDto.setShardIndex(shard.getShardIndex());
+        updateDto.setShardCount(shard.getShardCount());
+        reportResult(shard.getRunId(), updateDto);
+    }
 
-        // 2. Prepare the update DTO to send back to the API
+    // The cancel signal may have gone out before this worker was listening, so ask the API as well
+    private boolean isCancelled(UUID runId) {
+        if (executorService.isCancelled(runId)) {
+            return true;
+        }
+        if (runStatusCheck.isCancelled(runId)) {
+            // Remembered, so the run's other shards are dropped without asking again
+            executorService.cancelRun(runId);
+            return true;
+        }
+        return false;
+    }
+
+    private static TestRunUpdateDto toUpdateDto(UUID runId, TestResult result) {
         TestRunUpdateDto updateDto = new TestRunUpdateDto();
+        updateDto.setRunId(runId);
+        updateDto.setEndTime(LocalDateTime.now());
         updateDto.setStatus(result.getStatus());
         updateDto.setFailedTestCount(result.getFailedTestCount());
         updateDto.setReportUrl(result.getReportUrl());
         updateDto.setErrorMessage(result.getErrorMessage());
         updateDto.setScreenshotPath(result.getScreenshotPath());
+        updateDto.setTestCaseResults(result.getTestCaseResults());
+        return updateDto;
+    }
+
+    private static TestRunUpdateDto shardPlan(UUID runId, int shardCount) {
+        TestRunUpdateDto plan = new TestRunUpdateDto();
+        plan.setRunId(runId);
+        plan.setStatus(TestRunStatus.RUNNING);
+        plan.setShardCount(shardCount);
+        return plan;
+    }
 
-        // 3. Send the result back to the API (with retry)
+    // Sends the result back to the API (with retry)
+    private void reportResult(UUID runId, TestRunUpdateDto updateDto) {
         try {
             retryTemplate.execute(context -> {
-                String updateUrl = apiBaseUrl + "/api/runs/" + testRun.getId();
-                log.info("Attempt {} to report results for job {}", context.getRetryCount() + 1, testRun.getId());
-                // We will need to create this PUT endpoint on the API side next
-                restTemplate.put(updateUrl, updateDto);
-                log.info("Successfully reported results for job: {}", testRun.getId());
+                log.info("Attempt {} to report results for job {}", context.getRetryCount() + 1, runId);
+                if ("http".equalsIgnoreCase(resultsTransport)) {
+                    restTemplate.put(apiBaseUrl + "/api/runs/" + runId, updateDto);
+                } else {
+                    // The API applies queued results in batches; this thread is free as soon as the broker has the message
+                    sendConfirmed(resultsExchangeName, resultsRoutingKey, updateDto);
+                }
+                log.info("Successfully reported results for job: {}", runId);
                 return null; // Return null to indicate success
             });
         } catch (Exception e) {
-            log.error("CRITICAL: Failed to report results to API for job {} after 3 attempts.", testRun.getId(), e);
+            log.error("CRITICAL: Failed to report results to API for job {} after 3 attempts.", runId, e);
             // This will reject the message and (if configured) send it to the Dead-Letter Queue
             throw new AmqpRejectAndDontRequeueException("Failed to report results to API", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Publishes a message and waits until the broker has taken it: a nack, a return (no queue bound to the
+     * routing key) or no confirm within the timeout throws, so the caller retries and the job is rejected
+     * instead of being acked with its result lost.
+     * Needs spring.rabbitmq.publisher-confirm-type=correlated and publisher-returns with a mandatory template.
+     */
+    private void sendConfirmed(String exchange, String routingKey, Object payload) {
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.convertAndSend(exchange, routingKey, payload, correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted waiting for the broker to confirm", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("No confirm from the broker within " + confirmTimeoutMs + "ms", e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("Broker nacked message to " + exchange + ": " + confirm.getReason());
+        }
+        if (correlation.getReturned() != null) {
+            throw new AmqpException("Message to " + exchange + "/" + routingKey + " was returned: "
+                    + correlation.getReturned().getReplyText());
+        }
+    }
+
+    // Cancel signals from POST /api/runs/{id}/cancel, broadcast to every worker
+    @RabbitListener(queues = "#{cancelQueue.name}", containerFactory = "cancelListenerContainerFactory")
+    public void handleCancel(TestRun testRun) {
+        boolean active = executorService.cancelRun(testRun.getId());
+        log.info("Cancel signal for run {} ({})", testRun.getId(), active ? "stopped here" : "not running here");
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.test_runner_worker.model;
 
+import com.example.test_runner_worker.model.enums.RunPriority;
 import com.example.test_runner_worker.model.enums.TestRunStatus;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -18,6 +19,7 @@ public class TestRun {
     private String reportUrl;
     private String environment;
     private String tags;
+    private RunPriority priority;
     private String errorMessage;
     private String errorDetails;
     private Integer failedTestCount;
@@ -0,0 +1,6 @@
+package com.example.test_runner_worker.model.enums;
+
+public enum RunPriority {
+    HIGH,
+    NORMAL
+}
@@ -4,5 +4,6 @@ public enum TestRunStatus {
     SCHEDULED,
     RUNNING,
     COMPLETED,
-    FAILED
+    FAILED,
+    CANCELLED
 }
\ No newline at end of file
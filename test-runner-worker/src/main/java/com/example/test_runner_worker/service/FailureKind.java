@@ -0,0 +1,61 @@
+package com.example.test_runner_worker.service;
+
+import com.fasterxml.jackson.core.JacksonException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * What a failed attempt says about the next one, judged from the exception the test failed with.
+ */
+public enum FailureKind {
+
+    /** Timeouts, network errors, lost browser sessions: another attempt may well pass. */
+    TRANSIENT,
+    /** Assertions and bugs in the test: the next attempt fails the same way. */
+    DETERMINISTIC,
+    /** No exception to go by, or one we can't place; retried like before. */
+    UNKNOWN;
+
+    private static final int MAX_CAUSE_DEPTH = 10;
+
+    public static FailureKind classify(Throwable failure) {
+        if (failure == null) {
+            return UNKNOWN;
+        }
+        // A timeout anywhere in the chain counts, e.g. an UncheckedIOException around an HttpTimeoutException
+        Throwable cause = failure;
+        for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++, cause = cause.getCause()) {
+            if (isTransient(cause)) {
+                return TRANSIENT;
+            }
+        }
+        if (failure instanceof AssertionError || failure instanceof JacksonException) {
+            return DETERMINISTIC;
+        }
+        if (failure instanceof WebDriverException) {
+            // Element not found, click intercepted…: could be the page being slow or the test being wrong
+            return UNKNOWN;
+        }
+        return failure instanceof RuntimeException || failure instanceof Error ? DETERMINISTIC : UNKNOWN;
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        if (failure instanceof JacksonException) {
+            // An IOException by type, but a bad body doesn't get better on retry
+            return false;
+        }
+        return failure instanceof IOException
+                || failure instanceof TimeoutException
+                || failure instanceof org.openqa.selenium.TimeoutException
+                || failure instanceof NoSuchSessionException
+                || failure instanceof SessionNotCreatedException
+                || failure instanceof UnreachableBrowserException
+                || failure instanceof StaleElementReferenceException;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestStatsDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests known to be flaky, from the API's history (how often a test only passed after a retry).
+ * <p>
+ * Quarantined tests still run, but in their own lane, with fewer attempts, and their failures don't fail the run.
+ * The list is fetched when a run starts and is older than {@code test.quarantine.refresh-seconds}; if the API
+ * can't be reached the previous list stays in use. Tests named in {@code test.quarantine.tests} are always in it.
+ */
+@Component
+@Slf4j
+public class FlakyTestQuarantine {
+
+    private final RestTemplate restTemplate;
+    private final String apiBaseUrl;
+    private final boolean enabled;
+    private final double flakeRate;
+    private final long minRuns;
+    private final int days;
+    private final Duration refreshEvery;
+    private final Set<String> pinned;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Set<String> quarantined;
+    private volatile Instant refreshedAt = Instant.EPOCH;
+
+    public FlakyTestQuarantine(RestTemplateBuilder restTemplateBuilder,
+                               @Value("${api.base.url}") String apiBaseUrl,
+                               @Value("${test.quarantine.enabled:true}") boolean enabled,
+                               @Value("${test.quarantine.flake-rate:0.2}") double flakeRate,
+                               @Value("${test.quarantine.min-runs:5}") long minRuns,
+                               @Value("${test.quarantine.days:14}") int days,
+                               @Value("${test.quarantine.refresh-seconds:300}") long refreshSeconds,
+                               @Value("${test.quarantine.tests:}") List<String> pinned) {
+        // Short timeouts: this is looked up when a run starts and must not hold it up
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(2))
+                .setReadTimeout(Duration.ofSeconds(5))
+                .build();
+        this.apiBaseUrl = apiBaseUrl;
+        this.enabled = enabled;
+        this.flakeRate = flakeRate;
+        this.minRuns = minRuns;
+        this.days = days;
+        this.refreshEvery = Duration.ofSeconds(refreshSeconds);
+        this.pinned = Set.copyOf(pinned.stream().map(String::trim).filter(name -> !name.isEmpty()).toList());
+        this.quarantined = this.pinned;
+    }
+
+    /**
+     * Names ({@code Class.method}) of the tests to quarantine right now.
+     */
+    public Set<String> current() {
+        if (!enabled) {
+            return pinned;
+        }
+        // One run refreshes; runs starting meanwhile use the list as it is
+        if (refreshedAt.plus(refreshEvery).isBefore(Instant.now()) && refreshing.compareAndSet(false, true)) {
+            try {
+                refresh();
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return quarantined;
+    }
+
+    private void refresh() {
+        try {
+            TestStatsDto[] stats = restTemplate.getForObject(
+                    apiBaseUrl + "/api/analytics/tests?days={days}&sort=flaky&limit=500", TestStatsDto[].class, days);
+            Set<String> flaky = new HashSet<>(pinned);
+            if (stats != null) {
+                Arrays.stream(stats)
+                        .filter(test -> test.getRuns() >= minRuns && test.getFlakeRate() >= flakeRate)
+                        .forEach(test -> flaky.add(test.getTestName()));
+            }
+            if (!flaky.equals(quarantined)) {
+                log.info("Quarantined flaky tests: {}", flaky);
+            }
+            quarantined = Set.copyOf(flaky);
+        } catch (RestClientException e) {
+            log.warn("Could not fetch flaky test history, keeping {} quarantined tests: {}", quarantined.size(), e.getMessage());
+        }
+        // Also after a failure, so an unreachable API isn't asked again by every run
+        refreshedAt = Instant.now();
+    }
+}
@@ -2,37 +2,31 @@ package com.example.test_runner_worker.service;
 
 import com.example.test_runner_worker.dtos.TestResult;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.ITemplateEngine;
 import org.thymeleaf.context.Context;
-import org.thymeleaf.templatemode.TemplateMode;
-import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
 
 @Service
 @Slf4j
 public class HtmlReportGenerator implements ReportGenerator {
 
-    private final TemplateEngine templateEngine;
+    private final ITemplateEngine templateEngine;
+    private final ScreenshotStore screenshotStore;
+    private final ReportCompressor reportCompressor;
     private final String reportsDirectory = "reports"; // Save to a local 'reports' folder
 
-    public HtmlReportGenerator() {
-        // Configure the Thymeleaf template engine
-        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
-        templateResolver.setTemplateMode(TemplateMode.HTML);
-        templateResolver.setPrefix("/templates/");
-        templateResolver.setSuffix(".html");
-
-        this.templateEngine = new TemplateEngine();
-        this.templateEngine.setTemplateResolver(templateResolver);
+    public HtmlReportGenerator(ITemplateEngine templateEngine, ScreenshotStore screenshotStore,
+                               ReportCompressor reportCompressor) {
+        // Spring Boot's engine: classpath:/templates/*.html, parsed once and cached
+        this.templateEngine = templateEngine;
+        this.screenshotStore = screenshotStore;
+        this.reportCompressor = reportCompressor;
 
         // Ensure the reports directory exists
         try {
@@ -64,20 +58,10 @@ public class HtmlReportGenerator implements ReportGenerator {
             context.setVariable("formattedDuration", "N/A");
         }
 
-        if (testResult.getScreenshotPath() != null) {
-            try {
-                // Read the screenshot file and encode it as Base64
-                byte[] fileContent = FileUtils.readFileToByteArray(new File(testResult.getScreenshotPath()));
-                String encodedString = Base64.getEncoder().encodeToString(fileContent);
-                // Embed it directly into the HTML
-                context.setVariable("screenshotBase64", "data:image/png;base64," + encodedString);
-            } catch (IOException e) {
-                log.error("Could not read screenshot file to embed in report", e);
-                context.setVariable("screenshotBase64", null);
-            }
-        } else {
-            context.setVariable("screenshotBase64", null);
-        }
+        // Link the stored screenshot (the report sits in reports/, so relative to that) and show its thumbnail
+        String screenshotPath = testResult.getScreenshotPath();
+        context.setVariable("screenshotUrl", reportRelative(screenshotPath));
+        context.setVariable("thumbnailUrl", reportRelative(screenshotStore.thumbnail(screenshotPath)));
 
         // Process the template
         // ... inside the generateReport method ...
@@ -93,12 +77,21 @@ public class HtmlReportGenerator implements ReportGenerator {
 
         try (FileWriter writer = new FileWriter(destination.toFile())) {
             writer.write(html);
-            log.info("HTML report saved successfully: {}", destination.toAbsolutePath());
-            // Return the relative path for the dashboard
-            return "reports/" + filename;
         } catch (IOException e) {
             log.error("Could not save HTML report: {}", e.getMessage());
             return null;
         }
+        reportCompressor.compress(destination);
+        log.info("HTML report saved successfully: {}", destination.toAbsolutePath());
+        // Return the relative path for the dashboard
+        return "reports/" + filename;
+    }
+
+    private String reportRelative(String path) {
+        if (path == null) {
+            return null;
+        }
+        String prefix = reportsDirectory + "/";
+        return path.startsWith(prefix) ? path.substring(prefix.length()) : path;
     }
-}
\ No newline at end of file
+}
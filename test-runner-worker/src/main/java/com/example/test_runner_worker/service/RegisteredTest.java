@@ -0,0 +1,46 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.annotations.Test;
+import com.example.test_runner_worker.dtos.TestResult;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+/**
+ * One @Test method as the registry found it: a stable id for the tag bitsets, the name it goes by
+ * in shards and per-test results, and a handle already bound to its bean.
+ */
+@Getter
+public class RegisteredTest {
+
+    private final int id;
+    private final String name;
+    private final String methodName;
+    private final List<String> tags;
+    private final Test annotation;
+    // ()TestResult, bound to the bean, so a call is a plain invokeExact
+    private final MethodHandle handle;
+
+    RegisteredTest(int id, String name, String methodName, Test annotation, MethodHandle handle) {
+        this.id = id;
+        this.name = name;
+        this.methodName = methodName;
+        this.tags = List.of(annotation.tags());
+        this.annotation = annotation;
+        this.handle = handle;
+    }
+
+    public boolean hasTag(String tag) {
+        return tags.contains(tag);
+    }
+
+    public TestResult invoke() throws Throwable {
+        return (TestResult) handle.invokeExact();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.test_runner_worker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a gzip copy ({@code <file>.gz}) next to a finished report, so the API can send it as-is to browsers
+ * that accept gzip instead of compressing the same report on every view.
+ */
+@Component
+@Slf4j
+public class ReportCompressor {
+
+    private final boolean enabled;
+    private final long minBytes;
+
+    public ReportCompressor(@Value("${reporting.compression.enabled:true}") boolean enabled,
+                            @Value("${reporting.compression.min-bytes:1024}") long minBytes) {
+        this.enabled = enabled;
+        this.minBytes = minBytes;
+    }
+
+    public void compress(Path file) {
+        if (!enabled) {
+            return;
+        }
+        Path target = file.resolveSibling(file.getFileName() + ".gz");
+        Path temp = file.resolveSibling(file.getFileName() + ".gz." + UUID.randomUUID().toString().substring(0, 8) + ".tmp");
+        try {
+            if (Files.size(file) < minBytes) {
+                // Not worth it; drop a copy left from an earlier, bigger version of the file
+                Files.deleteIfExists(target);
+                return;
+            }
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                Files.copy(file, out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The API falls back to the plain file
+            log.warn("Could not compress report {}: {}", file, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Left for the next retention pass
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders and writes the report files of finished tests in the background, so Thymeleaf, screenshot encoding
+ * and file writes don't count against the test's time or hold its worker slot.
+ * <p>
+ * Results wait in a bounded queue for {@code reporting.threads} report threads. When the queue is full,
+ * {@link #submit(UUID, TestResult)} blocks until there is room, so tests finishing faster than reports
+ * can be written slow down instead of piling up results in memory.
+ */
+@Component
+@Slf4j
+public class ReportPipeline {
+
+    private final List<ReportGenerator> reportGenerators;
+    private final ThreadPoolExecutor executor;
+
+    public ReportPipeline(List<ReportGenerator> reportGenerators,
+                          @Value("${reporting.threads:2}") int threads,
+                          @Value("${reporting.queue-capacity:200}") int queueCapacity) {
+        this.reportGenerators = reportGenerators;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("report-"),
+                (task, pool) -> {
+                    // Backpressure: wait for room rather than dropping or running the report on the test's thread
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Report pipeline is shut down");
+                    }
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for room in the report queue", e);
+                    }
+                });
+        log.info("Initialized report pipeline with {} threads and a queue of {}", threads, queueCapacity);
+    }
+
+    /**
+     * Queues one test's result for all report generators.
+     * The future yields the HTML report's path (null if there is none); it never completes exceptionally.
+     */
+    public CompletableFuture<String> submit(UUID runId, TestResult result) {
+        CompletableFuture<String> htmlReport = new CompletableFuture<>();
+        try {
+            executor.execute(() -> htmlReport.complete(generate(runId, result)));
+        } catch (RejectedExecutionException e) {
+            log.warn("Report for run {} was not queued: {}", runId, e.getMessage());
+            htmlReport.complete(null);
+        }
+        return htmlReport;
+    }
+
+    private String generate(UUID runId, TestResult result) {
+        String htmlReportPath = null;
+        for (ReportGenerator generator : reportGenerators) {
+            try {
+                String reportPath = generator.generateReport(result, runId.toString());
+                // The HTML report is the one the dashboard links to
+                if (generator instanceof HtmlReportGenerator && reportPath != null) {
+                    htmlReportPath = reportPath;
+                }
+            } catch (RuntimeException e) {
+                log.error("{} failed for run {}", generator.getClass().getSimpleName(), runId, e);
+            }
+        }
+        return htmlReportPath;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Let queued reports finish so the files of the last results aren't lost
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Report pipeline did not drain in time, {} reports dropped", executor.shutdownNow().size());
+        }
+    }
+}
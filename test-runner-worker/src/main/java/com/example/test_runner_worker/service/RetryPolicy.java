@@ -0,0 +1,65 @@
+package com.example.test_runner_worker.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * When a failed test gets another attempt.
+ * <p>
+ * Deterministic failures (assertions) are never retried. Other failures are retried up to the test's attempt
+ * limit while the run has retry budget left: {@code test.retry.budget-ratio} of its tests, at least
+ * {@code test.retry.budget-min}. That way a run where half the tests are red doesn't run them all three times.
+ * Transient failures wait a little (doubling per attempt) before the next try. Quarantined tests have their own,
+ * lower attempt limit and don't draw on the run's budget.
+ */
+@Component
+public class RetryPolicy {
+
+    @Getter
+    private final int maxAttempts;
+    private final int quarantineMaxAttempts;
+    private final double budgetRatio;
+    private final int budgetMin;
+    private final long backoffMs;
+
+    public RetryPolicy(@Value("${test.max-retries:3}") int maxAttempts,
+                       @Value("${test.quarantine.max-attempts:2}") int quarantineMaxAttempts,
+                       @Value("${test.retry.budget-ratio:0.1}") double budgetRatio,
+                       @Value("${test.retry.budget-min:2}") int budgetMin,
+                       @Value("${test.retry.backoff-ms:500}") long backoffMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.quarantineMaxAttempts = Math.max(1, quarantineMaxAttempts);
+        this.budgetRatio = budgetRatio;
+        this.budgetMin = budgetMin;
+        this.backoffMs = backoffMs;
+    }
+
+    public int maxAttempts(boolean quarantined) {
+        return quarantined ? Math.min(quarantineMaxAttempts, maxAttempts) : maxAttempts;
+    }
+
+    /**
+     * Retries a run of this many tests may spend in total.
+     */
+    public int budgetFor(int testCount) {
+        return Math.max(budgetMin, (int) Math.ceil(testCount * budgetRatio));
+    }
+
+    /**
+     * Whether a failure of this kind is worth another attempt at all (budget and attempt limit aside).
+     */
+    public boolean isRetryable(FailureKind kind) {
+        return kind != FailureKind.DETERMINISTIC;
+    }
+
+    /**
+     * How long to wait before the attempt after {@code attempt}: 0 unless the failure was transient.
+     */
+    public long backoffMs(FailureKind kind, int attempt) {
+        if (kind != FailureKind.TRANSIENT || backoffMs <= 0) {
+            return 0;
+        }
+        return backoffMs << Math.min(attempt - 1, 10);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.model.enums.RunPriority;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything one run is holding on this worker (test futures, open WebDrivers), so a cancel can release it at once.
+ * Test code reaches the context of the run it belongs to through the static helpers, which work on the task thread.
+ */
+@Slf4j
+public class RunContext {
+
+    private static final ThreadLocal<RunContext> CURRENT = new ThreadLocal<>();
+    // Whether the attempt running on this thread is the test's last (no retry follows if it fails)
+    private static final ThreadLocal<Boolean> LAST_ATTEMPT = new ThreadLocal<>();
+
+    @Getter
+    private final UUID runId;
+    @Getter
+    private final RunPriority priority;
+    private volatile boolean cancelled;
+    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    private final Set<WebDriver> drivers = ConcurrentHashMap.newKeySet();
+    // Retries all tests of the run may still spend together (see RetryPolicy)
+    private final AtomicInteger retryBudget = new AtomicInteger(Integer.MAX_VALUE);
+
+    public RunContext(UUID runId, RunPriority priority) {
+        this.runId = runId;
+        this.priority = priority;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setRetryBudget(int retries) {
+        retryBudget.set(retries);
+    }
+
+    /**
+     * Takes one retry from the run's budget; false once it is spent.
+     */
+    boolean tryReserveRetry() {
+        return retryBudget.getAndUpdate(left -> left > 0 ? left - 1 : 0) > 0;
+    }
+
+    // Gives back a reserved retry the test turned out not to need
+    void releaseRetry() {
+        retryBudget.incrementAndGet();
+    }
+
+    /**
+     * Runs a task of this run on the calling thread, with this context visible to the test code.
+     */
+    public <T> T callWithin(Callable<T> task) throws Exception {
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    public void addFuture(Future<?> future) {
+        futures.add(future);
+        if (cancelled) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Stops the run: pending tests never start, running ones are interrupted and their browser sessions are closed.
+     */
+    public void cancel() {
+        cancelled = true;
+        futures.forEach(future -> future.cancel(true));
+        for (WebDriver driver : drivers) {
+            if (drivers.remove(driver)) {
+                quitQuietly(driver);
+            }
+        }
+        log.info("Cancelled run {}", runId);
+    }
+
+    // Called by UI tests once their driver exists; a driver opened after the cancel is closed straight away
+    public static void registerDriver(WebDriver driver) {
+        RunContext context = CURRENT.get();
+        if (context == null) {
+            return;
+        }
+        context.drivers.add(driver);
+        if (context.cancelled && context.drivers.remove(driver)) {
+            quitQuietly(driver);
+        }
+    }
+
+    public static void unregisterDriver(WebDriver driver) {
+        RunContext context = CURRENT.get();
+        if (context != null) {
+            context.drivers.remove(driver);
+        }
+    }
+
+    static void startAttempt(boolean last) {
+        LAST_ATTEMPT.set(last);
+    }
+
+    static void endAttempt() {
+        LAST_ATTEMPT.remove();
+    }
+
+    // True outside the executor as well: a test called on its own gets just the one attempt
+    public static boolean isLastAttempt() {
+        return !Boolean.FALSE.equals(LAST_ATTEMPT.get());
+    }
+
+    private static void quitQuietly(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            log.warn("Could not quit driver of a cancelled run: {}", e.getMessage());
+        }
+    }
+}
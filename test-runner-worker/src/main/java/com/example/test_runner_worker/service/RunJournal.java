@@ -0,0 +1,225 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The results journal of one run (or shard): a CSV and a JSONL file with one row per test.
+ * <p>
+ * Test threads only enqueue their row (lock-free); rows are written in batches through one channel per file,
+ * by whichever thread crosses the batch size and by {@link #close()} when the run ends. That's one fsync per run
+ * instead of a file per test.
+ */
+@Slf4j
+public class RunJournal implements AutoCloseable {
+
+    static final String CSV_HEADER = "runId,testName,tags,status,attempts,startTime,endTime,durationMs,"
+            + "testType,description,url,errorMessage,screenshotPath\n";
+
+    private final UUID runId;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Path csvPath;
+    private final Path jsonlPath;
+    private final Consumer<Path> onFinished;
+    private FileChannel csv;
+    private FileChannel jsonl;
+
+    private final Queue<JournalRow> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // A test is journaled once, even if a cancelled task still finishes after the run recorded it as cancelled
+    private final Set<String> journaled = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    /**
+     * Opens (or starts over, for a redelivered job) both files. A journal that can't be opened just logs and
+     * drops its rows; the run doesn't depend on it.
+     */
+    RunJournal(UUID runId, Path csvPath, Path jsonlPath, ObjectMapper objectMapper, int batchSize,
+               Consumer<Path> onFinished) {
+        this.runId = runId;
+        this.csvPath = csvPath;
+        this.jsonlPath = jsonlPath;
+        this.onFinished = onFinished;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        try {
+            Files.createDirectories(csvPath.toAbsolutePath().getParent());
+            csv = FileChannel.open(csvPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            jsonl = FileChannel.open(jsonlPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            writeFully(csv, CSV_HEADER);
+        } catch (IOException e) {
+            failed = true;
+            log.error("Could not open results journal of run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * Records a test's final result. Safe to call from any test thread; only the first row for a test counts.
+     */
+    public void append(String testName, String tags, TestResult result) {
+        if (closed || failed || !journaled.add(testName)) {
+            return;
+        }
+        pending.add(JournalRow.of(runId, testName, tags, result));
+        // Past a batch, one thread writes it out while the others carry on
+        if (pendingCount.incrementAndGet() >= batchSize && writeLock.tryLock()) {
+            try {
+                writePending();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes what's left, forces it to disk and closes the files, then hands each file to {@code onFinished}
+     * (which writes its gzip copy).
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writePending();
+            if (!failed) {
+                csv.force(false);
+                jsonl.force(false);
+            }
+        } catch (IOException e) {
+            failed = true;
+            log.error("Could not flush results journal of run {}: {}", runId, e.getMessage());
+        } finally {
+            closeQuietly(csv);
+            closeQuietly(jsonl);
+            writeLock.unlock();
+        }
+        if (!failed) {
+            onFinished.accept(csvPath);
+            onFinished.accept(jsonlPath);
+        }
+    }
+
+    // Caller holds writeLock
+    private void writePending() {
+        StringBuilder csvBatch = new StringBuilder();
+        StringBuilder jsonlBatch = new StringBuilder();
+        JournalRow row;
+        while ((row = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            row.appendCsv(csvBatch);
+            try {
+                jsonlBatch.append(objectMapper.writeValueAsString(row)).append('\n');
+            } catch (JsonProcessingException e) {
+                log.error("Could not serialize journal row for {}: {}", row.testName(), e.getMessage());
+            }
+        }
+        if (failed || csvBatch.isEmpty()) {
+            return;
+        }
+        try {
+            writeFully(csv, csvBatch);
+            writeFully(jsonl, jsonlBatch);
+        } catch (IOException e) {
+            // Stop writing to a journal that is now incomplete; the run itself carries on
+            failed = true;
+            log.error("Could not write results journal of run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, CharSequence text) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close results journal of run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * One line of the journal; the component names are the JSONL field names and follow the CSV header.
+     */
+    record JournalRow(String runId, String testName, String tags, String status, int attempts,
+                      String startTime, String endTime, Long durationMs, String testType, String description,
+                      String url, String errorMessage, String screenshotPath) {
+
+        static JournalRow of(UUID runId, String testName, String tags, TestResult result) {
+            return new JournalRow(runId.toString(), testName, tags,
+                    result.getStatus() != null ? result.getStatus().name() : null, result.getAttempts(),
+                    result.getStartTime() != null ? result.getStartTime().toString() : null,
+                    result.getEndTime() != null ? result.getEndTime().toString() : null,
+                    result.getDurationMs(), result.getTestType(), result.getTestDescription(), result.getTestUrl(),
+                    result.getErrorMessage(), result.getScreenshotPath());
+        }
+
+        void appendCsv(StringBuilder out) {
+            Object[] fields = {runId, testName, tags, status, attempts, startTime, endTime, durationMs, testType,
+                    description, url, errorMessage, screenshotPath};
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendCsvField(out, fields[i]);
+            }
+            out.append('\n');
+        }
+
+        // RFC 4180: quote a field holding a comma, quote or line break, and double the quotes inside it
+        static void appendCsvField(StringBuilder out, Object value) {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.append(text);
+                return;
+            }
+            out.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+    }
+}
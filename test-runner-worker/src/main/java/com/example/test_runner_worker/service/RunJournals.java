@@ -0,0 +1,34 @@
+package com.example.test_runner_worker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.util.UUID;
+
+/**
+ * Opens the results journal of a run: {@code reports/<reportName>.csv} and {@code .jsonl}, next to its run report.
+ */
+@Component
+public class RunJournals {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String reportsDirectory = "reports";
+    private final ReportCompressor reportCompressor;
+    private final int batchSize;
+
+    public RunJournals(ReportCompressor reportCompressor,
+                       @Value("${reporting.journal.batch-size:500}") int batchSize) {
+        this.reportCompressor = reportCompressor;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param reportName file name without extension, e.g. {@code run-<runId>} or {@code run-<runId>-shard-2}
+     */
+    public RunJournal open(UUID runId, String reportName) {
+        return new RunJournal(runId, Paths.get(reportsDirectory, reportName + ".csv"),
+                Paths.get(reportsDirectory, reportName + ".jsonl"), objectMapper, batchSize, reportCompressor::compress);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestCaseResultDto;
+import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.IThrottledTemplateProcessor;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes one summary report per run (or per shard), covering every test in it.
+ * <p>
+ * The page is streamed: Thymeleaf renders it a chunk at a time straight into a buffered file channel, so even
+ * a run of thousands of tests never has its whole HTML in memory. The template engine is the application's
+ * (built once, templates cached). The file is written under a temporary name and moved into place at the end,
+ * so nobody opens a half-written report.
+ */
+@Service
+@Slf4j
+public class RunReportGenerator {
+
+    private static final int CHUNK_CHARS = 16 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final ITemplateEngine templateEngine;
+    private final ReportCompressor reportCompressor;
+    private final String reportsDirectory = "reports";
+
+    public RunReportGenerator(ITemplateEngine templateEngine, ReportCompressor reportCompressor) {
+        this.templateEngine = templateEngine;
+        this.reportCompressor = reportCompressor;
+    }
+
+    /**
+     * @param reportName file name without extension, e.g. {@code run-<runId>}
+     * @param shardLabel shown in the title for shards, null for whole runs
+     * @return the report's relative path for the dashboard, or null if it could not be written
+     */
+    public String generate(String reportName, UUID runId, String shardLabel, TestResult runResult, List<TestCaseResultDto> tests) {
+        Context context = new Context();
+        context.setVariable("runId", runId);
+        // The run's results journal sits next to the report under the same name
+        context.setVariable("reportName", reportName);
+        context.setVariable("shardLabel", shardLabel);
+        context.setVariable("status", runResult.getStatus().toString());
+        context.setVariable("generatedAt", LocalDateTime.now());
+        context.setVariable("tests", tests);
+
+        int failed = 0;
+        int cancelled = 0;
+        long totalDurationMs = 0;
+        for (TestCaseResultDto test : tests) {
+            if (test.getStatus() == TestRunStatus.FAILED) {
+                failed++;
+            } else if (test.getStatus() == TestRunStatus.CANCELLED) {
+                cancelled++;
+            }
+            if (test.getDurationMs() != null) {
+                totalDurationMs += test.getDurationMs();
+            }
+        }
+        context.setVariable("total", tests.size());
+        context.setVariable("passed", tests.size() - failed - cancelled);
+        context.setVariable("failed", failed);
+        context.setVariable("cancelled", cancelled);
+        context.setVariable("formattedDuration", String.format("%.3f s", totalDurationMs / 1000.0));
+
+        String filename = reportName + ".html";
+        Path destination = Paths.get(reportsDirectory, filename);
+        Path partial = Paths.get(reportsDirectory, filename + ".part");
+        try {
+            Files.createDirectories(destination.getParent());
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_BYTES)) {
+                IThrottledTemplateProcessor processor = templateEngine.processThrottled("run-report-template", context);
+                while (!processor.isFinished()) {
+                    processor.process(CHUNK_CHARS, writer);
+                }
+            }
+            Files.move(partial, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            reportCompressor.compress(destination);
+            log.info("Run report saved successfully: {} ({} tests)", destination.toAbsolutePath(), tests.size());
+            return "reports/" + filename;
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not save run report for run {}: {}", runId, e.getMessage());
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // Nothing more to do, the next run of this name overwrites it
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.model.TestRun;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Asks the API whether a run was cancelled before a job or shard of it starts.
+ * <p>
+ * Cancel signals are broadcast to the workers' own auto-deleted queues, so a worker that (re)started after the
+ * broadcast never gets one; the run's status in the API is the record that survives. If the API can't be reached
+ * the job runs, and a result arriving for a cancelled run is ignored by the API anyway.
+ */
+@Component
+@Slf4j
+public class RunStatusCheck {
+
+    private final RestTemplate restTemplate;
+    private final String apiBaseUrl;
+    private final boolean enabled;
+
+    public RunStatusCheck(RestTemplateBuilder restTemplateBuilder,
+                          @Value("${api.base.url}") String apiBaseUrl,
+                          @Value("${test.cancel.check-on-dequeue:true}") boolean enabled) {
+        // Short timeouts: every dequeued job waits for this
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(2))
+                .setReadTimeout(Duration.ofSeconds(5))
+                .build();
+        this.apiBaseUrl = apiBaseUrl;
+        this.enabled = enabled;
+    }
+
+    public boolean isCancelled(UUID runId) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            TestRun testRun = restTemplate.getForObject(apiBaseUrl + "/api/runs/{id}", TestRun.class, runId);
+            return testRun != null && testRun.getStatus() == TestRunStatus.CANCELLED;
+        } catch (RestClientException e) {
+            log.warn("Could not check the status of run {}, running it: {}", runId, e.getMessage());
+            return false;
+        }
+    }
+}
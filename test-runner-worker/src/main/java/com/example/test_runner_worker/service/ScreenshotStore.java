@@ -0,0 +1,179 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Screenshots stored by content: {@code reports/screenshots/<first two hex chars>/<sha-256>.png}.
+ * <p>
+ * The same image (a login page, an error page) is written once however many tests capture it, and reports
+ * link to the file instead of embedding it. Next to each image sits a small JPEG thumbnail for report pages,
+ * made on first request by the report threads rather than by the test.
+ */
+@Component
+@Slf4j
+public class ScreenshotStore {
+
+    private static final String PNG = ".png";
+    private static final String THUMBNAIL = "-thumb.jpg";
+
+    private final String screenshotsDirectory = "reports/screenshots";
+    private final boolean everyAttempt;
+    private final int thumbnailWidth;
+    private final float thumbnailQuality;
+
+    public ScreenshotStore(@Value("${artifacts.screenshots.every-attempt:false}") boolean everyAttempt,
+                           @Value("${artifacts.thumbnails.width:320}") int thumbnailWidth,
+                           @Value("${artifacts.thumbnails.quality:0.7}") float thumbnailQuality) {
+        this.everyAttempt = everyAttempt;
+        this.thumbnailWidth = thumbnailWidth;
+        this.thumbnailQuality = thumbnailQuality;
+    }
+
+    /**
+     * Whether a test should take its screenshot now: by default only on the attempt whose result is kept,
+     * i.e. one that passed or the last one allowed.
+     */
+    public boolean shouldCapture(TestRunStatus status) {
+        return shouldCapture(status, null);
+    }
+
+    /**
+     * Same, for a failure that may end the retries early: a deterministic one (an assertion) isn't retried,
+     * so this attempt is the one whose result is kept.
+     */
+    public boolean shouldCapture(TestRunStatus status, Throwable failure) {
+        return everyAttempt || status == TestRunStatus.COMPLETED || RunContext.isLastAttempt()
+                || (failure != null && FailureKind.classify(failure) == FailureKind.DETERMINISTIC);
+    }
+
+    /**
+     * Stores a PNG unless an identical one is already there.
+     *
+     * @return its path relative to the working directory (e.g. {@code reports/screenshots/ab/ab12….png}), or null on failure
+     */
+    public String store(byte[] png) {
+        String hash = sha256(png);
+        Path target = Paths.get(screenshotsDirectory, hash.substring(0, 2), hash + PNG);
+        try {
+            if (Files.exists(target)) {
+                log.info("Screenshot {} already stored, reusing it", hash);
+            } else {
+                writeAtomically(target, out -> out.write(png));
+                log.info("Screenshot saved successfully: {}", target.toAbsolutePath());
+            }
+            return target.toString().replace('\\', '/');
+        } catch (IOException e) {
+            log.error("Could not save screenshot: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Path of the screenshot's thumbnail, written the first time it is asked for. Null if it can't be made.
+     */
+    public String thumbnail(String screenshotPath) {
+        if (screenshotPath == null || !screenshotPath.endsWith(PNG)) {
+            return null;
+        }
+        String thumbnailPath = screenshotPath.substring(0, screenshotPath.length() - PNG.length()) + THUMBNAIL;
+        Path target = Paths.get(thumbnailPath);
+        if (Files.exists(target)) {
+            return thumbnailPath;
+        }
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(Files.readAllBytes(Paths.get(screenshotPath))));
+            if (image == null) {
+                return null;
+            }
+            BufferedImage scaled = scale(image);
+            writeAtomically(target, out -> writeJpeg(scaled, out));
+            return thumbnailPath;
+        } catch (IOException e) {
+            log.warn("Could not make a thumbnail of {}: {}", screenshotPath, e.getMessage());
+            return null;
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        double factor = Math.min(1.0, (double) thumbnailWidth / image.getWidth());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        // JPEG has no alpha, so flatten onto white
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(thumbnailQuality);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Two tests storing the same image at once both write a temp file; whichever moves last wins, same bytes either way
+    private static void writeAtomically(Path target, FileContent content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID().toString().substring(0, 8) + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                content.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
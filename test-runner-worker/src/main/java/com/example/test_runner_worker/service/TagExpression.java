@@ -0,0 +1,142 @@
+package com.example.test_runner_worker.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Evaluates a tag expression straight to a bitset of test ids.
+ * <p>
+ * Grammar: {@code !} (or {@code not}) binds tightest, then {@code &} / {@code ,} / {@code and}, then {@code |} / {@code or};
+ * parentheses group. A plain comma list ("api,smoke") therefore still means "all of these tags", as it always did.
+ * Words with only whitespace between them form one tag ("smoke test"), so multi-word tags need no quoting.
+ * Tags are matched case-insensitively. The API derives run priority from the same grammar; keep the two in step.
+ */
+public final class TagExpression {
+
+    private final List<String> tokens;
+    private final Function<String, BitSet> tagLookup;
+    private final int universeSize;
+    private int position;
+
+    private TagExpression(List<String> tokens, Function<String, BitSet> tagLookup, int universeSize) {
+        this.tokens = tokens;
+        this.tagLookup = tagLookup;
+        this.universeSize = universeSize;
+    }
+
+    /**
+     * @param tagLookup    bitset of the tests carrying a (lower-case) tag, or null if no test has it; never modified
+     * @param universeSize number of tests, i.e. what {@code !tag} is taken against
+     * @throws IllegalArgumentException if the expression doesn't parse
+     */
+    public static BitSet evaluate(String expression, Function<String, BitSet> tagLookup, int universeSize) {
+        List<String> tokens = tokenize(expression == null ? "" : expression);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Empty tag expression");
+        }
+        TagExpression parser = new TagExpression(tokens, tagLookup, universeSize);
+        BitSet result = parser.parseOr();
+        if (parser.position < tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + tokens.get(parser.position) + "' in tag expression: " + expression);
+        }
+        return result;
+    }
+
+    private BitSet parseOr() {
+        BitSet result = parseAnd();
+        while (accept("|", "or")) {
+            result.or(parseAnd());
+        }
+        return result;
+    }
+
+    private BitSet parseAnd() {
+        BitSet result = parseNot();
+        while (accept("&", ",", "and")) {
+            result.and(parseNot());
+        }
+        return result;
+    }
+
+    private BitSet parseNot() {
+        if (accept("!", "not")) {
+            BitSet result = new BitSet(universeSize);
+            result.set(0, universeSize);
+            result.andNot(parseNot());
+            return result;
+        }
+        if (accept("(")) {
+            BitSet result = parseOr();
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Missing ')' in tag expression");
+            }
+            return result;
+        }
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Tag expression ends where a tag was expected");
+        }
+        String token = tokens.get(position);
+        if (isOperator(token)) {
+            throw new IllegalArgumentException("Expected a tag but found '" + token + "' in tag expression");
+        }
+        position++;
+        BitSet tests = tagLookup.apply(token);
+        // Copy, the lookup hands out the index's own sets
+        return tests == null ? new BitSet() : (BitSet) tests.clone();
+    }
+
+    private boolean accept(String... operators) {
+        if (position >= tokens.size()) {
+            return false;
+        }
+        for (String operator : operators) {
+            if (tokens.get(position).equals(operator)) {
+                position++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOperator(String token) {
+        return switch (token) {
+            case "|", "or", "&", ",", "and", "!", "not", "(", ")" -> true;
+            default -> false;
+        };
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (char c : expression.toLowerCase(Locale.ROOT).toCharArray()) {
+            if ("|&,!()".indexOf(c) >= 0 || Character.isWhitespace(c)) {
+                addWord(tokens, word);
+                if (!Character.isWhitespace(c)) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                word.append(c);
+            }
+        }
+        addWord(tokens, word);
+        return tokens;
+    }
+
+    // A word straight after another tag word continues that tag
+    private static void addWord(List<String> tokens, StringBuilder word) {
+        if (word.isEmpty()) {
+            return;
+        }
+        String current = word.toString();
+        word.setLength(0);
+        int last = tokens.size() - 1;
+        if (last >= 0 && !isOperator(current) && !isOperator(tokens.get(last))) {
+            tokens.set(last, tokens.get(last) + " " + current);
+        } else {
+            tokens.add(current);
+        }
+    }
+}
@@ -1,203 +1,545 @@
 package com.example.test_runner_worker.service;
 
-import com.example.test_runner_worker.annotations.Test;
+import com.example.test_runner_worker.dtos.TestCaseResultDto;
 import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.dtos.TestShardDto;
 import com.example.test_runner_worker.model.TestRun;
+import com.example.test_runner_worker.model.enums.RunPriority;
 import com.example.test_runner_worker.model.enums.TestRunStatus;
-import com.example.test_runner_worker.tests.ApiTests;
-import com.example.test_runner_worker.tests.UiTests;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.lang.reflect.InvocationTargetException;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.ArrayList;
 
 @Service
 @Slf4j
 public class TestExecutorService {
 
-    private final ApiTests apiTests;
-    private final UiTests uiTests;
-    private final int maxRetries;
+    private final TestRegistry testRegistry;
+    private final ReportPipeline reportPipeline;
+    private final RunReportGenerator runReportGenerator;
+    private final RunJournals runJournals;
+    private final Duration reportTimeout;
+    private final RetryPolicy retryPolicy;
+    private final FlakyTestQuarantine flakyTestQuarantine;
 
     private final ExecutorService executorService;
-
-    public TestExecutorService(ApiTests apiTests,
-                               UiTests uiTests,
-                               @Value("${test.max-retries:3}") int maxRetries,
-                               @Value("${test.parallel-threads:5}") int parallelThreads) {
-        this.apiTests = apiTests;
-        this.uiTests = uiTests;
-        this.maxRetries = maxRetries;
-
-        this.executorService = Executors.newFixedThreadPool(parallelThreads);
-        log.info("Initialized TestExecutorService with a thread pool of {}", parallelThreads);
+    private final ExecutorService highPriorityExecutorService;
+    // Known-flaky tests run here, so they don't hold up the regular lanes
+    private final ExecutorService quarantineExecutorService;
+
+    // These bound how many tests actually talk to the outside world at once, whatever the thread count is
+    private final Semaphore apiPermits;
+    private final Semaphore uiPermits;
+    // Reserved for high-priority runs, so a smoke check never queues behind a regression run's tests
+    private final Semaphore highPriorityApiPermits;
+    private final Semaphore highPriorityUiPermits;
+
+    // Runs executing on this worker (several shards of one run may run here at once),
+    // and runs cancelled recently (so their queued jobs are dropped on dequeue)
+    private final Map<UUID, Set<RunContext>> activeRuns = new ConcurrentHashMap<>();
+    private final Map<UUID, Instant> cancelledRuns = new ConcurrentHashMap<>();
+    private final Duration rememberCancelledFor;
+
+    // Sharded mode: big runs are split into shards of testsPerShard methods that any worker can execute
+    private final boolean shardingEnabled;
+    private final int shardingMinTests;
+    private final int testsPerShard;
+
+    public TestExecutorService(TestRegistry testRegistry,
+                               ReportPipeline reportPipeline,
+                               RunReportGenerator runReportGenerator,
+                               RunJournals runJournals,
+                               RetryPolicy retryPolicy,
+                               FlakyTestQuarantine flakyTestQuarantine,
+                               @Value("${reporting.await-timeout-seconds:60}") long reportTimeoutSeconds,
+                               @Value("${test.parallel-threads:5}") int parallelThreads,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                               @Value("${test.concurrency.api:20}") int apiConcurrency,
+                               @Value("${test.concurrency.ui:4}") int uiConcurrency,
+                               @Value("${test.concurrency.high.parallel-threads:2}") int highPriorityThreads,
+                               @Value("${test.concurrency.high.api:5}") int highPriorityApiConcurrency,
+                               @Value("${test.concurrency.high.ui:1}") int highPriorityUiConcurrency,
+                               @Value("${test.quarantine.parallel-threads:2}") int quarantineThreads,
+                               @Value("${test.cancel.remember-hours:24}") long rememberCancelledHours,
+                               @Value("${test.sharding.enabled:false}") boolean shardingEnabled,
+                               @Value("${test.sharding.min-tests:2}") int shardingMinTests,
+                               @Value("${test.sharding.tests-per-shard:1}") int testsPerShard) {
+        this.testRegistry = testRegistry;
+        this.reportPipeline = reportPipeline;
+        this.runReportGenerator = runReportGenerator;
+        this.runJournals = runJournals;
+        this.reportTimeout = Duration.ofSeconds(reportTimeoutSeconds);
+        this.retryPolicy = retryPolicy;
+        this.flakyTestQuarantine = flakyTestQuarantine;
+        this.apiPermits = new Semaphore(apiConcurrency, true);
+        this.uiPermits = new Semaphore(uiConcurrency, true);
+        this.highPriorityApiPermits = new Semaphore(highPriorityApiConcurrency, true);
+        this.highPriorityUiPermits = new Semaphore(highPriorityUiConcurrency, true);
+        this.rememberCancelledFor = Duration.ofHours(rememberCancelledHours);
+        this.shardingEnabled = shardingEnabled;
+        this.shardingMinTests = shardingMinTests;
+        this.testsPerShard = Math.max(1, testsPerShard);
+
+        if (virtualThreads) {
+            // Tests mostly sit waiting on HTTP or the Selenium grid, so one cheap thread per test is fine
+            this.executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("test-", 0).factory());
+            this.highPriorityExecutorService = executorService;
+            this.quarantineExecutorService = executorService;
+            log.info("Initialized TestExecutorService with virtual threads (api permits: {}, ui permits: {})",
+                    apiConcurrency, uiConcurrency);
+        } else {
+            // Named per lane, so logs (and thread dumps) show which lane a test ran in
+            this.executorService = Executors.newFixedThreadPool(parallelThreads, new CustomizableThreadFactory("test-"));
+            this.highPriorityExecutorService = Executors.newFixedThreadPool(highPriorityThreads,
+                    new CustomizableThreadFactory("test-high-"));
+            this.quarantineExecutorService = Executors.newFixedThreadPool(quarantineThreads,
+                    new CustomizableThreadFactory("test-quarantine-"));
+            log.info("Initialized TestExecutorService with a thread pool of {} (api permits: {}, ui permits: {})",
+                    parallelThreads, apiConcurrency, uiConcurrency);
+        }
     }
 
     /**
-     * Finds and executes all tests matching the tags from the TestRun job.
+     * Finds and executes all tests matching the tag expression from the TestRun job.
      * This version runs tests in parallel using a thread pool.
      */
     public TestResult executeTest(TestRun testRun) {
         log.info("Test execution has started for run: {}", testRun.getId());
-        List<String> requestedTags = Arrays.stream(testRun.getTags().toLowerCase().split(","))
-                .map(String::trim)
-                .collect(Collectors.toList());
 
         // 1. Find all @Test methods that match the tags
-        List<Method> testsToRun = findTestsByTags(requestedTags);
+        List<RegisteredTest> testsToRun;
+        try {
+            testsToRun = testRegistry.select(testRun.getTags());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid tag expression '{}' for run {}: {}", testRun.getTags(), testRun.getId(), e.getMessage());
+            TestResult result = new TestResult();
+            result.setStatus(TestRunStatus.FAILED);
+            result.setFailedTestCount(1);
+            result.setErrorMessage("Invalid tag expression '" + testRun.getTags() + "': " + e.getMessage());
+            return result;
+        }
 
         if (testsToRun.isEmpty()) {
-            log.warn("No tests found for tags: {}. Marking as failed.", requestedTags);
+            log.warn("No tests found for tags: {}. Marking as failed.", testRun.getTags());
             TestResult result = new TestResult();
             result.setStatus(TestRunStatus.FAILED);
             result.setFailedTestCount(1);
-            result.setErrorMessage("No tests found for the specified tags: " + requestedTags);
+            result.setErrorMessage("No tests found for the specified tags: " + testRun.getTags());
+            return result;
+        }
+
+        return execute(testRun.getId(), testRun.getPriority(), testsToRun, retryPolicy.budgetFor(testsToRun.size()),
+                "run-" + testRun.getId(), null);
+    }
+
+    /**
+     * Splits a run into shards for any worker to pick up.
+     * Returns an empty list when sharding is off or the run is too small to bother; the caller then runs it whole.
+     * High-priority runs are never split, so they stay in the lane with reserved capacity.
+     */
+    public List<TestShardDto> planShards(TestRun testRun) {
+        if (!shardingEnabled || testRun.getPriority() == RunPriority.HIGH) {
+            return List.of();
+        }
+        List<RegisteredTest> testsToRun;
+        try {
+            testsToRun = testRegistry.select(testRun.getTags());
+        } catch (IllegalArgumentException e) {
+            // executeTest reports the bad expression
+            return List.of();
+        }
+        if (testsToRun.size() < Math.max(2, shardingMinTests)) {
+            return List.of();
+        }
+        int shardCount = (testsToRun.size() + testsPerShard - 1) / testsPerShard;
+        // The retry budget is the run's, split over the shards by their tests (shards of one test may get none)
+        long runBudget = retryPolicy.budgetFor(testsToRun.size());
+        List<TestShardDto> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            int from = i * testsPerShard;
+            int to = Math.min(testsToRun.size(), (i + 1) * testsPerShard);
+            List<String> testNames = testsToRun.subList(from, to)
+                    .stream()
+                    .map(RegisteredTest::getName)
+                    .toList();
+            int retryBudget = (int) (runBudget * to / testsToRun.size() - runBudget * from / testsToRun.size());
+            shards.add(new TestShardDto(testRun.getId(), testRun.getPriority(), i, shardCount, testNames, retryBudget));
+        }
+        return shards;
+    }
+
+    /**
+     * Executes one shard of a sharded run.
+     */
+    public TestResult executeShard(TestShardDto shard) {
+        log.info("Shard {}/{} of run {} has started ({} tests)", shard.getShardIndex() + 1, shard.getShardCount(),
+                shard.getRunId(), shard.getTestNames().size());
+        List<RegisteredTest> testsToRun = testRegistry.findByName(shard.getTestNames());
+
+        if (testsToRun.size() < shard.getTestNames().size()) {
+            // The worker that split the run knows tests this one doesn't (e.g. during a rolling deploy)
+            List<String> known = testsToRun.stream().map(RegisteredTest::getName).toList();
+            List<String> missing = shard.getTestNames().stream().filter(name -> !known.contains(name)).toList();
+            log.warn("Shard {} of run {} names unknown tests: {}", shard.getShardIndex(), shard.getRunId(), missing);
+            TestResult result = new TestResult();
+            result.setStatus(TestRunStatus.FAILED);
+            result.setFailedTestCount(missing.size());
+            result.setErrorMessage("Tests not found on this worker: " + missing);
             return result;
         }
 
+        String shardLabel = "shard " + (shard.getShardIndex() + 1) + " of " + shard.getShardCount();
+        int retryBudget = shard.getRetryBudget() != null ? shard.getRetryBudget() : retryPolicy.budgetFor(testsToRun.size());
+        return execute(shard.getRunId(), shard.getPriority(), testsToRun, retryBudget,
+                "run-" + shard.getRunId() + "-shard-" + (shard.getShardIndex() + 1), shardLabel);
+    }
+
+    private TestResult execute(UUID runId, RunPriority priority, List<RegisteredTest> testsToRun, int retryBudget,
+                               String reportName, String shardLabel) {
+        // Register the run so a cancel signal can reach its tests
+        RunContext context = new RunContext(runId, priority);
+        context.setRetryBudget(retryBudget);
+        activeRuns.compute(runId, (id, contexts) -> {
+            Set<RunContext> registered = contexts != null ? contexts : ConcurrentHashMap.newKeySet();
+            registered.add(context);
+            return registered;
+        });
+        try {
+            if (isCancelled(runId)) {
+                // The signal came in between dequeue and registration
+                context.cancel();
+            }
+            return runTests(runId, testsToRun, context, reportName, shardLabel);
+        } finally {
+            activeRuns.computeIfPresent(runId, (id, contexts) -> {
+                contexts.remove(context);
+                return contexts.isEmpty() ? null : contexts;
+            });
+        }
+    }
+
+    /**
+     * Handles a cancel signal: remembers the run and, if it is executing here, stops it.
+     * Returns true if the run was active on this worker.
+     */
+    public boolean cancelRun(UUID runId) {
+        Instant now = Instant.now();
+        cancelledRuns.put(runId, now);
+        cancelledRuns.values().removeIf(cancelledAt -> cancelledAt.isBefore(now.minus(rememberCancelledFor)));
+
+        Set<RunContext> contexts = activeRuns.get(runId);
+        if (contexts == null) {
+            return false;
+        }
+        contexts.forEach(RunContext::cancel);
+        return true;
+    }
+
+    public boolean isCancelled(UUID runId) {
+        return cancelledRuns.containsKey(runId);
+    }
+
+    private TestResult runTests(UUID runId, List<RegisteredTest> testsToRun, RunContext context,
+                                String reportName, String shardLabel) {
+        try (RunJournal journal = runJournals.open(runId, reportName)) {
+            return runTests(runId, testsToRun, context, reportName, shardLabel, journal);
+        }
+    }
 
+    private TestResult runTests(UUID runId, List<RegisteredTest> testsToRun, RunContext context,
+                                String reportName, String shardLabel, RunJournal journal) {
         // 2. Submit each test to the executor service
         List<Future<TestResult>> futures = new ArrayList<>();
-        for (Method testMethod : testsToRun) {
+        // Reports are rendered by the pipeline while the other tests keep running
+        List<CompletableFuture<String>> reports = new ArrayList<>();
+        ExecutorService lane = context.getPriority() == RunPriority.HIGH ? highPriorityExecutorService : executorService;
+        Set<String> quarantined = flakyTestQuarantine.current();
+        List<Boolean> inQuarantine = new ArrayList<>();
+        for (RegisteredTest test : testsToRun) {
+            CompletableFuture<String> report = new CompletableFuture<>();
+            reports.add(report);
+            boolean quarantinedTest = quarantined.contains(test.getName());
+            inQuarantine.add(quarantinedTest);
             // Submit a task (as a lambda) to the thread pool
-            // The task will call runSingleTestWithRetries for its assigned testMethod
-            Future<TestResult> future = executorService.submit(() -> runSingleTestWithRetries(testMethod));
+            // The task will call runSingleTestWithRetries for its assigned test
+            Future<TestResult> future = (quarantinedTest ? quarantineExecutorService : lane).submit(() -> context.callWithin(() -> {
+                TestResult result = runSingleTestWithRetries(test, context, quarantinedTest);
+                if (quarantinedTest && result.getStatus() == TestRunStatus.FAILED) {
+                    result.setErrorMessage("[quarantined] " + result.getErrorMessage());
+                }
+                journal(journal, test, result);
+                if (result.getStatus() == TestRunStatus.CANCELLED) {
+                    report.complete(null);
+                } else {
+                    reportPipeline.submit(runId, result).thenAccept(report::complete);
+                }
+                return result;
+            }));
+            context.addFuture(future);
             futures.add(future);
         }
 
-        log.info("Submitted {} tests to the thread pool for run {}", futures.size(), testRun.getId());
+        log.info("Submitted {} tests to the thread pool for run {} ({} quarantined)", futures.size(), runId,
+                inQuarantine.stream().filter(Boolean::booleanValue).count());
+
+        // 3. Collect results from all futures
+        // This blocks until each test is complete
+        List<TestResult> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get()); // Get the result from the completed test
+            } catch (CancellationException e) {
+                // The run was cancelled before this test finished
+                results.add(cancelledResult(testsToRun.get(i), 0));
+                reports.get(i).complete(null);
+                journal(journal, testsToRun.get(i), results.get(i));
+            } catch (InterruptedException | ExecutionException e) {
+                log.error("Critical error retrieving test result from future", e);
+                TestResult errorResult = new TestResult();
+                errorResult.setStatus(TestRunStatus.FAILED);
+                errorResult.setErrorMessage("Failed to retrieve result from thread: " + e.getMessage());
+                errorResult.setTestType(testsToRun.get(i).getMethodName());
+                results.add(errorResult);
+                reports.get(i).complete(null);
+                journal(journal, testsToRun.get(i), errorResult);
+            }
+        }
+
+        // 4. Wait for the run's reports, once
+        awaitReports(runId, reports);
 
-        // 3. Aggregate results from all futures
+        // 5. Aggregate
         TestResult finalResult = new TestResult();
         finalResult.setStatus(TestRunStatus.COMPLETED);
 
         int failureCount = 0;
+        int quarantinedFailures = 0;
         StringBuilder allErrors = new StringBuilder();
         String finalReportUrl = null;
+        List<TestCaseResultDto> testCaseResults = new ArrayList<>();
+
+        for (int i = 0; i < results.size(); i++) {
+            TestResult singleTestResult = results.get(i);
+            String reportUrl = reports.get(i).getNow(null);
+            if (reportUrl != null) {
+                singleTestResult.setReportUrl(reportUrl);
+                finalReportUrl = reportUrl;
+            }
+            testCaseResults.add(toTestCaseResult(testsToRun.get(i), singleTestResult));
 
-        // Iterate over the futures and call .get()
-        // This blocks until each test is complete
-        for (Future<TestResult> future : futures) {
-            try {
-                TestResult singleTestResult = future.get(); // Get the result from the completed test
-
-                // Aggregate results (same logic as before)
-                if (singleTestResult.getStatus() == TestRunStatus.FAILED) {
-                    failureCount++;
-                    allErrors.append("[").append(singleTestResult.getTestType()).append("]: ") // Added test type for clarity
-                            .append(singleTestResult.getErrorMessage()).append("\n");
-                }
-                // Save the report URL.
-                // NOTE: This still only saves one URL.
-                // We'll address this when we create a summary report.
-                finalReportUrl = singleTestResult.getReportUrl();
-
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("Critical error retrieving test result from future", e);
+            if (singleTestResult.getStatus() == TestRunStatus.FAILED && inQuarantine.get(i)) {
+                // Known to be flaky: shown in the reports, but doesn't fail the run
+                quarantinedFailures++;
+            } else if (singleTestResult.getStatus() == TestRunStatus.FAILED) {
                 failureCount++;
-                allErrors.append("[Test Execution Error]: Failed to retrieve result from thread: ").append(e.getMessage()).append("\n");
+                allErrors.append("[").append(singleTestResult.getTestType()).append("]: ") // Added test type for clarity
+                        .append(singleTestResult.getErrorMessage()).append("\n");
             }
         }
 
-        // 4. Set the final aggregated result
+        // 6. Set the final aggregated result
         finalResult.setFailedTestCount(failureCount);
-        if (failureCount > 0) {
+        if (context.isCancelled()) {
+            finalResult.setStatus(TestRunStatus.CANCELLED);
+            finalResult.setErrorMessage("Run was cancelled");
+        } else if (failureCount > 0) {
             finalResult.setStatus(TestRunStatus.FAILED);
             finalResult.setErrorMessage(allErrors.toString());
         }
-        finalResult.setReportUrl(finalReportUrl);
+        finalResult.setTestCaseResults(testCaseResults);
+        // The run links its summary report; a test's own report is the fallback if that couldn't be written
+        String runReportUrl = runReportGenerator.generate(reportName, runId, shardLabel, finalResult, testCaseResults);
+        finalResult.setReportUrl(runReportUrl != null ? runReportUrl : finalReportUrl);
 
-        log.info("Test execution finished for run {}. Final Status: {}, Failed: {}",
-                testRun.getId(), finalResult.getStatus(), finalResult.getFailedTestCount());
+        log.info("Test execution finished for run {}. Final Status: {}, Failed: {}, Quarantined failures: {}",
+                runId, finalResult.getStatus(), finalResult.getFailedTestCount(), quarantinedFailures);
 
         return finalResult;
     }
 
+    // Reports still missing after the timeout are left out of the result (they may still be written later)
+    private void awaitReports(UUID runId, List<CompletableFuture<String>> reports) {
+        try {
+            CompletableFuture.allOf(reports.toArray(CompletableFuture[]::new))
+                    .get(reportTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Reports of run {} not written after {}s, reporting the run without them", runId, reportTimeout.toSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Report futures never fail
+            log.error("Unexpected report failure for run {}", runId, e);
+        }
+    }
+
     /**
      * Runs a single test method with retry logic.
-     * This method is thread-safe as-is because it operates on its own testMethod
+     * This method is thread-safe as-is because it operates on its own test
      * and doesn't share state with other running tests.
+     * Stops as soon as the run is cancelled instead of retrying, and whenever the RetryPolicy says another
+     * attempt isn't worth it (deterministic failure, run's retry budget spent).
+     * <p>
+     * The retry is taken from the run's budget before an attempt, not after it fails, so the attempt knows whether
+     * it is the last one (and keeps its screenshot); a pass or a failure that isn't retried gives it back.
      */
-    private TestResult runSingleTestWithRetries(Method testMethod) {
-        TestResult lastResult = null;
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            log.info("Attempt {} of {} for test '{}'", attempt, maxRetries, testMethod.getName());
-            try {
-                Object testInstance = getTestInstance(testMethod.getDeclaringClass());
-
-                lastResult = (TestResult) testMethod.invoke(testInstance);
-
-                // Add test name to the result for better error messages
-                lastResult.setTestType(testMethod.getName());
-
-                if (lastResult.getStatus() == TestRunStatus.COMPLETED) {
-                    log.info("Test '{}' passed on attempt {}", testMethod.getName(), attempt);
+    private TestResult runSingleTestWithRetries(RegisteredTest test, RunContext context, boolean quarantined) {
+        int maxAttempts = retryPolicy.maxAttempts(quarantined);
+        boolean retryReserved = false;
+        try {
+            TestResult lastResult = null;
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                if (context.isCancelled()) {
+                    return cancelledResult(test, attempt - 1);
+                }
+                log.info("Attempt {} of {} for test '{}'", attempt, maxAttempts, test.getMethodName());
+                // Quarantined tests don't draw on the run's budget
+                if (attempt < maxAttempts && !quarantined) {
+                    retryReserved = context.tryReserveRetry();
+                }
+                boolean lastAttempt = attempt >= maxAttempts || (!quarantined && !retryReserved);
+                try {
+                    lastResult = invokeWithPermit(test, context, lastAttempt);
+
+                    // Add test name to the result for better error messages
+                    lastResult.setTestType(test.getMethodName());
+
+                    lastResult.setAttempts(attempt);
+
+                    if (lastResult.getStatus() == TestRunStatus.COMPLETED) {
+                        log.info("Test '{}' passed on attempt {}", test.getMethodName(), attempt);
+                        return lastResult;
+                    }
+
+                } catch (InterruptedException e) {
+                    // Interrupted while waiting for a permit: stop retrying and keep the flag for the caller
+                    Thread.currentThread().interrupt();
+                    lastResult = new TestResult();
+                    lastResult.setStatus(TestRunStatus.FAILED);
+                    lastResult.setErrorMessage("Interrupted while waiting to run the test");
+                    lastResult.setTestType(test.getMethodName());
+                    lastResult.setAttempts(attempt);
                     return lastResult;
+                } catch (Throwable t) {
+                    // With a method handle the test's own exception arrives as-is, nothing to unwrap
+                    log.error("Test method threw an exception on attempt {}: {}", attempt, t.getMessage());
+                    lastResult = new TestResult();
+                    lastResult.setStatus(TestRunStatus.FAILED);
+                    lastResult.setErrorMessage("Test invocation failed: " + t.getMessage());
+                    lastResult.setFailureCause(t);
+                    lastResult.setTestType(test.getMethodName());
+                    lastResult.setAttempts(attempt);
                 }
 
-            } catch (InvocationTargetException e) {
-                log.error("Test method threw an internal exception: {}", e.getTargetException().getMessage());
-                lastResult = new TestResult();
-                lastResult.setStatus(TestRunStatus.FAILED);
-                lastResult.setErrorMessage("Test invocation failed: " + e.getTargetException().getMessage());
-                lastResult.setTestType(testMethod.getName());
-            } catch (Exception e) {
-                log.error("An unexpected error occurred during test execution on attempt {}", attempt, e);
-                lastResult = new TestResult();
-                lastResult.setStatus(TestRunStatus.FAILED);
-                lastResult.setErrorMessage("Exception during test invocation: " + e.getMessage());
-                lastResult.setTestType(testMethod.getName());
+                if (context.isCancelled()) {
+                    return cancelledResult(test, attempt);
+                }
+                if (attempt == maxAttempts) {
+                    break;
+                }
+                FailureKind kind = FailureKind.classify(lastResult.getFailureCause());
+                if (!retryPolicy.isRetryable(kind)) {
+                    log.warn("Test '{}' failed on attempt {} with a {} failure, not retrying", test.getMethodName(), attempt, kind);
+                    return lastResult;
+                }
+                if (lastAttempt) {
+                    log.warn("Retry budget of run {} is spent, not retrying test '{}'", context.getRunId(), test.getMethodName());
+                    return lastResult;
+                }
+                // The reserved retry is used now
+                retryReserved = false;
+                long backoffMs = retryPolicy.backoffMs(kind, attempt);
+                log.warn("Test '{}' failed on attempt {} ({}). Retrying in {} ms...", test.getMethodName(), attempt, kind, backoffMs);
+                if (backoffMs > 0) {
+                    try {
+                        Thread.sleep(backoffMs);
+                    } catch (InterruptedException e) {
+                        // Cancelled while waiting to retry
+                        Thread.currentThread().interrupt();
+                        return context.isCancelled() ? cancelledResult(test, attempt) : lastResult;
+                    }
+                }
             }
 
-            if (attempt < maxRetries) {
-                log.warn("Test '{}' failed on attempt {}. Retrying...", testMethod.getName(), attempt);
+            log.error("Test '{}' failed after {} attempts.", test.getMethodName(), maxAttempts);
+            return lastResult; // Return the last failed result
+        } finally {
+            if (retryReserved) {
+                context.releaseRetry();
             }
         }
+    }
 
-        log.error("Test '{}' failed after {} attempts.", testMethod.getName(), maxRetries);
-        return lastResult; // Return the last failed result
+    private TestResult cancelledResult(RegisteredTest test, int attempts) {
+        TestResult result = new TestResult();
+        result.setStatus(TestRunStatus.CANCELLED);
+        result.setErrorMessage("Run was cancelled");
+        result.setTestType(test.getMethodName());
+        result.setAttempts(attempts);
+        return result;
     }
 
     /**
-     * Helper to find all methods with our @Test annotation.
+     * Runs one attempt while holding a permit for the test's kind (UI tests share the grid, the rest are API calls).
+     * The permit is released between attempts so a retrying test doesn't starve the others.
      */
-    private List<Method> findTestsByTags(List<String> requestedTags) {
-        Stream<Method> uiTestMethods = Arrays.stream(UiTests.class.getMethods())
-                .filter(method -> method.isAnnotationPresent(Test.class));
+    private TestResult invokeWithPermit(RegisteredTest test, RunContext context, boolean lastAttempt) throws Throwable {
+        Semaphore permits = permitsFor(test, context);
+        permits.acquire();
+        RunContext.startAttempt(lastAttempt);
+        try {
+            return test.invoke();
+        } finally {
+            RunContext.endAttempt();
+            permits.release();
+        }
+    }
 
-        Stream<Method> apiTestMethods = Arrays.stream(ApiTests.class.getMethods())
-                .filter(method -> method.isAnnotationPresent(Test.class));
+    private Semaphore permitsFor(RegisteredTest test, RunContext context) {
+        boolean ui = test.hasTag("ui");
+        if (context.getPriority() == RunPriority.HIGH) {
+            return ui ? highPriorityUiPermits : highPriorityApiPermits;
+        }
+        return ui ? uiPermits : apiPermits;
+    }
 
-        return Stream.concat(uiTestMethods, apiTestMethods)
-                .filter(method -> {
-                    Test testAnnotation = method.getAnnotation(Test.class);
-                    List<String> methodTags = Arrays.asList(testAnnotation.tags());
-                    return methodTags.containsAll(requestedTags);
-                })
-                .collect(Collectors.toList());
+    // Adds one finished test to the run's CSV/JSONL results journal
+    private void journal(RunJournal journal, RegisteredTest test, TestResult result) {
+        journal.append(test.getName(), String.join(",", test.getTags()), result);
     }
 
     /**
-     * Helper to get the correct service instance (ApiTests or UiTests).
+     * Helper to turn one test's result into the per-test row stored by the API.
      */
-    private Object getTestInstance(Class<?> testClass) {
-        if (testClass.equals(UiTests.class)) {
-            return uiTests;
-        } else if (testClass.equals(ApiTests.class)) {
-            return apiTests;
-        }
-        throw new IllegalArgumentException("Unknown test class: " + testClass.getName());
+    private TestCaseResultDto toTestCaseResult(RegisteredTest test, TestResult result) {
+        TestCaseResultDto testCaseResult = new TestCaseResultDto();
+        testCaseResult.setTestName(test.getName());
+        testCaseResult.setTags(String.join(",", test.getTags()));
+        testCaseResult.setStatus(result.getStatus());
+        testCaseResult.setAttempts(result.getAttempts());
+        testCaseResult.setDurationMs(result.getDurationMs());
+        testCaseResult.setErrorMessage(result.getErrorMessage());
+        testCaseResult.setReportUrl(result.getReportUrl());
+        testCaseResult.setScreenshotPath(result.getScreenshotPath());
+        return testCaseResult;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,179 @@
+package com.example.test_runner_worker.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The HTTP client API tests share, so connections stay open across tests and retries instead of every call
+ * paying for a new TCP/TLS handshake.
+ * <p>
+ * One {@link HttpClient} keeps idle connections per host (and multiplexes on HTTP/2). On top of it, at most
+ * {@code test.http.max-per-host} requests are in flight per host; the rest wait their turn without holding a thread,
+ * so a test can have many checks outstanding through {@link #sendAsync(HttpRequest)}.
+ */
+@Component
+@Slf4j
+public class TestHttpClient {
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final int maxPerHost;
+    private final Map<String, HostGate> gates = new ConcurrentHashMap<>();
+
+    public TestHttpClient(@Value("${test.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+                          @Value("${test.http.request-timeout-ms:10000}") long requestTimeoutMs,
+                          @Value("${test.http.max-per-host:20}") int maxPerHost) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        log.info("Initialized shared test HTTP client (max {} requests per host, timeout {} ms)", this.maxPerHost, requestTimeoutMs);
+    }
+
+    /**
+     * A request builder with the default timeout applied; override anything on it.
+     */
+    public HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(requestTimeout);
+    }
+
+    public HttpResponse<String> get(String url) throws IOException, InterruptedException {
+        return send(request(url).GET().build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> getAsync(String url) {
+        return sendAsync(request(url).GET().build());
+    }
+
+    /**
+     * Sends a request and waits for the response body as a string.
+     */
+    public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return sendAll(List.of(request)).get(0);
+    }
+
+    /**
+     * Sends a request without blocking; it starts once its host has a free slot.
+     */
+    public CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request) {
+        HostGate gate = gates.computeIfAbsent(hostKey(request.uri()), key -> new HostGate(maxPerHost));
+        CompletableFuture<HttpResponse<String>> response = new CompletableFuture<>();
+        gate.submit(() -> {
+            if (response.isDone()) {
+                // Cancelled while waiting for a slot
+                gate.release();
+                return;
+            }
+            CompletableFuture<HttpResponse<String>> inFlight;
+            try {
+                inFlight = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+            } catch (RuntimeException e) {
+                gate.release();
+                response.completeExceptionally(e);
+                return;
+            }
+            // Cancelling our future (e.g. the run was cancelled) aborts the exchange too
+            response.whenComplete((result, error) -> {
+                if (response.isCancelled()) {
+                    inFlight.cancel(true);
+                }
+            });
+            inFlight.whenComplete((result, error) -> {
+                gate.release();
+                if (error != null) {
+                    response.completeExceptionally(error);
+                } else {
+                    response.complete(result);
+                }
+            });
+        });
+        return response;
+    }
+
+    /**
+     * Sends all requests at once (within the per-host limit) and waits for every response, in request order.
+     */
+    public List<HttpResponse<String>> sendAll(List<HttpRequest> requests) throws IOException, InterruptedException {
+        List<CompletableFuture<HttpResponse<String>>> responses = requests.stream().map(this::sendAsync).toList();
+        List<HttpResponse<String>> results = new ArrayList<>(responses.size());
+        try {
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                results.add(response.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            responses.forEach(response -> response.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            responses.forEach(response -> response.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static String hostKey(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    @PreDestroy
+    void close() {
+        httpClient.shutdownNow();
+    }
+
+    // Per-host concurrency limit that queues work instead of blocking the caller
+    static class HostGate {
+        private final Semaphore permits;
+        private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+        HostGate(int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight);
+        }
+
+        void submit(Runnable start) {
+            waiting.add(start);
+            drain();
+        }
+
+        void release() {
+            permits.release();
+            drain();
+        }
+
+        private void drain() {
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                Runnable start = waiting.poll();
+                if (start == null) {
+                    permits.release();
+                    return;
+                }
+                start.run();
+            }
+        }
+    }
+}
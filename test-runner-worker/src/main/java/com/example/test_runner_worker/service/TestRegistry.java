@@ -0,0 +1,147 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.annotations.Test;
+import com.example.test_runner_worker.dtos.TestResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Every @Test method of every bean, found once at startup.
+ * <p>
+ * Tests get ids in name order, so every worker built from the same code numbers them the same way,
+ * and each tag maps to the bitset of ids carrying it. Picking the tests for a run is then a handful of
+ * bitset operations however many tests there are, and a new test class only needs to be a bean.
+ */
+@Component
+@Slf4j
+public class TestRegistry implements SmartInitializingSingleton {
+
+    private static final MethodType TEST_TYPE = MethodType.methodType(TestResult.class);
+
+    private final ApplicationContext applicationContext;
+
+    // Written once in afterSingletonsInstantiated, read-only afterwards
+    private volatile List<RegisteredTest> tests = List.of();
+    private volatile Map<String, RegisteredTest> testsByName = Map.of();
+    private volatile Map<String, BitSet> tagIndex = Map.of();
+
+    public TestRegistry(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<DiscoveredTest> discovered = new ArrayList<>();
+        for (String beanName : applicationContext.getBeanDefinitionNames()) {
+            Class<?> beanType = applicationContext.getType(beanName, false);
+            if (beanType == null) {
+                continue;
+            }
+            Method[] testMethods;
+            try {
+                testMethods = ReflectionUtils.getUniqueDeclaredMethods(ClassUtils.getUserClass(beanType),
+                        method -> method.isAnnotationPresent(Test.class) && !method.isBridge());
+            } catch (IllegalStateException | LinkageError e) {
+                // Some framework bean whose methods reference classes that aren't on the classpath
+                log.debug("Skipping bean {} while looking for tests: {}", beanName, e.toString());
+                continue;
+            }
+            if (testMethods.length == 0) {
+                continue;
+            }
+            Object bean = applicationContext.getBean(beanName);
+            for (Method method : testMethods) {
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() > 0
+                        || !TestResult.class.isAssignableFrom(method.getReturnType())) {
+                    log.warn("Ignoring @Test method {}.{}: it must be an instance method with no parameters returning TestResult",
+                            method.getDeclaringClass().getSimpleName(), method.getName());
+                    continue;
+                }
+                discovered.add(new DiscoveredTest(method.getDeclaringClass().getSimpleName() + "." + method.getName(), method, bean));
+            }
+        }
+        discovered.sort(Comparator.comparing(DiscoveredTest::name));
+
+        List<RegisteredTest> registered = new ArrayList<>();
+        Map<String, RegisteredTest> byName = new LinkedHashMap<>();
+        Map<String, BitSet> index = new HashMap<>();
+        for (DiscoveredTest found : discovered) {
+            if (byName.containsKey(found.name())) {
+                log.warn("Ignoring duplicate test name {} (bean {})", found.name(), found.bean().getClass().getName());
+                continue;
+            }
+            RegisteredTest test = new RegisteredTest(registered.size(), found.name(), found.method().getName(),
+                    found.method().getAnnotation(Test.class), bind(found));
+            registered.add(test);
+            byName.put(test.getName(), test);
+            for (String tag : test.getTags()) {
+                index.computeIfAbsent(tag.toLowerCase(Locale.ROOT), key -> new BitSet()).set(test.getId());
+            }
+        }
+
+        this.tests = Collections.unmodifiableList(registered);
+        this.testsByName = Collections.unmodifiableMap(byName);
+        this.tagIndex = Collections.unmodifiableMap(index);
+        log.info("Registered {} tests under {} tags", registered.size(), index.size());
+    }
+
+    private static MethodHandle bind(DiscoveredTest found) {
+        try {
+            ReflectionUtils.makeAccessible(found.method());
+            return MethodHandles.lookup().unreflect(found.method()).bindTo(found.bean()).asType(TEST_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access test method " + found.name(), e);
+        }
+    }
+
+    /**
+     * Tests matching a tag expression (see {@link TagExpression}), in id order.
+     *
+     * @throws IllegalArgumentException if the expression doesn't parse
+     */
+    public List<RegisteredTest> select(String tagExpression) {
+        Map<String, BitSet> index = tagIndex;
+        List<RegisteredTest> all = tests;
+        BitSet matches = TagExpression.evaluate(tagExpression, index::get, all.size());
+        List<RegisteredTest> selected = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            selected.add(all.get(id));
+        }
+        return selected;
+    }
+
+    /**
+     * Tests by name, in the order asked for; names this worker doesn't know are left out.
+     */
+    public List<RegisteredTest> findByName(List<String> names) {
+        Map<String, RegisteredTest> byName = testsByName;
+        return names.stream().map(byName::get).filter(Objects::nonNull).toList();
+    }
+
+    public List<RegisteredTest> getTests() {
+        return tests;
+    }
+
+    private record DiscoveredTest(String name, Method method, Object bean) {
+    }
+}
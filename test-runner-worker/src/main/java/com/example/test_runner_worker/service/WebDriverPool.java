@@ -0,0 +1,287 @@
+package com.example.test_runner_worker.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Grid sessions kept open between UI tests, since creating one costs seconds.
+ * <p>
+ * The pool has one slot per grid session ({@code SE_NODE_MAX_SESSIONS}), so it never asks the grid for more than
+ * it can run; a borrower waits for a free slot. A slot holds a session or is empty. Sessions are checked on
+ * borrow, reset on return (cookies, storage, extra windows, blank page) and replaced after
+ * {@code selenium.pool.max-uses} tests. In the background the pool pings idle sessions so the grid doesn't
+ * time them out, keeps {@code selenium.pool.warm-sessions} of them open, and closes the rest once they have been
+ * idle for {@code selenium.pool.max-idle-seconds}.
+ */
+@Component
+@Slf4j
+public class WebDriverPool {
+
+    private static final String CLEAR_STORAGE_SCRIPT =
+            "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}";
+
+    private final Supplier<WebDriver> driverFactory;
+    private final int maxSessions;
+    private final int warmSessions;
+    private final int maxUses;
+    private final Duration maxIdle;
+    private final long keepAliveSeconds;
+
+    // Free slots, sessions first (so a borrower gets a warm one if there is any) and empty slots last
+    private final LinkedBlockingDeque<PooledSession> available = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, PooledSession> leased = new ConcurrentHashMap<>();
+    private ScheduledExecutorService maintenance;
+    private volatile boolean closed;
+
+    @Autowired
+    public WebDriverPool(@Value("${selenium.hub.url}") String seleniumHubUrl,
+                         @Value("${selenium.pool.max-sessions:5}") int maxSessions,
+                         @Value("${selenium.pool.warm-sessions:2}") int warmSessions,
+                         @Value("${selenium.pool.max-uses:20}") int maxUses,
+                         @Value("${selenium.pool.max-idle-seconds:240}") long maxIdleSeconds,
+                         @Value("${selenium.pool.keep-alive-seconds:60}") long keepAliveSeconds) {
+        this(remoteDriverFactory(seleniumHubUrl), maxSessions, warmSessions, maxUses, maxIdleSeconds, keepAliveSeconds);
+    }
+
+    WebDriverPool(Supplier<WebDriver> driverFactory, int maxSessions, int warmSessions, int maxUses,
+                  long maxIdleSeconds, long keepAliveSeconds) {
+        this.driverFactory = driverFactory;
+        this.maxSessions = Math.max(1, maxSessions);
+        this.warmSessions = Math.min(Math.max(0, warmSessions), this.maxSessions);
+        this.maxUses = Math.max(1, maxUses);
+        this.maxIdle = Duration.ofSeconds(maxIdleSeconds);
+        this.keepAliveSeconds = keepAliveSeconds;
+        for (int i = 0; i < this.maxSessions; i++) {
+            available.offerLast(new PooledSession());
+        }
+    }
+
+    private static Supplier<WebDriver> remoteDriverFactory(String seleniumHubUrl) {
+        URL hubUrl;
+        try {
+            hubUrl = URI.create(seleniumHubUrl).toURL();
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid selenium.hub.url: " + seleniumHubUrl, e);
+        }
+        return () -> new RemoteWebDriver(hubUrl, new ChromeOptions());
+    }
+
+    @PostConstruct
+    void start() {
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webdriver-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Runs right away too, which opens the warm sessions without holding up startup
+        maintenance.scheduleWithFixedDelay(this::maintain, 0, keepAliveSeconds, TimeUnit.SECONDS);
+        log.info("WebDriver pool started ({} slots, {} kept warm, recycled after {} uses)", maxSessions, warmSessions, maxUses);
+    }
+
+    /**
+     * Takes a session, waiting for a free slot if all are in use. Give it back with {@link #release(WebDriver)}.
+     *
+     * @throws WebDriverException if a new session had to be opened and the grid refused it
+     */
+    public WebDriver borrow() throws InterruptedException {
+        PooledSession session = available.takeFirst();
+        try {
+            // The grid may have dropped it (timeout, node restart, a cancel quitting it mid-test)
+            if (session.driver != null && !ping(session.driver)) {
+                discard(session);
+            }
+            if (session.driver == null) {
+                session.open(driverFactory.get());
+            }
+        } catch (RuntimeException e) {
+            available.offerLast(session);
+            throw e;
+        }
+        leased.put(session.driver, session);
+        return session.driver;
+    }
+
+    /**
+     * Gives a session back. It is reset for the next test, or closed if it's worn out or broken.
+     */
+    public void release(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        PooledSession session = leased.remove(driver);
+        if (session == null) {
+            log.warn("Released a driver the pool doesn't know, quitting it");
+            quitQuietly(driver);
+            return;
+        }
+        session.uses++;
+        if (closed || session.uses >= maxUses || !reset(driver)) {
+            discard(session);
+        }
+        session.lastUsed = Instant.now();
+        giveBack(session);
+    }
+
+    private void giveBack(PooledSession session) {
+        if (session.driver != null) {
+            available.offerFirst(session);
+        } else {
+            available.offerLast(session);
+        }
+    }
+
+    // Only the current page's origin can be cleared through WebDriver; the tests stick to one site per session
+    private boolean reset(WebDriver driver) {
+        try {
+            driver.manage().deleteAllCookies();
+            if (driver instanceof JavascriptExecutor js) {
+                js.executeScript(CLEAR_STORAGE_SCRIPT);
+            }
+            Set<String> handles = driver.getWindowHandles();
+            if (handles.size() > 1) {
+                String first = handles.iterator().next();
+                for (String handle : handles) {
+                    if (!handle.equals(first)) {
+                        driver.switchTo().window(handle).close();
+                    }
+                }
+                driver.switchTo().window(first);
+            }
+            driver.get("about:blank");
+            return true;
+        } catch (WebDriverException e) {
+            log.info("Could not reset pooled session, replacing it: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean ping(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Pings idle sessions (which also keeps the grid from timing them out), closes dead ones and the ones idle
+     * past maxIdle beyond the warm count, then opens sessions until warmSessions are ready.
+     */
+    void maintain() {
+        if (closed) {
+            return;
+        }
+        List<PooledSession> idle = new ArrayList<>();
+        available.drainTo(idle);
+        int warm = 0;
+        Instant idleCutoff = Instant.now().minus(maxIdle);
+        try {
+            for (PooledSession session : idle) {
+                if (session.driver == null) {
+                    continue;
+                }
+                if ((warm >= warmSessions && session.lastUsed.isBefore(idleCutoff)) || !ping(session.driver)) {
+                    discard(session);
+                } else {
+                    warm++;
+                }
+            }
+        } finally {
+            idle.forEach(this::giveBack);
+        }
+
+        // One empty slot at a time, so borrowers aren't kept waiting while a session opens
+        while (warm < warmSessions && !closed) {
+            PooledSession session = available.pollLast();
+            if (session == null) {
+                return;
+            }
+            if (session.driver != null) {
+                // No empty slot left
+                available.offerFirst(session);
+                return;
+            }
+            try {
+                session.open(driverFactory.get());
+                warm++;
+            } catch (RuntimeException e) {
+                log.warn("Could not open a warm WebDriver session: {}", e.getMessage());
+                return;
+            } finally {
+                giveBack(session);
+            }
+        }
+    }
+
+    private static void discard(PooledSession session) {
+        if (session.driver != null) {
+            quitQuietly(session.driver);
+        }
+        session.driver = null;
+        session.uses = 0;
+    }
+
+    private static void quitQuietly(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            log.debug("Could not quit pooled driver: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        closed = true;
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        List<PooledSession> idle = new ArrayList<>();
+        available.drainTo(idle);
+        idle.forEach(WebDriverPool::discard);
+        leased.values().forEach(WebDriverPool::discard);
+        leased.clear();
+    }
+
+    int idleSessions() {
+        return (int) available.stream().filter(session -> session.driver != null).count();
+    }
+
+    // A slot of the pool; only touched by whoever currently holds it
+    private static class PooledSession {
+        private WebDriver driver;
+        private int uses;
+        private Instant lastUsed;
+
+        private void open(WebDriver newDriver) {
+            driver = newDriver;
+            uses = 0;
+            lastUsed = Instant.now();
+        }
+    }
+}
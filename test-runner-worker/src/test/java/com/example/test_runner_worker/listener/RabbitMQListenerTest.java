@@ -0,0 +1,141 @@
+package com.example.test_runner_worker.listener;
+
+import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.dtos.TestRunUpdateDto;
+import com.example.test_runner_worker.dtos.TestShardDto;
+import com.example.test_runner_worker.model.TestRun;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import com.example.test_runner_worker.service.RunStatusCheck;
+import com.example.test_runner_worker.service.TestExecutorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RabbitMQListenerTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final TestExecutorService executorService = mock(TestExecutorService.class);
+    private final RunStatusCheck runStatusCheck = mock(RunStatusCheck.class);
+    private RabbitMQListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        RetryTemplate retryTemplate = RetryTemplate.builder().maxAttempts(3).noBackoff().build();
+        listener = new RabbitMQListener(mock(RestTemplate.class), executorService, runStatusCheck, "http://localhost:8080",
+                retryTemplate, rabbitTemplate, "amqp", "results", "results_key", "jobs", "shards_key", 200);
+        TestResult result = new TestResult();
+        result.setStatus(TestRunStatus.COMPLETED);
+        when(executorService.executeShard(any())).thenReturn(result);
+    }
+
+    @Test
+    public void resultConfirmedByTheBrokerIsReported() {
+        brokerAnswers(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)));
+
+        assertThatCode(() -> listener.handleShard(shard())).doesNotThrowAnyException();
+        verify(rabbitTemplate).convertAndSend(eq("results"), eq("results_key"), any(Object.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void nackedResultIsRetriedThenRejected() {
+        brokerAnswers(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(false, "queue full")));
+
+        assertThatThrownBy(() -> listener.handleShard(shard())).isInstanceOf(AmqpRejectAndDontRequeueException.class);
+        verify(rabbitTemplate, times(3)).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void returnedResultIsRejected() {
+        brokerAnswers(correlation -> {
+            correlation.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()),
+                    312, "NO_ROUTE", "results", "results_key"));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+        });
+
+        assertThatThrownBy(() -> listener.handleShard(shard()))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class)
+                .rootCause().hasMessageContaining("NO_ROUTE");
+    }
+
+    @Test
+    public void unconfirmedResultTimesOut() {
+        brokerAnswers(correlation -> { });
+
+        assertThatThrownBy(() -> listener.handleShard(shard())).isInstanceOf(AmqpRejectAndDontRequeueException.class);
+    }
+
+    @Test
+    public void shardOfARunCancelledBeforeThisWorkerListenedIsSkipped() {
+        TestShardDto shard = shard();
+        when(runStatusCheck.isCancelled(shard.getRunId())).thenReturn(true);
+
+        listener.handleShard(shard);
+
+        verify(executorService).cancelRun(shard.getRunId());
+        verify(executorService, never()).executeShard(any());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void splitRunSendsItsShardPlanBeforeTheShards() {
+        brokerAnswers(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)));
+        TestRun testRun = new TestRun();
+        testRun.setId(UUID.randomUUID());
+        when(executorService.planShards(testRun)).thenReturn(List.of(shard(), shard()));
+
+        listener.handleMessage(testRun);
+
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        InOrder order = inOrder(rabbitTemplate);
+        order.verify(rabbitTemplate).convertAndSend(eq("results"), eq("results_key"), sent.capture(), any(CorrelationData.class));
+        order.verify(rabbitTemplate, times(2)).convertAndSend(eq("jobs"), eq("shards_key"), any(Object.class), any(CorrelationData.class));
+        TestRunUpdateDto plan = (TestRunUpdateDto) sent.getValue();
+        assertThat(plan.getRunId()).isEqualTo(testRun.getId());
+        assertThat(plan.getShardCount()).isEqualTo(2);
+        assertThat(plan.getShardIndex()).isNull();
+        verify(executorService, never()).executeTest(any());
+    }
+
+    private void brokerAnswers(Consumer<CorrelationData> broker) {
+        doAnswer(invocation -> {
+            broker.accept(invocation.getArgument(3));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+    }
+
+    private static TestShardDto shard() {
+        TestShardDto shard = new TestShardDto();
+        shard.setRunId(UUID.randomUUID());
+        shard.setShardIndex(0);
+        shard.setShardCount(2);
+        shard.setTestNames(List.of("ApiTests.runApiContentTest"));
+        return shard;
+    }
+}
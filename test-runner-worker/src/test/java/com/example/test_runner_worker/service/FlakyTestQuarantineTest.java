@@ -0,0 +1,85 @@
+package com.example.test_runner_worker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.client.MockServerRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class FlakyTestQuarantineTest {
+
+    private static final String STATS_URL = "http://api/api/analytics/tests?days=14&sort=flaky&limit=500";
+
+    private MockServerRestTemplateCustomizer customizer;
+
+    @BeforeEach
+    public void setUp() {
+        customizer = new MockServerRestTemplateCustomizer();
+    }
+
+    @Test
+    public void quarantinesTestsWithEnoughRunsAndAHighFlakeRate() {
+        FlakyTestQuarantine quarantine = quarantine(true, List.of("UiTests.pinned"));
+        server().expect(requestTo(STATS_URL)).andRespond(withSuccess("""
+                [{"testName": "ApiTests.flaky", "runs": 10, "flakeRate": 0.3},
+                 {"testName": "ApiTests.rarelyRun", "runs": 2, "flakeRate": 1.0},
+                 {"testName": "ApiTests.steady", "runs": 50, "flakeRate": 0.1},
+                 {"testName": "UiTests.borderline", "runs": 5, "flakeRate": 0.2}]
+                """, MediaType.APPLICATION_JSON));
+
+        assertThat(quarantine.current())
+                .containsExactlyInAnyOrder("ApiTests.flaky", "UiTests.borderline", "UiTests.pinned");
+        server().verify();
+    }
+
+    @Test
+    public void keepsThePreviousListWhenTheApiCallFails() {
+        FlakyTestQuarantine quarantine = quarantine(true, List.of());
+        server().expect(requestTo(STATS_URL)).andRespond(withSuccess("""
+                [{"testName": "ApiTests.flaky", "runs": 10, "flakeRate": 0.5}]
+                """, MediaType.APPLICATION_JSON));
+        server().expect(requestTo(STATS_URL)).andRespond(withServerError());
+
+        assertThat(quarantine.current()).containsExactly("ApiTests.flaky");
+        ReflectionTestUtils.setField(quarantine, "refreshedAt", Instant.EPOCH);
+        assertThat(quarantine.current()).containsExactly("ApiTests.flaky");
+        server().verify();
+    }
+
+    @Test
+    public void doesNotAskTheApiAgainUntilTheListIsStale() {
+        FlakyTestQuarantine quarantine = quarantine(true, List.of());
+        server().expect(requestTo(STATS_URL)).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        assertThat(quarantine.current()).isEmpty();
+        assertThat(quarantine.current()).isEmpty();
+        server().verify();
+    }
+
+    @Test
+    public void onlyPinnedTestsWhileDisabled() {
+        FlakyTestQuarantine quarantine = quarantine(false, List.of(" UiTests.pinned ", ""));
+
+        assertThat(quarantine.current()).containsExactly("UiTests.pinned");
+        server().verify();
+    }
+
+    private FlakyTestQuarantine quarantine(boolean enabled, List<String> pinned) {
+        return new FlakyTestQuarantine(new RestTemplateBuilder(customizer), "http://api",
+                enabled, 0.2, 5, 14, 300, pinned);
+    }
+
+    private MockRestServiceServer server() {
+        return customizer.getServer();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReportPipelineTest {
+
+    @Test
+    public void yieldsTheHtmlReportAndSurvivesAFailingGenerator() throws Exception {
+        HtmlReportGenerator html = mock(HtmlReportGenerator.class);
+        when(html.generateReport(any(), anyString())).thenReturn("reports/report.html");
+        ReportGenerator broken = (result, runId) -> {
+            throw new IllegalStateException("disk full");
+        };
+        ReportPipeline pipeline = new ReportPipeline(List.of(broken, html), 1, 10);
+
+        assertThat(pipeline.submit(UUID.randomUUID(), new TestResult()).get(5, TimeUnit.SECONDS))
+                .isEqualTo("reports/report.html");
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void aFullQueueMakesTheSubmitterWait() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        ReportGenerator slow = (result, runId) -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+        ReportPipeline pipeline = new ReportPipeline(List.of(slow), 1, 1);
+        UUID runId = UUID.randomUUID();
+        pipeline.submit(runId, new TestResult()); // running
+        pipeline.submit(runId, new TestResult()); // queued
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> pipeline.submit(runId, new TestResult()));
+        Thread.sleep(200);
+        assertThat(third).isNotDone();
+
+        unblock.countDown();
+        third.get(5, TimeUnit.SECONDS);
+        pipeline.shutdown();
+    }
+}
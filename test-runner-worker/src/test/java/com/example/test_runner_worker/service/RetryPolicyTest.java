@@ -0,0 +1,68 @@
+package com.example.test_runner_worker.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(3, 2, 0.1, 2, 500);
+
+    @Test
+    public void failuresAreClassifiedByWhatTheyThrew() {
+        assertThat(FailureKind.classify(new AssertionError("Expected userId 1 but was 2"))).isEqualTo(FailureKind.DETERMINISTIC);
+        assertThat(FailureKind.classify(new NullPointerException())).isEqualTo(FailureKind.DETERMINISTIC);
+        assertThat(FailureKind.classify(new JsonParseException(null, "bad body"))).isEqualTo(FailureKind.DETERMINISTIC);
+
+        assertThat(FailureKind.classify(new HttpTimeoutException("request timed out"))).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(FailureKind.classify(new UncheckedIOException(new ConnectException("refused")))).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(FailureKind.classify(new TimeoutException("waiting for h3"))).isEqualTo(FailureKind.TRANSIENT);
+
+        assertThat(FailureKind.classify(new NoSuchElementException("no link"))).isEqualTo(FailureKind.UNKNOWN);
+        assertThat(FailureKind.classify(null)).isEqualTo(FailureKind.UNKNOWN);
+    }
+
+    @Test
+    public void onlyDeterministicFailuresAreNotRetried() {
+        assertThat(policy.isRetryable(FailureKind.DETERMINISTIC)).isFalse();
+        assertThat(policy.isRetryable(FailureKind.TRANSIENT)).isTrue();
+        assertThat(policy.isRetryable(FailureKind.UNKNOWN)).isTrue();
+    }
+
+    @Test
+    public void transientFailuresBackOffExponentially() {
+        assertThat(policy.backoffMs(FailureKind.TRANSIENT, 1)).isEqualTo(500);
+        assertThat(policy.backoffMs(FailureKind.TRANSIENT, 2)).isEqualTo(1000);
+        assertThat(policy.backoffMs(FailureKind.UNKNOWN, 1)).isZero();
+    }
+
+    @Test
+    public void quarantinedTestsGetFewerAttempts() {
+        assertThat(policy.maxAttempts(false)).isEqualTo(3);
+        assertThat(policy.maxAttempts(true)).isEqualTo(2);
+    }
+
+    @Test
+    public void aRunSpendsNoMoreThanItsRetryBudget() {
+        assertThat(policy.budgetFor(5)).isEqualTo(2);
+        assertThat(policy.budgetFor(1000)).isEqualTo(100);
+
+        RunContext context = new RunContext(UUID.randomUUID(), null);
+        context.setRetryBudget(policy.budgetFor(5));
+        assertThat(context.tryReserveRetry()).isTrue();
+        assertThat(context.tryReserveRetry()).isTrue();
+        assertThat(context.tryReserveRetry()).isFalse();
+        // A retry given back can be reserved again
+        context.releaseRetry();
+        assertThat(context.tryReserveRetry()).isTrue();
+        assertThat(context.tryReserveRetry()).isFalse();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RunJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UUID runId = UUID.randomUUID();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void everyTestThreadEndsUpInBothFilesOnce() throws Exception {
+        RunJournal journal = open(7);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String name = "Tests.test" + i;
+            futures.add(threads.submit(() -> journal.append(name, "api", result(TestRunStatus.COMPLETED, null))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        threads.shutdown();
+        journal.close();
+
+        List<String> csv = Files.readAllLines(dir.resolve("run.csv"));
+        List<String> jsonl = Files.readAllLines(dir.resolve("run.jsonl"));
+        assertThat(csv.get(0) + "\n").isEqualTo(RunJournal.CSV_HEADER);
+        assertThat(csv).hasSize(1001);
+        assertThat(jsonl).hasSize(1000);
+        Set<String> names = new HashSet<>();
+        for (String line : jsonl) {
+            names.add(objectMapper.readTree(line).get("testName").asText());
+        }
+        assertThat(names).hasSize(1000);
+    }
+
+    @Test
+    public void errorMessagesWithCommasQuotesAndNewlinesAreEscaped() throws Exception {
+        String error = "expected <200>, got \"500\"\nat line 2";
+        RunJournal journal = open(500);
+        journal.append("UiTests.login", "ui,smoke", result(TestRunStatus.FAILED, error));
+        journal.close();
+
+        String csv = Files.readString(dir.resolve("run.csv"), StandardCharsets.UTF_8);
+        assertThat(csv).contains(",\"ui,smoke\",FAILED,")
+                .contains(",\"expected <200>, got \"\"500\"\"\nat line 2\",");
+
+        List<String> jsonl = Files.readAllLines(dir.resolve("run.jsonl"));
+        assertThat(jsonl).hasSize(1);
+        JsonNode row = objectMapper.readTree(jsonl.get(0));
+        assertThat(row.get("errorMessage").asText()).isEqualTo(error);
+        assertThat(row.get("runId").asText()).isEqualTo(runId.toString());
+        assertThat(row.get("attempts").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    public void onlyTheFirstRowOfATestIsKeptAndLateRowsAreDropped() throws Exception {
+        RunJournal journal = open(500);
+        journal.append("ApiTests.slow", "api", result(TestRunStatus.CANCELLED, "Run was cancelled"));
+        journal.append("ApiTests.slow", "api", result(TestRunStatus.COMPLETED, null));
+        journal.close();
+        journal.append("ApiTests.late", "api", result(TestRunStatus.COMPLETED, null));
+
+        List<String> jsonl = Files.readAllLines(dir.resolve("run.jsonl"));
+        assertThat(jsonl).hasSize(1);
+        assertThat(objectMapper.readTree(jsonl.get(0)).get("status").asText()).isEqualTo("CANCELLED");
+    }
+
+    @Test
+    public void reopeningStartsTheJournalOver() throws Exception {
+        RunJournal first = open(500);
+        first.append("ApiTests.a", "api", result(TestRunStatus.FAILED, "boom"));
+        first.close();
+
+        RunJournal redelivered = open(500);
+        redelivered.append("ApiTests.a", "api", result(TestRunStatus.COMPLETED, null));
+        redelivered.close();
+
+        assertThat(Files.readAllLines(dir.resolve("run.csv"))).hasSize(2);
+        assertThat(Files.readAllLines(dir.resolve("run.jsonl"))).singleElement().asString().contains("COMPLETED");
+    }
+
+    private RunJournal open(int batchSize) {
+        return new RunJournal(runId, dir.resolve("run.csv"), dir.resolve("run.jsonl"), objectMapper, batchSize, path -> { });
+    }
+
+    private static TestResult result(TestRunStatus status, String error) {
+        TestResult result = new TestResult();
+        result.setStatus(status);
+        result.setErrorMessage(error);
+        result.setAttempts(2);
+        result.setDurationMs(42L);
+        result.setTestType("API");
+        return result;
+    }
+}
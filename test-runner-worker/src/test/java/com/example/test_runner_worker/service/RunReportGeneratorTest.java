@@ -0,0 +1,68 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestCaseResultDto;
+import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RunReportGeneratorTest {
+
+    private final UUID runId = UUID.randomUUID();
+
+    @AfterEach
+    public void deleteReport() throws Exception {
+        Files.deleteIfExists(Paths.get("reports", "run-" + runId + ".html"));
+        Files.deleteIfExists(Paths.get("reports", "run-" + runId + ".html.gz"));
+    }
+
+    @Test
+    public void writesEveryTestAndAFailureSectionForALargeRun() throws Exception {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+
+        List<TestCaseResultDto> tests = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            TestCaseResultDto test = new TestCaseResultDto();
+            test.setTestName("LoadTests.check" + i);
+            test.setTags("api");
+            test.setStatus(i % 1000 == 0 ? TestRunStatus.FAILED : TestRunStatus.COMPLETED);
+            test.setErrorMessage(i % 1000 == 0 ? "boom <" + i + ">" : null);
+            test.setAttempts(1);
+            test.setDurationMs((long) i);
+            tests.add(test);
+        }
+        TestResult runResult = new TestResult();
+        runResult.setStatus(TestRunStatus.FAILED);
+
+        String url = new RunReportGenerator(engine, new ReportCompressor(true, 1024)).generate("run-" + runId, runId, null, runResult, tests);
+
+        assertThat(url).isEqualTo("reports/run-" + runId + ".html");
+        String html = Files.readString(Path.of(url));
+        assertThat(html.split("<tr>", -1)).hasSize(5000 + 2);
+        assertThat(html).contains("<h2>Failures</h2>").contains("boom &lt;4000&gt;").doesNotContain("boom <");
+        assertThat(html).contains("data-value=\"4999\"");
+        assertThat(Files.exists(Path.of(url + ".part"))).isFalse();
+        // gzip copy for the API to serve as-is
+        try (InputStream gzip = new GZIPInputStream(Files.newInputStream(Path.of(url + ".gz")))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(html);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScreenshotStoreTest {
+
+    private final ScreenshotStore store = new ScreenshotStore(false, 100, 0.7f);
+    private final List<Path> written = new ArrayList<>();
+
+    @AfterEach
+    public void deleteFiles() throws Exception {
+        for (Path path : written) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void identicalScreenshotsAreStoredOnce() throws Exception {
+        byte[] png = png(800, 600, 0x336699);
+
+        String first = store.store(png);
+        String second = store.store(png);
+        String other = store.store(png(800, 600, 0x993366));
+        written.add(Paths.get(first));
+        written.add(Paths.get(other));
+
+        assertThat(first).isEqualTo(second).startsWith("reports/screenshots/").endsWith(".png").isNotEqualTo(other);
+        assertThat(Files.readAllBytes(Paths.get(first))).isEqualTo(png);
+    }
+
+    @Test
+    public void thumbnailIsASmallJpegNextToTheImage() throws Exception {
+        String screenshot = store.store(png(800, 600, 0x00ff00));
+        written.add(Paths.get(screenshot));
+
+        String thumbnail = store.thumbnail(screenshot);
+        written.add(Paths.get(thumbnail));
+
+        assertThat(thumbnail).isEqualTo(screenshot.replace(".png", "-thumb.jpg"));
+        BufferedImage image = ImageIO.read(Paths.get(thumbnail).toFile());
+        assertThat(image.getWidth()).isEqualTo(100);
+        assertThat(image.getHeight()).isEqualTo(75);
+    }
+
+    @Test
+    public void onlyTheKeptAttemptIsCaptured() {
+        RunContext.startAttempt(false);
+        try {
+            assertThat(store.shouldCapture(TestRunStatus.FAILED)).isFalse();
+            assertThat(store.shouldCapture(TestRunStatus.COMPLETED)).isTrue();
+            assertThat(new ScreenshotStore(true, 100, 0.7f).shouldCapture(TestRunStatus.FAILED)).isTrue();
+            // An assertion isn't retried, so that attempt's result is kept
+            assertThat(store.shouldCapture(TestRunStatus.FAILED, new AssertionError("heading"))).isTrue();
+            assertThat(store.shouldCapture(TestRunStatus.FAILED, new java.net.SocketTimeoutException())).isFalse();
+        } finally {
+            RunContext.endAttempt();
+        }
+        RunContext.startAttempt(true);
+        try {
+            assertThat(store.shouldCapture(TestRunStatus.FAILED)).isTrue();
+        } finally {
+            RunContext.endAttempt();
+        }
+    }
+
+    private static byte[] png(int width, int height, int rgb) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
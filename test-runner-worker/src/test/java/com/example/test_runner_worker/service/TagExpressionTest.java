@@ -0,0 +1,70 @@
+package com.example.test_runner_worker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TagExpressionTest {
+
+    // Test 0: api+smoke, 1: api+"smoke test", 2: ui+smoke, 3: ui
+    private static final Map<String, BitSet> INDEX = Map.of(
+            "api", bits(0, 1),
+            "ui", bits(2, 3),
+            "smoke", bits(0, 2),
+            "smoke test", bits(1));
+
+    @Test
+    public void commaListStillMeansAllOfTheTags() {
+        assertThat(evaluate("api,smoke")).isEqualTo(bits(0));
+        assertThat(evaluate(" API , Smoke ")).isEqualTo(bits(0));
+        assertThat(evaluate("api")).isEqualTo(bits(0, 1));
+    }
+
+    @Test
+    public void supportsAndOrNotWithUsualPrecedence() {
+        assertThat(evaluate("smoke & !ui")).isEqualTo(bits(0));
+        assertThat(evaluate("api | ui & smoke")).isEqualTo(bits(0, 1, 2));
+        assertThat(evaluate("(api | ui) & smoke")).isEqualTo(bits(0, 2));
+        assertThat(evaluate("not smoke and not api")).isEqualTo(bits(3));
+        assertThat(evaluate("!!api")).isEqualTo(bits(0, 1));
+    }
+
+    @Test
+    public void unknownTagsMatchNothingAndLeaveTheIndexAlone() {
+        assertThat(evaluate("regression")).isEqualTo(new BitSet());
+        assertThat(evaluate("!regression")).isEqualTo(bits(0, 1, 2, 3));
+        evaluate("api & !smoke");
+        assertThat(INDEX.get("api")).isEqualTo(bits(0, 1));
+    }
+
+    @Test
+    public void rejectsMalformedExpressions() {
+        assertThatThrownBy(() -> evaluate("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> evaluate("api &")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> evaluate("(api | ui")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> evaluate("api (ui)")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void wordsWithoutAnOperatorBetweenThemAreOneTag() {
+        assertThat(evaluate("Smoke  Test")).isEqualTo(bits(1));
+        assertThat(evaluate("smoke test | ui & smoke")).isEqualTo(bits(1, 2));
+        assertThat(evaluate("smoke and not smoke test")).isEqualTo(bits(0, 2));
+    }
+
+    private static BitSet evaluate(String expression) {
+        return TagExpression.evaluate(expression, INDEX::get, 4);
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestCaseResultDto;
+import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.dtos.TestShardDto;
+import com.example.test_runner_worker.model.TestRun;
+import com.example.test_runner_worker.model.enums.RunPriority;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchElementException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestExecutorServiceTest {
+
+    // What each fake test throws on its next attempts (nothing left: it passes), and what each attempt saw
+    private static final Map<String, Deque<Throwable>> OUTCOMES = new ConcurrentHashMap<>();
+    private static final Map<String, List<Boolean>> LAST_ATTEMPT_FLAGS = new ConcurrentHashMap<>();
+    private static final Map<String, String> THREADS = new ConcurrentHashMap<>();
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private TestRegistry testRegistry;
+    private FlakyTestQuarantine quarantine;
+
+    @BeforeEach
+    public void setUp() {
+        OUTCOMES.clear();
+        LAST_ATTEMPT_FLAGS.clear();
+        THREADS.clear();
+        applicationContext = new AnnotationConfigApplicationContext(FakeTests.class);
+        testRegistry = new TestRegistry(applicationContext);
+        testRegistry.afterSingletonsInstantiated();
+        quarantine = mock(FlakyTestQuarantine.class);
+        when(quarantine.current()).thenReturn(Set.of());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Test
+    public void aDeterministicFailureGetsExactlyOneAttempt() {
+        failNext("FakeTests.first", new AssertionError("expected 200 but was 500"), new AssertionError("again"));
+
+        TestResult result = executor(10, false).executeTest(run("first"));
+
+        assertThat(result.getStatus()).isEqualTo(TestRunStatus.FAILED);
+        assertThat(only(result).getAttempts()).isEqualTo(1);
+        assertThat(LAST_ATTEMPT_FLAGS.get("FakeTests.first")).containsExactly(false);
+    }
+
+    @Test
+    public void retriesStopOnceTheRunsBudgetIsSpent() {
+        failNext("FakeTests.first", notFound(), notFound(), notFound());
+        failNext("FakeTests.second", notFound(), notFound(), notFound());
+
+        TestResult result = executor(1, false).executeTest(run("first | second"));
+
+        assertThat(result.getFailedTestCount()).isEqualTo(2);
+        assertThat(result.getTestCaseResults()).extracting(TestCaseResultDto::getAttempts).containsExactly(2, 1);
+        // An attempt that gets no retry knows it is the last one, so it keeps its screenshot
+        assertThat(LAST_ATTEMPT_FLAGS.get("FakeTests.first")).containsExactly(false, true);
+        assertThat(LAST_ATTEMPT_FLAGS.get("FakeTests.second")).containsExactly(true);
+    }
+
+    @Test
+    public void aRetryReservedByATestThatPassesGoesBackToTheRun() {
+        failNext("FakeTests.second", notFound());
+
+        TestResult result = executor(1, false).executeTest(run("first | second"));
+
+        // "first" held the only retry while it ran; "second" still gets it afterwards
+        assertThat(result.getStatus()).isEqualTo(TestRunStatus.COMPLETED);
+        assertThat(result.getTestCaseResults()).extracting(TestCaseResultDto::getAttempts).containsExactly(1, 2);
+        assertThat(LAST_ATTEMPT_FLAGS.get("FakeTests.first")).containsExactly(false);
+        assertThat(LAST_ATTEMPT_FLAGS.get("FakeTests.second")).containsExactly(false, true);
+    }
+
+    @Test
+    public void aQuarantinedFailureNeitherFailsTheRunNorSpendsTheBudget() {
+        when(quarantine.current()).thenReturn(Set.of("FakeTests.first"));
+        failNext("FakeTests.first", transientFailure(), transientFailure());
+        failNext("FakeTests.second", notFound());
+
+        TestResult result = executor(1, false).executeTest(run("first | second"));
+
+        assertThat(result.getStatus()).isEqualTo(TestRunStatus.COMPLETED);
+        assertThat(result.getFailedTestCount()).isZero();
+        TestCaseResultDto quarantined = result.getTestCaseResults().get(0);
+        assertThat(quarantined.getStatus()).isEqualTo(TestRunStatus.FAILED);
+        assertThat(quarantined.getAttempts()).isEqualTo(2);
+        assertThat(quarantined.getErrorMessage()).startsWith("[quarantined]");
+        // The run's one retry was still there for the regular test
+        assertThat(result.getTestCaseResults().get(1).getAttempts()).isEqualTo(2);
+        assertThat(result.getTestCaseResults().get(1).getStatus()).isEqualTo(TestRunStatus.COMPLETED);
+    }
+
+    @Test
+    public void shardsShareTheRunsRetryBudget() {
+        TestExecutorService executor = executor(2, true);
+
+        List<TestShardDto> shards = executor.planShards(run("api"));
+
+        assertThat(shards).hasSize(4);
+        assertThat(shards).extracting(TestShardDto::getRetryBudget).containsExactly(0, 1, 0, 1);
+    }
+
+    @Test
+    public void highPriorityRunsUseTheHighLaneAndItsPermits() {
+        // No regular permits at all: the run can only finish on the high lane's
+        TestExecutorService executor = executor(1, false, 0, 0, 5, 1);
+        TestRun run = run("first | fifth");
+        run.setPriority(RunPriority.HIGH);
+
+        TestResult result = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> executor.executeTest(run));
+
+        assertThat(result.getStatus()).isEqualTo(TestRunStatus.COMPLETED);
+        assertThat(THREADS.get("FakeTests.first")).startsWith("test-high-");
+        assertThat(THREADS.get("FakeTests.fifth")).startsWith("test-high-");
+    }
+
+    @Test
+    public void normalRunsStayOffTheHighLane() {
+        TestExecutorService executor = executor(1, false, 20, 4, 0, 0);
+
+        TestResult result = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> executor.executeTest(run("first | fifth")));
+
+        assertThat(result.getStatus()).isEqualTo(TestRunStatus.COMPLETED);
+        assertThat(THREADS.get("FakeTests.first")).startsWith("test-").doesNotStartWith("test-high-");
+        assertThat(THREADS.get("FakeTests.fifth")).startsWith("test-").doesNotStartWith("test-high-");
+    }
+
+    @Test
+    public void quarantinedTestsRunInTheirOwnLane() {
+        when(quarantine.current()).thenReturn(Set.of("FakeTests.first"));
+        TestRun run = run("first | second");
+        run.setPriority(RunPriority.HIGH);
+
+        executor(1, false).executeTest(run);
+
+        assertThat(THREADS.get("FakeTests.first")).startsWith("test-quarantine-");
+        assertThat(THREADS.get("FakeTests.second")).startsWith("test-high-");
+    }
+
+    @Test
+    public void highPriorityRunsAreNeverSharded() {
+        TestExecutorService executor = executor(2, true);
+        TestRun run = run("api");
+        run.setPriority(RunPriority.HIGH);
+
+        assertThat(executor.planShards(run)).isEmpty();
+        assertThat(executor.planShards(run("api"))).hasSize(4);
+    }
+
+    private TestExecutorService executor(int retryBudget, boolean sharding) {
+        return executor(retryBudget, sharding, 20, 4, 5, 1);
+    }
+
+    private TestExecutorService executor(int retryBudget, boolean sharding, int apiPermits, int uiPermits,
+                                         int highApiPermits, int highUiPermits) {
+        ReportPipeline reportPipeline = mock(ReportPipeline.class);
+        when(reportPipeline.submit(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        RunJournals runJournals = mock(RunJournals.class);
+        when(runJournals.open(any(), anyString())).thenReturn(mock(RunJournal.class));
+        // Three attempts, two when quarantined, a fixed budget and no backoff
+        RetryPolicy retryPolicy = new RetryPolicy(3, 2, 0, retryBudget, 0);
+        return new TestExecutorService(testRegistry, reportPipeline,
+                mock(RunReportGenerator.class), runJournals, retryPolicy, quarantine,
+                5, 1, false, apiPermits, uiPermits, 1, highApiPermits, highUiPermits, 1, 24, sharding, 2, 1);
+    }
+
+    private static TestRun run(String tags) {
+        TestRun run = new TestRun();
+        run.setId(UUID.randomUUID());
+        run.setPriority(RunPriority.NORMAL);
+        run.setTags(tags);
+        return run;
+    }
+
+    private static TestCaseResultDto only(TestResult result) {
+        assertThat(result.getTestCaseResults()).hasSize(1);
+        return result.getTestCaseResults().get(0);
+    }
+
+    private static void failNext(String test, Throwable... failures) {
+        OUTCOMES.put(test, new ArrayDeque<>(List.of(failures)));
+    }
+
+    private static Throwable notFound() {
+        return new NoSuchElementException("no such element: #submit");
+    }
+
+    private static Throwable transientFailure() {
+        return new UncheckedIOException(new IOException("connection reset"));
+    }
+
+    public static class FakeTests {
+
+        @com.example.test_runner_worker.annotations.Test(name = "First", tags = {"api", "first"})
+        public TestResult first() throws Throwable {
+            return attempt("FakeTests.first");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "Second", tags = {"api", "second"})
+        public TestResult second() throws Throwable {
+            return attempt("FakeTests.second");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "Third", tags = {"api"})
+        public TestResult third() throws Throwable {
+            return attempt("FakeTests.third");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "Fourth", tags = {"api"})
+        public TestResult fourth() throws Throwable {
+            return attempt("FakeTests.fourth");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "Fifth", tags = {"ui", "fifth"})
+        public TestResult fifth() throws Throwable {
+            return attempt("FakeTests.fifth");
+        }
+
+        static TestResult attempt(String name) throws Throwable {
+            LAST_ATTEMPT_FLAGS.computeIfAbsent(name, key -> new ArrayList<>()).add(RunContext.isLastAttempt());
+            THREADS.put(name, Thread.currentThread().getName());
+            Deque<Throwable> outcomes = OUTCOMES.get(name);
+            Throwable failure = outcomes != null ? outcomes.poll() : null;
+            if (failure != null) {
+                throw failure;
+            }
+            TestResult result = new TestResult();
+            result.setStatus(TestRunStatus.COMPLETED);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.test_runner_worker.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestHttpClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/slow", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void sequentialRequestsReuseOneConnection() throws Exception {
+        TestHttpClient client = new TestHttpClient(1000, 5000, 4);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.get(baseUrl + "/slow").body()).isEqualTo("ok");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+        client.close();
+    }
+
+    @Test
+    public void asyncRequestsStayWithinThePerHostLimit() throws Exception {
+        TestHttpClient client = new TestHttpClient(1000, 5000, 2);
+        List<HttpRequest> requests = IntStream.range(0, 6)
+                .mapToObj(i -> client.request(baseUrl + "/slow").GET().build())
+                .toList();
+
+        List<HttpResponse<String>> responses = client.sendAll(requests);
+
+        assertThat(responses).hasSize(6).allSatisfy(response -> assertThat(response.statusCode()).isEqualTo(200));
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        client.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.test_runner_worker.service;
+
+import com.example.test_runner_worker.dtos.TestResult;
+import com.example.test_runner_worker.model.enums.TestRunStatus;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestRegistryTest {
+
+    private static final AtomicInteger INTERCEPTED = new AtomicInteger();
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private TestRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        INTERCEPTED.set(0);
+        applicationContext = new AnnotationConfigApplicationContext(TestBeans.class);
+        registry = new TestRegistry(applicationContext);
+        registry.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Test
+    public void discoversTestMethodsOfProxiedAndPlainBeansInNameOrder() {
+        assertThat(AopUtils.isCglibProxy(applicationContext.getBean("alphaTests"))).isTrue();
+
+        List<RegisteredTest> tests = registry.getTests();
+
+        // Static methods and methods with parameters are not tests; the duplicate bean adds nothing
+        assertThat(tests).extracting(RegisteredTest::getName)
+                .containsExactly("AlphaTests.login", "AlphaTests.search", "ZebraTests.checkout");
+        assertThat(tests).extracting(RegisteredTest::getId).containsExactly(0, 1, 2);
+        assertThat(tests.get(0).getMethodName()).isEqualTo("login");
+        assertThat(tests.get(0).getAnnotation().name()).isEqualTo("Login");
+    }
+
+    @Test
+    public void indexesTagsCaseInsensitively() {
+        assertThat(registry.select("smoke")).extracting(RegisteredTest::getName)
+                .containsExactly("AlphaTests.login", "ZebraTests.checkout");
+        assertThat(registry.select("SMOKE & api")).extracting(RegisteredTest::getName)
+                .containsExactly("ZebraTests.checkout");
+        assertThat(registry.select("ui | !smoke")).extracting(RegisteredTest::getName)
+                .containsExactly("AlphaTests.login", "AlphaTests.search");
+        assertThat(registry.select("unknown")).isEmpty();
+        assertThatThrownBy(() -> registry.select("smoke &")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void findsTestsByNameInTheOrderAskedFor() {
+        assertThat(registry.findByName(List.of("ZebraTests.checkout", "AlphaTests.gone", "AlphaTests.login")))
+                .extracting(RegisteredTest::getName)
+                .containsExactly("ZebraTests.checkout", "AlphaTests.login");
+    }
+
+    @Test
+    public void handlesAreBoundToTheBeanThroughItsProxy() throws Throwable {
+        TestResult login = registry.findByName(List.of("AlphaTests.login")).get(0).invoke();
+        TestResult checkout = registry.findByName(List.of("ZebraTests.checkout")).get(0).invoke();
+
+        assertThat(login.getErrorMessage()).isEqualTo("login");
+        assertThat(checkout.getErrorMessage()).isEqualTo("checkout");
+        // The first AlphaTests bean (the proxy) won over the duplicate, and the call went through its advice
+        assertThat(INTERCEPTED.get()).isEqualTo(1);
+    }
+
+    @Configuration
+    static class TestBeans {
+
+        @Bean
+        public AlphaTests alphaTests() {
+            ProxyFactory proxyFactory = new ProxyFactory(new AlphaTests());
+            proxyFactory.setProxyTargetClass(true);
+            proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                INTERCEPTED.incrementAndGet();
+                return invocation.proceed();
+            });
+            return (AlphaTests) proxyFactory.getProxy();
+        }
+
+        @Bean
+        public AlphaTests duplicateAlphaTests() {
+            return new AlphaTests();
+        }
+
+        @Bean
+        public ZebraTests zebraTests() {
+            return new ZebraTests();
+        }
+    }
+
+    public static class AlphaTests {
+
+        @com.example.test_runner_worker.annotations.Test(name = "Login", tags = {"ui", "Smoke"})
+        public TestResult login() {
+            return result("login");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "Search", tags = {"api"})
+        public TestResult search() {
+            return result("search");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "Helper")
+        public static TestResult helper() {
+            return result("helper");
+        }
+
+        @com.example.test_runner_worker.annotations.Test(name = "With parameter")
+        public TestResult withParameter(String input) {
+            return result(input);
+        }
+    }
+
+    public static class ZebraTests {
+
+        @com.example.test_runner_worker.annotations.Test(name = "Checkout", tags = {"api", "smoke"})
+        public TestResult checkout() {
+            return result("checkout");
+        }
+    }
+
+    // The method name travels in the error message, so a test can tell which method a handle called
+    private static TestResult result(String method) {
+        TestResult result = new TestResult();
+        result.setStatus(TestRunStatus.COMPLETED);
+        result.setErrorMessage(method);
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.test_runner_worker.service;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WebDriverPoolTest {
+
+    private final List<RemoteWebDriver> opened = new ArrayList<>();
+
+    private WebDriverPool pool(int maxSessions, int warmSessions, int maxUses) {
+        return new WebDriverPool(() -> {
+            RemoteWebDriver driver = mock(RemoteWebDriver.class, RETURNS_DEEP_STUBS);
+            opened.add(driver);
+            return driver;
+        }, maxSessions, warmSessions, maxUses, 240, 60);
+    }
+
+    @Test
+    public void reusesAResetSessionInsteadOfOpeningANewOne() throws Exception {
+        WebDriverPool pool = pool(2, 0, 10);
+
+        WebDriver first = pool.borrow();
+        pool.release(first);
+        WebDriver second = pool.borrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(opened).hasSize(1);
+        verify(first.manage()).deleteAllCookies();
+        verify(first).get("about:blank");
+        verify(first, never()).quit();
+    }
+
+    @Test
+    public void recyclesASessionAfterMaxUses() throws Exception {
+        WebDriverPool pool = pool(1, 0, 2);
+
+        WebDriver first = pool.borrow();
+        pool.release(first);
+        pool.release(pool.borrow());
+        WebDriver third = pool.borrow();
+
+        assertThat(third).isNotSameAs(first);
+        verify(first).quit();
+    }
+
+    @Test
+    public void replacesASessionTheGridHasDropped() throws Exception {
+        WebDriverPool pool = pool(1, 0, 10);
+
+        WebDriver first = pool.borrow();
+        pool.release(first);
+        when(first.getWindowHandle()).thenThrow(new NoSuchSessionException("session timed out"));
+
+        assertThat(pool.borrow()).isNotSameAs(first);
+        verify(first).quit();
+    }
+
+    @Test
+    public void neverHandsOutMoreSessionsThanItHasSlots() throws Exception {
+        WebDriverPool pool = pool(1, 0, 10);
+        WebDriver first = pool.borrow();
+
+        CompletableFuture<WebDriver> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThatThrownBy(() -> waiting.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        pool.release(first);
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        assertThat(opened).hasSize(1);
+    }
+
+    @Test
+    public void maintenanceOpensTheWarmSessions() {
+        WebDriverPool pool = pool(3, 2, 10);
+
+        pool.maintain();
+
+        assertThat(opened).hasSize(2);
+        assertThat(pool.idleSessions()).isEqualTo(2);
+    }
+}